@@ -20,6 +20,10 @@ dependencies {
     implementation("net.dv8tion:JDA:6.3.0")
     implementation("org.xerial:sqlite-jdbc:3.51.1.0")
     implementation("com.opencsv:opencsv:5.12.0")
+
+    testImplementation(platform("org.junit:junit-bom:5.11.4"))
+    testImplementation("org.junit.jupiter:junit-jupiter")
+    testRuntimeOnly("org.junit.platform:junit-platform-launcher")
 }
 
 tasks.test {
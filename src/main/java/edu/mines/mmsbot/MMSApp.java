@@ -11,12 +11,18 @@ import edu.mines.mmsbot.data.Config;
 import edu.mines.mmsbot.data.JsonSerializable;
 import edu.mines.mmsbot.data.OperationStatistics;
 import edu.mines.mmsbot.pi.DoorMonitor;
+import edu.mines.mmsbot.pi.VirtualSensorConsole;
 import edu.mines.mmsbot.util.Args;
+import edu.mines.mmsbot.web.StatusServer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public class MMSApp {
 
@@ -26,8 +32,9 @@ public class MMSApp {
     private Config config;
     private OperationStatistics statistics;
     private BotRuntime runtime;
-    private DoorMonitor doorMonitor;
-    private SpaceStatus spaceStatus;
+    private final Map<Integer, SpaceStatus> spaceStatuses = new LinkedHashMap<>();
+    private final Map<Integer, DoorMonitor> doorMonitors = new LinkedHashMap<>();
+    private StatusServer statusServer;
     
     /*
         ⠀⢸⠂⠀⠀⠀⠘⣧⠀⠀⣟⠛⠲⢤⡀⠀⠀⣰⠏⠀⠀⠀⠀⠀⢹⡀
@@ -50,6 +57,7 @@ public class MMSApp {
      */
 
     public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true"); // Charts are drawn on a Pi with no display
         app = new MMSApp();
         app.init(new Args(args));
     }
@@ -65,23 +73,43 @@ public class MMSApp {
         try { // Listeners and commands added here because im too lazy to do reflection
             runtime = new BotRuntime(
                     config,
-                    List.of(new PingCommand(), new LockCommand(), new OpenCommand(), new StatsCommand(), new RoleCommand(), new DataCommand(), new ResumeCommand(), new DeveloperCommand()),
+                    List.of(new PingCommand(), new LockCommand(), new OpenCommand(), new StatsCommand(), new ForecastCommand(), new RoleCommand(), new DataCommand(), new ResumeCommand(), new DeveloperCommand()),
                     List.of(new CommandHandler(), new StatsListener(), new ClaimListener(), new LockChannelListener())
             );
         } catch (InterruptedException ex) {
             logger.error("Failed to initialize bot: ", ex);
         }
 
-        logger.info("Setting up Blaster Design Factory status...");
-        spaceStatus = new SpaceStatus(runtime); // This depends on a bot being enabled, as it needs to set the status.
+        logger.info("Warming statistics report...");
+        runtime.getCommand(StatsCommand.class).startRefresher();
 
-        logger.info("Starting door monitor...");
-        try {
-            doorMonitor = new DoorMonitor(config.virtual);
-            doorMonitor.setupMonitor();
-            doorMonitor.getMonitorThread().start();
-        } catch (IllegalStateException e) {
-            logger.error("Failed to initialize GPIO: ", e);
+        for (Config.TargetServer.Space space : config.targetServer.spaces) {
+            logger.info("Setting up {} status...", space.name);
+            spaceStatuses.put(space.id, new SpaceStatus(runtime, space)); // This depends on a bot being enabled, as it needs to set the status.
+        }
+
+        for (SpaceStatus spaceStatus : spaceStatuses.values()) {
+            logger.info("Starting door monitor for {}...", spaceStatus.getSpace().name);
+            try {
+                DoorMonitor doorMonitor = new DoorMonitor(spaceStatus, config.virtual);
+                doorMonitor.setupMonitor();
+                doorMonitor.getMonitorThread().start();
+                doorMonitors.put(spaceStatus.getSpace().id, doorMonitor);
+            } catch (IllegalStateException e) {
+                logger.error("Failed to initialize GPIO: ", e);
+            }
+        }
+
+        if (config.virtual) new VirtualSensorConsole(doorMonitors).start();
+
+        if (config.statusApi.enabled) {
+            logger.info("Starting status API...");
+            try {
+                statusServer = new StatusServer(config.statusApi.port);
+                statusServer.start();
+            } catch (IOException ex) {
+                logger.error("Failed to start status API: ", ex);
+            }
         }
 
         logger.info("Adding shutdown hooks...");
@@ -92,7 +120,8 @@ public class MMSApp {
 
     // Not super crucial, but just provides consistency when testing
     private void onShutdown() {
-        doorMonitor.stopMonitoring();
+        doorMonitors.values().forEach(DoorMonitor::stopMonitoring);
+        if (statusServer != null) statusServer.stop();
         runtime.getJda().shutdown();
         statistics.closeDatabase();
     }
@@ -114,6 +143,8 @@ public class MMSApp {
             logger.warn("Generating default configuration file: {}", configFile.getAbsolutePath());
         }
 
+        config.targetServer.migrateSpaces();
+
         logger.info("Saving configuration file...");
         config.save();
     }
@@ -128,8 +159,19 @@ public class MMSApp {
         }
     }
 
+    /**
+     * Status of the primary space.
+     */
     public SpaceStatus getSpaceStatus() {
-        return spaceStatus;
+        return getSpaceStatus(config.targetServer.primarySpace().id);
+    }
+
+    public SpaceStatus getSpaceStatus(int spaceId) {
+        return spaceStatuses.get(spaceId);
+    }
+
+    public Collection<SpaceStatus> getSpaceStatuses() {
+        return spaceStatuses.values();
     }
 
     public BotRuntime getRuntime() {
@@ -144,8 +186,8 @@ public class MMSApp {
         return config;
     }
 
-    public DoorMonitor getDoorMonitor() {
-        return doorMonitor;
+    public DoorMonitor getDoorMonitor(int spaceId) {
+        return doorMonitors.get(spaceId);
     }
 
     public Logger getLogger() {
@@ -5,6 +5,7 @@ import edu.mines.mmsbot.bot.framework.SpaceStatus;
 import edu.mines.mmsbot.data.Config;
 import edu.mines.mmsbot.data.OperationStatistics;
 import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public interface MMSContext {
 
@@ -16,6 +17,10 @@ public interface MMSContext {
         return app().getSpaceStatus();
     }
 
+    default SpaceStatus spaceStatus(int spaceId) {
+        return app().getSpaceStatus(spaceId);
+    }
+
     default BotRuntime runtime() {
         return app().getRuntime();
     }
@@ -25,7 +30,9 @@ public interface MMSContext {
     }
 
     default Logger log() {
-        return app().getLogger();
+        // Outside the running bot, such as in tests, there's no app to log through
+        MMSApp app = app();
+        return app == null ? LoggerFactory.getLogger(getClass()) : app.getLogger();
     }
 
     default Config config() {
@@ -10,7 +10,6 @@ import net.dv8tion.jda.api.utils.FileUpload;
 
 import java.io.File;
 import java.io.FileWriter;
-import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.Statement;
 
@@ -44,28 +43,33 @@ public class DataCommand extends AbstractCommand {
     }
 
     private void exportCSV(SlashCommandInteractionEvent event) throws Exception {
-        Connection conn = stats().getConn();
         File csvFile = File.createTempFile("doorbell_events_", ".csv");
 
         try (CSVWriter writer = new CSVWriter(new FileWriter(csvFile))) {
-            String[] header = {"ID", "Timestamp", "Event Type", "User ID"};
+            String[] header = {"ID", "Timestamp", "Event Type", "User ID", "Space ID"};
             writer.writeNext(header);
 
-            Statement stmt = conn.createStatement();
-            ResultSet rs = stmt.executeQuery("SELECT id, timestamp, event_type, user_id FROM events ORDER BY timestamp");
-
-            while (rs.next()) {
-                String[] row = {
-                        String.valueOf(rs.getInt("id")),
-                        String.valueOf(rs.getLong("timestamp")),
-                        rs.getString("event_type"),
-                        String.valueOf(rs.getLong("user_id"))
-                };
-                writer.writeNext(row);
-            }
-
-            rs.close();
-            stmt.close();
+            // Read on its own connection, so events keep being logged while a large export runs
+            stats().getDatabase().read(conn -> {
+                try (Statement stmt = conn.createStatement();
+                     // Types are stored as codes, event_types has their names. Rows the backfill hasn't reached still have the name.
+                     ResultSet rs = stmt.executeQuery("""
+                         SELECT e.id, e.timestamp, COALESCE(t.name, e.event_type) AS event_type, e.user_id, e.space_id FROM events e
+                         LEFT JOIN event_types t ON t.code = e.event_type ORDER BY e.timestamp
+                     """)) {
+                    while (rs.next()) {
+                        String[] row = {
+                                String.valueOf(rs.getInt("id")),
+                                String.valueOf(rs.getLong("timestamp")),
+                                rs.getString("event_type"),
+                                String.valueOf(rs.getLong("user_id")),
+                                String.valueOf(rs.getInt("space_id"))
+                        };
+                        writer.writeNext(row);
+                    }
+                }
+                return null;
+            });
         }
 
         event.getHook().editOriginal("CSV export completed:")
@@ -85,11 +89,13 @@ public class DataCommand extends AbstractCommand {
         File backupFile = File.createTempFile("doorbell_backup_", ".sqlite");
 
         try {
-            Connection conn = stats().getConn();
-            try (Statement stmt = conn.createStatement()) {
-                stmt.execute("VACUUM INTO '" + backupFile.getAbsolutePath().replace("\\", "\\\\") + "'");
-                log().info("Database backup created successfully");
-            }
+            stats().getDatabase().read(conn -> {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute("VACUUM INTO '" + backupFile.getAbsolutePath().replace("\\", "\\\\") + "'");
+                    log().info("Database backup created successfully");
+                }
+                return null;
+            });
 
             event.getHook().editOriginal("SQLite database export completed:")
                     .setFiles(FileUpload.fromData(backupFile, "doorbell_stats.sqlite"))
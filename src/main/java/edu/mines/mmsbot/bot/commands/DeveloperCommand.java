@@ -1,6 +1,8 @@
 package edu.mines.mmsbot.bot.commands;
 
 import edu.mines.mmsbot.bot.framework.AbstractCommand;
+import edu.mines.mmsbot.data.StatementTimings;
+import edu.mines.mmsbot.data.util.OpStatsUtils;
 import edu.mines.mmsbot.util.EmbedUtils;
 import edu.mines.mmsbot.util.TimeUtils;
 import net.dv8tion.jda.api.Permission;
@@ -10,13 +12,18 @@ import net.dv8tion.jda.api.interactions.commands.OptionMapping;
 import net.dv8tion.jda.api.interactions.commands.OptionType;
 import net.dv8tion.jda.api.interactions.commands.build.Commands;
 
+import java.sql.SQLException;
+
 public class DeveloperCommand extends AbstractCommand {
 
     public DeveloperCommand() {
         super(Commands.slash("dev","Random developer stuff.")
                 .setContexts(InteractionContextType.GUILD)
                 .addOption(OptionType.BOOLEAN,"cats-populate","Populates the cat database with all prior bot messages.",false)
-                .addOption(OptionType.BOOLEAN, "cats-update", "Starts a cat table update."));
+                .addOption(OptionType.BOOLEAN, "cats-update", "Starts a cat table update.")
+                .addOption(OptionType.BOOLEAN, "rollups-rebuild", "Rebuilds the statistics rollup tables from the event history.", false)
+                .addOption(OptionType.BOOLEAN, "sessions-rebuild", "Rebuilds the sessions table from the event history.", false)
+                .addOption(OptionType.BOOLEAN, "db-timings", "Shows how often each database statement has run and how long it took.", false));
     }
 
     @Override
@@ -62,5 +69,64 @@ public class DeveloperCommand extends AbstractCommand {
                 ).queue();
             });
         }
+
+        OptionMapping rebuild = event.getOption("rollups-rebuild");
+        if (rebuild != null && rebuild.getAsBoolean()) {
+            try {
+                for (OpStatsUtils opStats : stats().getAllOpStats()) opStats.rebuildRollups();
+                event.getHook().editOriginalEmbeds(
+                        EmbedUtils.defaultEmbed()
+                                .setTitle("Rollups Rebuilt")
+                                .setDescription("The rollup tables were rebuilt from the event history. Took " + TimeUtils.formatDuration(System.currentTimeMillis() - stamp,true) + ".")
+                                .build()
+                ).queue();
+            } catch (SQLException ex) {
+                log().error("Error rebuilding rollups: {}", ex.getMessage(), ex);
+                event.getHook().editOriginalEmbeds(
+                        EmbedUtils.defaultEmbed()
+                                .setTitle("Rollup Rebuild Failed")
+                                .setDescription(ex.getMessage())
+                                .build()
+                ).queue();
+            }
+        }
+
+        OptionMapping rebuildSessions = event.getOption("sessions-rebuild");
+        if (rebuildSessions != null && rebuildSessions.getAsBoolean()) {
+            try {
+                for (OpStatsUtils opStats : stats().getAllOpStats()) opStats.rebuildSessions();
+                event.getHook().editOriginalEmbeds(
+                        EmbedUtils.defaultEmbed()
+                                .setTitle("Sessions Rebuilt")
+                                .setDescription("The sessions table was rebuilt from the event history. Took " + TimeUtils.formatDuration(System.currentTimeMillis() - stamp,true) + ".")
+                                .build()
+                ).queue();
+            } catch (SQLException ex) {
+                log().error("Error rebuilding sessions: {}", ex.getMessage(), ex);
+                event.getHook().editOriginalEmbeds(
+                        EmbedUtils.defaultEmbed()
+                                .setTitle("Session Rebuild Failed")
+                                .setDescription(ex.getMessage())
+                                .build()
+                ).queue();
+            }
+        }
+
+        OptionMapping timings = event.getOption("db-timings");
+        if (timings != null && timings.getAsBoolean()) {
+            StringBuilder desc = new StringBuilder("```\n%-24s %7s %8s %8s\n".formatted("Statement", "Runs", "Avg ms", "Max ms"));
+            for (StatementTimings.Summary summary : stats().getDatabase().getTimings().summaries()) {
+                desc.append("%-24s %7d %8.2f %8.2f\n".formatted(summary.name(), summary.count(),
+                        summary.averageNanos() / 1e6, summary.maxNanos() / 1e6));
+            }
+            desc.append("```");
+
+            event.getHook().editOriginalEmbeds(
+                    EmbedUtils.defaultEmbed()
+                            .setTitle("Database Statement Timings")
+                            .setDescription(desc.toString())
+                            .build()
+            ).queue();
+        }
     }
 }
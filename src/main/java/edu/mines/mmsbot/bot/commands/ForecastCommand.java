@@ -0,0 +1,66 @@
+package edu.mines.mmsbot.bot.commands;
+
+import edu.mines.mmsbot.bot.framework.AbstractCommand;
+import edu.mines.mmsbot.bot.framework.SpaceStatus;
+import edu.mines.mmsbot.data.util.OccupancyForecast;
+import edu.mines.mmsbot.util.EmbedUtils;
+import edu.mines.mmsbot.util.TimeUtils;
+import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import net.dv8tion.jda.api.interactions.InteractionContextType;
+import net.dv8tion.jda.api.interactions.commands.OptionMapping;
+import net.dv8tion.jda.api.interactions.commands.OptionType;
+import net.dv8tion.jda.api.interactions.commands.build.Commands;
+import net.dv8tion.jda.api.interactions.commands.build.OptionData;
+
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+
+public class ForecastCommand extends AbstractCommand {
+
+    private static final int DEFAULT_HOURS = 12;
+    private static final int BAR_LENGTH = 10;
+
+    public ForecastCommand() {
+        super(withSpaceOption(Commands.slash("forecast", "See how likely the space is to be open over the next few hours.")
+                .setContexts(InteractionContextType.GUILD)
+                .addOptions(
+                        new OptionData(OptionType.INTEGER, "hours", "How many hours ahead to look, defaults to " + DEFAULT_HOURS + ".", false)
+                                .setRequiredRange(1, 24)
+                )
+        ));
+    }
+
+    @Override
+    public void execute(SlashCommandInteractionEvent event) {
+        int hours = event.getOption("hours", DEFAULT_HOURS, OptionMapping::getAsInt);
+        SpaceStatus space = selectedSpace(event);
+        OccupancyForecast forecast = space.getOpStats().getForecast();
+        ZonedDateTime hour = ZonedDateTime.now().truncatedTo(ChronoUnit.HOURS);
+
+        StringBuilder desc = new StringBuilder();
+        desc.append("The ").append(space.getSpace().name).append(space.isSpaceLocked() ? " is locked right now.\n\n" : " is open right now.\n\n");
+        desc.append("*Chance of being open, based on past semesters with recent weeks counting more:*\n");
+
+        for (int i = 0; i < hours; i++) {
+            double probability = forecast.probability(hour);
+            String label = TimeUtils.formatTime(hour.toLocalTime());
+
+            desc.append("`").append("%8s".formatted(label)).append("` ");
+            if (probability < 0) {
+                desc.append("`").append("·".repeat(BAR_LENGTH)).append("` no data\n");
+            } else {
+                int filled = (int) Math.round(probability * BAR_LENGTH);
+                desc.append("`").append("█".repeat(filled)).append("░".repeat(BAR_LENGTH - filled)).append("` ")
+                        .append(Math.round(probability * 100)).append("%\n");
+            }
+
+            hour = hour.plusHours(1);
+        }
+
+        event.replyEmbeds(EmbedUtils.defaultEmbed()
+                        .setTitle("🔮 Opening Forecast")
+                        .setDescription(desc.toString())
+                        .build())
+                .queue();
+    }
+}
@@ -1,6 +1,7 @@
 package edu.mines.mmsbot.bot.commands;
 
 import edu.mines.mmsbot.bot.framework.AbstractCommand;
+import edu.mines.mmsbot.bot.framework.SpaceStatus;
 import edu.mines.mmsbot.util.EmbedUtils;
 import net.dv8tion.jda.api.entities.Member;
 import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
@@ -12,10 +13,10 @@ import net.dv8tion.jda.api.interactions.commands.build.Commands;
 public class LockCommand extends AbstractCommand {
 
     public LockCommand() {
-        super(Commands.slash("lock", "Overrides the sensor or locks the space until the switch is triggered again.")
+        super(withSpaceOption(Commands.slash("lock", "Overrides the sensor or locks the space until the switch is triggered again.")
                 .addOption(OptionType.BOOLEAN, "ping-members", "Optionally, ping the members", false)
                 .setContexts(InteractionContextType.GUILD)
-        );
+        ));
     }
 
     @Override
@@ -24,25 +25,26 @@ public class LockCommand extends AbstractCommand {
         if (missingKeyholderRole(event)) return;
 
         Member member = event.getMember();
+        SpaceStatus space = selectedSpace(event);
         boolean pingMembers = event.getOption("ping-members", false, OptionMapping::getAsBoolean);
 
         // Execute lock override
-        if (spaceStatus().manualLock(member.getIdLong(), pingMembers)) {
+        if (space.manualLock(member.getIdLong(), pingMembers)) {
             event.replyEmbeds(EmbedUtils.defaultEmbed()
                             .setTitle("🔒 Manual Lock")
                             .setDescription("""
-                                    The Blaster Design Factory has been manually locked.
-                                    Members will be notified the next time the door sensor changes state.""")
+                                    The %s has been manually locked.
+                                    Members will be notified the next time the door sensor changes state.""".formatted(space.getSpace().name))
                             .build())
                     .setEphemeral(true)
                     .queue();
         } else {
-            if (spaceStatus().overrideLock(member.getIdLong())) {
+            if (space.overrideLock(member.getIdLong())) {
                 event.replyEmbeds(EmbedUtils.defaultEmbed()
                                 .setTitle("🔒 Lock Override Activated")
                                 .setDescription("""
-                                        The Blaster Design Factory is already locked.
-                                        Normal sensor operation will resume after the door sensor toggles back to this state.""")
+                                        The %s is already locked.
+                                        Normal sensor operation will resume after the door sensor toggles back to this state.""".formatted(space.getSpace().name))
                                 .build())
                         .setEphemeral(true)
                         .queue();
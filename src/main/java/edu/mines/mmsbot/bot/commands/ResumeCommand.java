@@ -1,6 +1,7 @@
 package edu.mines.mmsbot.bot.commands;
 
 import edu.mines.mmsbot.bot.framework.AbstractCommand;
+import edu.mines.mmsbot.bot.framework.SpaceStatus;
 import edu.mines.mmsbot.util.EmbedUtils;
 import net.dv8tion.jda.api.entities.Member;
 import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
@@ -10,9 +11,9 @@ import net.dv8tion.jda.api.interactions.commands.build.Commands;
 public class ResumeCommand extends AbstractCommand {
 
     public ResumeCommand() {
-        super(Commands.slash("resume", "Clears any override and resumes normal sensor operation immediately.")
+        super(withSpaceOption(Commands.slash("resume", "Clears any override and resumes normal sensor operation immediately.")
                 .setContexts(InteractionContextType.GUILD)
-        );
+        ));
     }
 
     @Override
@@ -21,12 +22,13 @@ public class ResumeCommand extends AbstractCommand {
         if (missingKeyholderRole(event)) return;
 
         Member member = event.getMember();
+        SpaceStatus space = selectedSpace(event);
 
-        boolean sensorState = app().getDoorMonitor().getLastStableState();
+        boolean sensorState = app().getDoorMonitor(space.getSpace().id).getLastStableState();
         String sensorStateText = sensorState ? "LOCKED 🔒" : "OPEN 🔓";
 
-        if (spaceStatus().clearOverride(member.getIdLong(), sensorState)) {
-            String previousOverride = spaceStatus().getState().toString();
+        if (space.clearOverride(member.getIdLong(), sensorState)) {
+            String previousOverride = space.getState().toString();
 
             event.replyEmbeds(EmbedUtils.defaultEmbed()
                             .setTitle("✅ Normal Operation Resumed")
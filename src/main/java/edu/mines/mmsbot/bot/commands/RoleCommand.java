@@ -1,6 +1,7 @@
 package edu.mines.mmsbot.bot.commands;
 
 import edu.mines.mmsbot.bot.framework.AbstractCommand;
+import edu.mines.mmsbot.bot.framework.SpaceStatus;
 import edu.mines.mmsbot.util.EmbedUtils;
 import net.dv8tion.jda.api.entities.Member;
 import net.dv8tion.jda.api.entities.Role;
@@ -11,7 +12,7 @@ import net.dv8tion.jda.api.interactions.commands.build.Commands;
 public class RoleCommand extends AbstractCommand {
 
     public RoleCommand() {
-        super(Commands.slash("doorbell-role","Run this command to add or remove yourself from the doorbell ping role.").setContexts(InteractionContextType.GUILD));
+        super(withSpaceOption(Commands.slash("doorbell-role","Run this command to add or remove yourself from the doorbell ping role.").setContexts(InteractionContextType.GUILD)));
     }
 
     @Override
@@ -27,15 +28,17 @@ public class RoleCommand extends AbstractCommand {
                     .queue();
             return;
         }
-        if (member.getRoles().stream().map(Role::getIdLong).toList().contains(runtime().getServer().getUnlockPingRole().getIdLong())) {
-            runtime().getServer().getGuild().removeRoleFromMember(member,runtime().getServer().getUnlockPingRole()).queue();
+        SpaceStatus space = selectedSpace(event);
+        Role pingRole = runtime().getServer().getUnlockPingRole(space.getSpace().id);
+        if (member.getRoles().stream().map(Role::getIdLong).toList().contains(pingRole.getIdLong())) {
+            runtime().getServer().getGuild().removeRoleFromMember(member,pingRole).queue();
             event.replyEmbeds(EmbedUtils.defaultEmbed()
-                    .setDescription("You will no longer be notified whenever the Blaster Design Factory is locked or unlocked. Run this command to get notified again.")
+                    .setDescription("You will no longer be notified whenever the " + space.getSpace().name + " is locked or unlocked. Run this command to get notified again.")
                     .build()).setEphemeral(true).queue();
         } else {
-            runtime().getServer().getGuild().addRoleToMember(member,runtime().getServer().getUnlockPingRole()).queue();
+            runtime().getServer().getGuild().addRoleToMember(member,pingRole).queue();
             event.replyEmbeds(EmbedUtils.defaultEmbed()
-                    .setDescription("You will now be notified whenever the Blaster Design Factory is locked or unlocked. Run this command to stop getting these notifications.")
+                    .setDescription("You will now be notified whenever the " + space.getSpace().name + " is locked or unlocked. Run this command to stop getting these notifications.")
                     .build()).setEphemeral(true).queue();
         }
     }
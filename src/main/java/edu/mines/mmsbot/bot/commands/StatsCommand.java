@@ -1,52 +1,107 @@
 package edu.mines.mmsbot.bot.commands;
 
+import edu.mines.mmsbot.MMSContext;
 import edu.mines.mmsbot.bot.framework.AbstractCommand;
 import edu.mines.mmsbot.data.util.CatStatsUtils;
+import edu.mines.mmsbot.data.util.DataVersion;
 import edu.mines.mmsbot.data.util.OpStatsUtils;
+import edu.mines.mmsbot.data.util.StatsAccumulator;
 import edu.mines.mmsbot.data.util.StatsReport;
 import edu.mines.mmsbot.data.util.StatsReport.StatType;
+import edu.mines.mmsbot.util.ChartUtils;
 import edu.mines.mmsbot.util.EmbedUtils;
 import edu.mines.mmsbot.util.TimeUtils;
 import net.dv8tion.jda.api.EmbedBuilder;
 import net.dv8tion.jda.api.components.actionrow.ActionRow;
 import net.dv8tion.jda.api.components.selections.StringSelectMenu;
+import net.dv8tion.jda.api.entities.User;
 import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
 import net.dv8tion.jda.api.interactions.InteractionContextType;
+import net.dv8tion.jda.api.interactions.commands.OptionMapping;
+import net.dv8tion.jda.api.interactions.commands.OptionType;
 import net.dv8tion.jda.api.interactions.commands.build.Commands;
+import net.dv8tion.jda.api.interactions.commands.build.OptionData;
+import net.dv8tion.jda.api.utils.messages.MessageEditBuilder;
+import net.dv8tion.jda.api.utils.messages.MessageEditData;
 
 import java.time.DayOfWeek;
+import java.time.LocalDate;
 import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
 import java.time.format.TextStyle;
+import java.time.temporal.TemporalAdjusters;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 public class StatsCommand extends AbstractCommand {
 
-    private StatsReport cachedReport;
+    private static final long REFRESH_DEBOUNCE_MS = 2_000;
+    private static final long REFRESH_CHECK_MINUTES = 1;
+    private static final StatsReport EMPTY_REPORT = new StatsReport();
+    /** Prefix of the section picker's ID, followed by the space it shows */
+    public static final String STAT_SELECTOR = "stat-selector:";
+
+    private final ExecutorService reportExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final ScheduledExecutorService refreshScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Stats Refresher");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+    // Each space has its own report, refreshed on its own when that space's data changes
+    private final Map<Integer, ScheduledFuture<?>> pendingRefreshes = new HashMap<>();
+    private final Map<Integer, StatsReport> cachedReports = new ConcurrentHashMap<>();
 
     public StatsCommand() {
-        super(Commands.slash("stats","Pull different statistics related to operation hours.").setContexts(InteractionContextType.GUILD));
+        super(withSpaceOption(Commands.slash("stats","Pull different statistics related to operation hours.")
+                .setContexts(InteractionContextType.GUILD)
+                .addOptions(
+                        new OptionData(OptionType.STRING, "window", "Only include a range of days, compared to the range before it.", false)
+                                .addChoice("Last 7 days", "week")
+                                .addChoice("Last 30 days", "month")
+                                .addChoice("This semester", "semester")
+                                .addChoice("Custom range", "custom")
+                )
+                .addOption(OptionType.STRING, "from", "Start of a custom window (YYYY-MM-DD).", false)
+                .addOption(OptionType.STRING, "to", "End of a custom window (YYYY-MM-DD), defaults to today.", false)
+                .addOption(OptionType.BOOLEAN, "me", "Show your own statistics.", false)
+                .addOption(OptionType.USER, "user", "Show a member's statistics.", false)
+        ));
     }
 
     @Override
     public void execute(SlashCommandInteractionEvent event) {
-        event.deferReply().queue();
-        long startTime = System.currentTimeMillis();
+        User member = event.getOption("user", null, OptionMapping::getAsUser);
+        if (member == null && event.getOption("me", false, OptionMapping::getAsBoolean)) member = event.getUser();
+        if (member != null) {
+            replyMember(event, member);
+            return;
+        }
 
-        if (cachedReport == null || cachedReport.isExpired()) {
-            log().info("Generating fresh statistics report (cache expired or missing)");
-            cachedReport = generateFullReport();
-        } else {
-            log().info("Using cached statistics report (age: {}ms)", cachedReport.getAge());
+        OptionMapping window = event.getOption("window");
+        if (window != null) {
+            replyWindow(event, window.getAsString());
+            return;
         }
 
-        EmbedBuilder summaryEmbed = cachedReport.getEmbed(StatType.SUMMARY);
+        event.deferReply().queue();
+        long startTime = System.currentTimeMillis();
+        OpStatsUtils opStats = selectedSpace(event).getOpStats();
+
+        StatsReport report = reportWith(opStats, StatType.SUMMARY);
+        EmbedBuilder summaryEmbed = report.getEmbed(StatType.SUMMARY);
         if (summaryEmbed != null) {
             summaryEmbed.setFooter("Retrieved in " + TimeUtils.formatDuration(System.currentTimeMillis() - startTime, true) +
-                    " (" + TimeUtils.formatDuration(cachedReport.getAge(), false) + " old)");
+                    " (" + TimeUtils.formatDuration(report.getAge(StatType.SUMMARY), false) + " old)");
             event.getHook().editOriginalEmbeds(summaryEmbed.build())
                     .submit().thenAccept(action->{
-                        action.editMessageComponents(ActionRow.of(createStatsMenu())).queue();
+                        action.editMessageComponents(ActionRow.of(createStatsMenu(opStats.getSpaceId()))).queue();
                     });
         } else {
             throw new RuntimeException("Summary embed was null.");
@@ -54,52 +109,332 @@ public class StatsCommand extends AbstractCommand {
     }
 
     /**
-     * Generates a complete statistics report with all embed types pre-computed.
+     * Replies with one member's history, read from the per-member aggregates.
+     */
+    private void replyMember(SlashCommandInteractionEvent event, User member) {
+        long startTime = System.currentTimeMillis();
+        OpStatsUtils.MemberStats memberStats = selectedSpace(event).getOpStats().getMemberStatistics(member.getIdLong());
+
+        StringBuilder desc = new StringBuilder();
+        desc.append("**Opens:** ").append(memberStats.opens()).append("\n");
+        desc.append("**Locks:** ").append(memberStats.locks()).append("\n");
+        desc.append("**Claimed Events:** ").append(memberStats.claimedEvents()).append("\n");
+        desc.append("**Time Opened For:** ").append(TimeUtils.formatDuration(memberStats.openTime(), false)).append("\n");
+        if (memberStats.lastOpen() != null) desc.append("**Last Opened:** ").append(TimeUtils.formatDate(memberStats.lastOpen())).append("\n");
+        desc.append("\n");
+
+        desc.append("**Current Streak:** ").append(memberStats.currentStreak()).append(" day").append(memberStats.currentStreak() == 1 ? "" : "s").append("\n");
+        desc.append("**Longest Streak:** ").append(memberStats.longestStreak()).append(" day").append(memberStats.longestStreak() == 1 ? "" : "s").append("\n");
+        desc.append("**Days Opened:** ").append(memberStats.daysOpened()).append("\n\n");
+
+        if (memberStats.averageOpenTime() != null) {
+            desc.append("**Typical Opening:** ").append(TimeUtils.formatTime(memberStats.averageOpenTime())).append("\n");
+            desc.append(createHourDistribution(memberStats.opensByHour(), "Opens"));
+        }
+
+        event.replyEmbeds(EmbedUtils.defaultEmbed()
+                        .setTitle("📇 Statistics for " + member.getEffectiveName())
+                        .setDescription(desc.toString())
+                        .setFooter("Retrieved in " + TimeUtils.formatDuration(System.currentTimeMillis() - startTime, true))
+                        .build())
+                .queue();
+    }
+
+    /**
+     * Replies with statistics for a window of days next to the window of the same length just before it.
+     */
+    private void replyWindow(SlashCommandInteractionEvent event, String window) {
+        long startTime = System.currentTimeMillis();
+        LocalDate today = LocalDate.now();
+        LocalDate from;
+        LocalDate to = today;
+        String label;
+
+        switch (window) {
+            case "week" -> {
+                from = today.minusDays(6);
+                label = "the Last 7 Days";
+            }
+            case "month" -> {
+                from = today.minusDays(29);
+                label = "the Last 30 Days";
+            }
+            case "semester" -> {
+                from = semesterStart(today);
+                label = "This Semester";
+            }
+            default -> {
+                try {
+                    from = LocalDate.parse(event.getOption("from", "", OptionMapping::getAsString));
+                    String toOption = event.getOption("to", "", OptionMapping::getAsString);
+                    if (!toOption.isBlank()) to = LocalDate.parse(toOption);
+                } catch (DateTimeParseException ex) {
+                    event.replyEmbeds(EmbedUtils.defaultEmbed()
+                                    .setDescription("Custom windows need a `from` date (and optionally a `to` date) written as YYYY-MM-DD.")
+                                    .build())
+                            .setEphemeral(true)
+                            .queue();
+                    return;
+                }
+                label = TimeUtils.formatDate(from) + " to " + TimeUtils.formatDate(to);
+            }
+        }
+
+        if (to.isBefore(from)) {
+            event.replyEmbeds(EmbedUtils.defaultEmbed()
+                            .setDescription("The start of the window must not be after its end.")
+                            .build())
+                    .setEphemeral(true)
+                    .queue();
+            return;
+        }
+
+        long length = to.toEpochDay() - from.toEpochDay() + 1;
+        OpStatsUtils opStats = selectedSpace(event).getOpStats();
+        LocalDate windowFrom = from;
+        LocalDate windowTo = to;
+
+        // The session summaries are read from the database, so the interaction is acknowledged before they run
+        event.deferReply().queue();
+        reportExecutor.execute(() -> {
+            try {
+                event.getHook().editOriginalEmbeds(EmbedUtils.defaultEmbed()
+                                .setTitle("📆 Statistics for " + label)
+                                .setDescription(describeWindow(opStats, windowFrom, windowTo, length))
+                                .setFooter("Retrieved in " + TimeUtils.formatDuration(System.currentTimeMillis() - startTime, true))
+                                .build())
+                        .queue();
+            } catch (RuntimeException ex) {
+                log().error("Error building window statistics: {}", ex.getMessage(), ex);
+                event.getHook().editOriginal("Failed to retrieve statistics: " + ex.getMessage()).queue();
+            }
+        });
+    }
+
+    private String describeWindow(OpStatsUtils opStats, LocalDate from, LocalDate to, long length) {
+        OpStatsUtils.WindowStats current = opStats.getWindowStatistics(from, to);
+        OpStatsUtils.WindowStats previous = opStats.getWindowStatistics(from.minusDays(length), from.minusDays(1));
+        OpStatsUtils.SessionSummary currentSessions = opStats.getSessionSummary(from, to);
+        OpStatsUtils.SessionSummary previousSessions = opStats.getSessionSummary(from.minusDays(length), from.minusDays(1));
+
+        StringBuilder desc = new StringBuilder();
+        desc.append("*Compared to the previous ").append(length).append(" day").append(length == 1 ? "" : "s").append(".*\n\n");
+        desc.append("**Total Operating Time:** ").append(TimeUtils.formatDuration(current.openTime(), false))
+                .append(" ").append(formatChange(current.openTime(), previous.openTime())).append("\n");
+        desc.append("**Opens:** ").append(current.opens()).append(" ").append(formatChange(current.opens(), previous.opens())).append("\n");
+        desc.append("**Locks:** ").append(current.locks()).append(" ").append(formatChange(current.locks(), previous.locks())).append("\n");
+        desc.append("**Sessions:** ").append(currentSessions.sessions()).append(" ").append(formatChange(currentSessions.sessions(), previousSessions.sessions())).append("\n");
+        desc.append("**Average Session:** ").append(TimeUtils.formatDuration(currentSessions.averageDuration(), false))
+                .append(" ").append(formatChange(currentSessions.averageDuration(), previousSessions.averageDuration())).append("\n");
+        desc.append("**Days Open:** ").append(current.daysOpen()).append(" of ").append(length)
+                .append(" ").append(formatChange(current.daysOpen(), previous.daysOpen())).append("\n\n");
+
+        desc.append("**Operating Time by Day:**\n");
+        long maxDuration = Math.max(1, Arrays.stream(current.openTimeByDay()).max().orElse(1));
+        for (DayOfWeek day : DayOfWeek.values()) {
+            long duration = current.openTimeByDay()[day.ordinal()];
+            desc.append("`").append("%-3s".formatted(day.getDisplayName(TextStyle.SHORT, Locale.US))).append("` ")
+                    .append(createBar(duration, maxDuration, 15))
+                    .append(" ").append(TimeUtils.formatDuration(duration, false).replaceAll(", \\d+ seconds", ""))
+                    .append(" across ").append(current.opensByDay()[day.ordinal()]).append(" opens\n");
+        }
+
+        return desc.toString();
+    }
+
+    /**
+     * Semesters run from January through May, June through July, and August through December.
      */
-    private StatsReport generateFullReport() {
-        Map<StatType, EmbedBuilder> embedMap = new EnumMap<>(StatType.class);
+    private LocalDate semesterStart(LocalDate date) {
+        int month = date.getMonthValue();
+        int startMonth = month <= 5 ? 1 : month <= 7 ? 6 : 8;
+        return LocalDate.of(date.getYear(), startMonth, 1);
+    }
+
+    private String formatChange(long current, long previous) {
+        if (previous == 0) return current == 0 ? "(no change)" : "(▲ new)";
+        long percent = Math.round((current - previous) * 100.0 / previous);
+        if (percent == 0) return "(no change)";
+        return percent > 0 ? "(▲ " + percent + "%)" : "(▼ " + -percent + "%)";
+    }
+
+    /**
+     * Builds each space's summary in the background and keeps every memoised section current from then on. Called
+     * once the bot runtime is up, since some sections link to the lock channel.
+     */
+    public void startRefresher() {
+        stats().getDataVersion().addListener(this::scheduleRefresh);
+        // Catches sections that only go stale with time, rebuilding nothing when nothing is stale
+        refreshScheduler.scheduleWithFixedDelay(() -> {
+            for (OpStatsUtils opStats : stats().getAllOpStats()) refreshReport(opStats);
+        }, 0, REFRESH_CHECK_MINUTES, TimeUnit.MINUTES);
+    }
 
-        for (StatType statType : StatType.values()) {
-            embedMap.put(statType, generateStatistics(statType));
+    /**
+     * Queues a refresh of a space's report shortly after its data changes, so a burst of writes only rebuilds it once.
+     * @param spaceId the space that changed, or {@link DataVersion#ALL_SPACES} to refresh every space
+     */
+    private synchronized void scheduleRefresh(int spaceId) {
+        if (spaceId == DataVersion.ALL_SPACES) {
+            for (OpStatsUtils opStats : stats().getAllOpStats()) scheduleRefresh(opStats.getSpaceId());
+            return;
         }
 
-        return new StatsReport(embedMap);
+        OpStatsUtils opStats = stats().getOpStats(spaceId);
+        if (opStats == null) return;
+
+        ScheduledFuture<?> pending = pendingRefreshes.get(spaceId);
+        if (pending != null) pending.cancel(false);
+        pendingRefreshes.put(spaceId, refreshScheduler.schedule(() -> refreshReport(opStats), REFRESH_DEBOUNCE_MS, TimeUnit.MILLISECONDS));
     }
 
     /**
-     * Retrieves a cached embed for the given stat type, with updated footer.
+     * Rebuilds a space's memoised sections whose data has changed since they were generated, on the refresher
+     * thread. The summary is always kept warm since it's what /stats shows first.
      */
-    public EmbedBuilder getCachedEmbed(StatType statType, long retrievalStartTime) {
-        if (cachedReport == null || cachedReport.isExpired()) {
-            log().info("Cache expired, regenerating report");
-            cachedReport = generateFullReport();
+    private void refreshReport(OpStatsUtils opStats) {
+        try {
+            int spaceId = opStats.getSpaceId();
+            DataVersion.Stamp stamp = stats().getDataVersion().stamp(spaceId);
+            StatsReport report = cachedReport(spaceId);
+
+            Set<StatType> stale = report.getStaleSections(stamp);
+            if (!report.hasSection(StatType.SUMMARY)) stale.add(StatType.SUMMARY);
+            if (stale.isEmpty()) return;
+
+            log().info("Regenerating statistics sections {} for space {} (versions: {})", stale, spaceId, stamp);
+            storeSections(spaceId, generateSections(opStats, stale, stamp), stamp);
+        } catch (Exception ex) {
+            // Exceptions would cancel the periodic check, so they stop here
+            log().error("Error refreshing statistics report: {}", ex.getMessage(), ex);
         }
+    }
 
-        EmbedBuilder embed = cachedReport.getEmbed(statType);
-        if (embed != null) {
-            long retrievalTime = System.currentTimeMillis() - retrievalStartTime;
-            embed.setFooter("Retrieved in " + TimeUtils.formatDuration(retrievalTime, true) +
-                    " (" + TimeUtils.formatDuration(cachedReport.getAge(), false) + " old)");
+    /**
+     * Returns a space's report holding a section. A memoised section is served as is, with a background refresh
+     * queued if it's stale. A section that has never been asked for is built on the spot, and only that section.
+     */
+    private StatsReport reportWith(OpStatsUtils opStats, StatType statType) {
+        int spaceId = opStats.getSpaceId();
+        DataVersion.Stamp stamp = stats().getDataVersion().stamp(spaceId);
+        StatsReport report = cachedReport(spaceId);
+
+        if (report.hasSection(statType)) {
+            if (report.isStale(statType, stamp)) scheduleRefresh(spaceId);
+            return report;
         }
 
-        return embed;
+        log().info("Generating statistics section {} for space {} on demand", statType, spaceId);
+        return storeSections(spaceId, generateSections(opStats, EnumSet.of(statType), stamp), stamp);
+    }
+
+    private StatsReport cachedReport(int spaceId) {
+        return cachedReports.getOrDefault(spaceId, EMPTY_REPORT);
     }
 
-    public StringSelectMenu createStatsMenu() {
-        StringSelectMenu.Builder menu = StringSelectMenu.create("stat-selector");
+    private StatsReport storeSections(int spaceId, Map<StatType, StatsReport.SectionContent> contents, DataVersion.Stamp stamp) {
+        return cachedReports.compute(spaceId, (id, cached) -> (cached == null ? EMPTY_REPORT : cached).withSections(contents, stamp));
+    }
+
+    /**
+     * Generates embeds for some of the report's sections concurrently, all from one read of the data.
+     * The versions must be read before calling this, so a write that races the read leaves the sections looking
+     * stale rather than current.
+     */
+    private Map<StatType, StatsReport.SectionContent> generateSections(OpStatsUtils opStats, Set<StatType> statTypes, DataVersion.Stamp stamp) {
+        long start = System.currentTimeMillis();
+        ReportData data = new ReportData(opStats, stamp, statTypes.contains(StatType.CATS));
+
+        Map<StatType, CompletableFuture<StatsReport.SectionContent>> sections = new EnumMap<>(StatType.class);
+        for (StatType statType : statTypes) {
+            sections.put(statType, CompletableFuture.supplyAsync(() -> {
+                EmbedBuilder embed = generateStatistics(statType, data);
+                ChartUtils.ChartImage chart = renderChart(statType, data);
+                if (chart != null) embed.setImage(chart.attachmentUrl());
+                return new StatsReport.SectionContent(embed, chart);
+            }, reportExecutor));
+        }
+
+        Map<StatType, StatsReport.SectionContent> contentMap = new EnumMap<>(StatType.class);
+        sections.forEach((statType, section) -> contentMap.put(statType, section.join()));
+
+        log().info("Generated {} statistics sections in {}ms (versions: {}).", contentMap.size(), System.currentTimeMillis() - start, data.stamp());
+        return contentMap;
+    }
+
+    /**
+     * Builds the message for a cached section, with an updated footer and its chart attached.
+     * Attachments are always set so a chart from a previously shown section doesn't linger.
+     */
+    public MessageEditData getCachedMessage(int spaceId, StatType statType, long retrievalStartTime) {
+        OpStatsUtils opStats = stats().getOpStats(spaceId);
+        // The space may have been removed from the config since the menu was sent
+        if (opStats == null) opStats = stats().getOpStats();
+        StatsReport report = reportWith(opStats, statType);
+
+        EmbedBuilder embed = report.getEmbed(statType);
+        long retrievalTime = System.currentTimeMillis() - retrievalStartTime;
+        embed.setFooter("Retrieved in " + TimeUtils.formatDuration(retrievalTime, true) +
+                " (" + TimeUtils.formatDuration(report.getAge(statType), false) + " old)");
+
+        ChartUtils.ChartImage chart = report.getChart(statType);
+        return new MessageEditBuilder()
+                .setEmbeds(embed.build())
+                .setFiles(chart == null ? List.of() : List.of(chart.toUpload()))
+                .build();
+    }
+
+    /**
+     * Renders the chart a section shows in place of text bars, or returns null for sections without one.
+     * Identical data reuses the previously rendered image.
+     */
+    private ChartUtils.ChartImage renderChart(StatType statType, ReportData data) {
+        return switch (statType) {
+            case SESSION_AVERAGES -> {
+                int[] distribution = data.openSessions().distribution();
+                long[] counts = Arrays.stream(distribution).asLongStream().toArray();
+                String[] labels = Arrays.stream(distribution).mapToObj(String::valueOf).toArray(String[]::new);
+                yield ChartUtils.barChart("session-lengths", OpStatsUtils.SessionStats.DISTRIBUTION_LABELS, counts, labels);
+            }
+            case DAY_OF_WEEK -> {
+                OpStatsUtils.DayOfWeekStats dayStats = data.dayOfWeek();
+                String[] days = new String[7];
+                long[] averages = new long[7];
+                String[] labels = new String[7];
+
+                for (DayOfWeek day : DayOfWeek.values()) {
+                    int opens = dayStats.opensByDay().getOrDefault(day, 0);
+                    long total = dayStats.durationByDay().getOrDefault(day, 0L);
+                    days[day.ordinal()] = day.getDisplayName(TextStyle.SHORT, Locale.US);
+                    averages[day.ordinal()] = opens > 0 ? total / opens : 0;
+                    labels[day.ordinal()] = "%.1fh".formatted(averages[day.ordinal()] / 3_600_000.0);
+                }
+
+                yield ChartUtils.barChart("day-of-week", days, averages, labels);
+            }
+            case HOURLY_HEATMAP -> ChartUtils.heatmap("heatmap", data.openTimeByHourOfWeek());
+            case CONTRIBUTIONS -> ChartUtils.contributionGraph("contributions", data.yearStart(), data.yearOpenDays(), data.today());
+            default -> null;
+        };
+    }
+
+    /**
+     * The section picker under a /stats reply. Its ID carries the space, so picking a section shows that space's.
+     */
+    public StringSelectMenu createStatsMenu(int spaceId) {
+        StringSelectMenu.Builder menu = StringSelectMenu.create(STAT_SELECTOR + spaceId);
         for (StatType value : StatType.values()) {
             menu.addOption(value.title, value.name(), value.description);
         }
         return menu.build();
     }
 
-    private EmbedBuilder generateStatistics(StatType statType) {
+    private EmbedBuilder generateStatistics(StatType statType, ReportData data) {
         return switch (statType) {
             case SESSION_AVERAGES -> {
                 log().info("Calculating session averages...");
-                OpStatsUtils.SessionStats[] stats = stats().getOpStats().getSessionStatistics();
-                OpStatsUtils.SessionStats openStats = stats[0];
-                OpStatsUtils.SessionStats closedStats = stats[1];
+                OpStatsUtils.SessionStats openStats = data.openSessions();
+                OpStatsUtils.SessionStats closedStats = data.closedSessions();
 
                 StringBuilder desc = new StringBuilder();
                 desc.append("**__Open Session Stats__:** *(")
@@ -108,6 +443,8 @@ public class StatsCommand extends AbstractCommand {
                         .append(openStats.totalSessions()).append(" sessions)*\n");
                 desc.append("**Average Open Duration:** ").append(TimeUtils.formatDuration(openStats.averageDuration(), false)).append("\n");
                 desc.append("**Median Open Duration:** ").append(TimeUtils.formatDuration(openStats.medianDuration(), false)).append("\n");
+                desc.append("**90th / 99th Percentile:** ").append(TimeUtils.formatDuration(openStats.p90Duration(), false))
+                        .append(" / ").append(TimeUtils.formatDuration(openStats.p99Duration(), false)).append("\n");
                 desc.append("**Standard Deviation:** ").append(TimeUtils.formatDuration(Math.round(openStats.standardDeviation()), false)).append("\n");
                 desc.append("**Longest Open Session:** ").append(TimeUtils.formatDuration(openStats.longestSession(), false)).append("\n");
                 desc.append("**Shortest Open Session:** ").append(TimeUtils.formatDuration(openStats.shortestSession(), false)).append("\n");
@@ -119,10 +456,14 @@ public class StatsCommand extends AbstractCommand {
                         .append(closedStats.totalSessions()).append(" sessions)*\n");
                 desc.append("**Average Closed Duration:** ").append(TimeUtils.formatDuration(closedStats.averageDuration(), false)).append("\n");
                 desc.append("**Median Closed Duration:** ").append(TimeUtils.formatDuration(closedStats.medianDuration(), false)).append("\n");
+                desc.append("**90th / 99th Percentile:** ").append(TimeUtils.formatDuration(closedStats.p90Duration(), false))
+                        .append(" / ").append(TimeUtils.formatDuration(closedStats.p99Duration(), false)).append("\n");
                 desc.append("**Standard Deviation:** ").append(TimeUtils.formatDuration(Math.round(closedStats.standardDeviation()), false)).append("\n");
                 desc.append("**Longest Closed Session:** ").append(TimeUtils.formatDuration(closedStats.longestSession(), false)).append("\n");
                 desc.append("**Shortest Closed Session:** ").append(TimeUtils.formatDuration(closedStats.shortestSession(), false)).append("\n");
-                
+
+                desc.append("\n**__Open Session Lengths__:**");
+
                 yield EmbedUtils.defaultEmbed()
                         .setTitle("⏱️ Session Duration Statistics")
                         .setDescription(desc.toString());
@@ -130,18 +471,18 @@ public class StatsCommand extends AbstractCommand {
 
             case TIME_OF_DAY -> {
                 log().info("Calculating time of day patterns...");
-                OpStatsUtils.TimeOfDayStats timeStats = stats().getOpStats().getTimeOfDayStatistics();
+                OpStatsUtils.TimeOfDayStats timeStats = data.timeOfDay();
 
                 StringBuilder desc = new StringBuilder();
 
                 if (timeStats.averageOpenTime() != null) {
                     desc.append("**Average Opening Time:** ").append(TimeUtils.formatTime(timeStats.averageOpenTime())).append("\n");
-                    desc.append(createHourDistribution(timeStats.operatingHours().stream().map(OpStatsUtils.OperatingHours::open).toList(), "Opens")).append("\n\n");
+                    desc.append(createHourDistribution(timeStats.opensByHour(), "Opens")).append("\n\n");
                 }
 
                 if (timeStats.averageCloseTime() != null) {
                     desc.append("**Average Closing Time:** ").append(TimeUtils.formatTime(timeStats.averageCloseTime())).append("\n");
-                    desc.append(createHourDistribution(timeStats.operatingHours().stream().map(OpStatsUtils.OperatingHours::close).toList(), "Closes"));
+                    desc.append(createHourDistribution(timeStats.closesByHour(), "Closes"));
                 }
 
                 if (desc.isEmpty()) desc.append("Not enough data yet!");
@@ -153,7 +494,7 @@ public class StatsCommand extends AbstractCommand {
 
             case DAY_OF_WEEK -> {
                 log().info("Calculating day of week patterns...");
-                OpStatsUtils.DayOfWeekStats dayStats = stats().getOpStats().getDayOfWeekStatistics();
+                OpStatsUtils.DayOfWeekStats dayStats = data.dayOfWeek();
 
                 StringBuilder desc = new StringBuilder();
 
@@ -165,28 +506,13 @@ public class StatsCommand extends AbstractCommand {
 
                 desc.append("**Average Operating Hours by Day:**\n");
 
-                long maxAvgDuration = DayOfWeek.values().length == 0 ? 1 :
-                        Arrays.stream(DayOfWeek.values())
-                                .mapToLong(day -> {
-                                    int opens = dayStats.opensByDay().getOrDefault(day, 0);
-                                    long total = dayStats.durationByDay().getOrDefault(day, 0L);
-                                    return opens > 0 ? total / opens : 0;
-                                })
-                                .max()
-                                .orElse(1);
-
                 for (DayOfWeek day : DayOfWeek.values()) {
                     int opens = dayStats.opensByDay().getOrDefault(day, 0);
                     long totalDuration = dayStats.durationByDay().getOrDefault(day, 0L);
                     long avgDuration = opens > 0 ? totalDuration / opens : 0;
 
-                    String dayName = day.getDisplayName(TextStyle.SHORT, Locale.US);
-                    String bar = createBar(avgDuration, maxAvgDuration, 15);
-
-                    desc.append("`").append("%-3s".formatted(dayName)).append("` ");
-                    desc.append(bar);
-
-                    desc.append(" average ").append(TimeUtils.formatDuration(avgDuration, false).replaceAll(", \\d+ seconds","")).append(" across ").append(opens).append(" opens").append("\n");
+                    desc.append("**").append(day.getDisplayName(TextStyle.SHORT, Locale.US)).append(":** ");
+                    desc.append(TimeUtils.formatDuration(avgDuration, false).replaceAll(", \\d+ seconds","")).append(" across ").append(opens).append(" opens").append("\n");
                 }
 
                 yield EmbedUtils.defaultEmbed()
@@ -196,7 +522,7 @@ public class StatsCommand extends AbstractCommand {
 
             case USER_LEADERBOARD -> {
                 log().info("Calculating user statistics...");
-                OpStatsUtils.UserStats userStats = stats().getOpStats().getUserStatistics();
+                OpStatsUtils.UserStats userStats = data.users();
 
                 StringBuilder desc = new StringBuilder();
                 desc.append("**Most Active Openers:**\n");
@@ -234,7 +560,7 @@ public class StatsCommand extends AbstractCommand {
 
             case STREAK_STATS -> {
                 log().info("Calculating streak statistics...");
-                OpStatsUtils.StreakStats streakStats = stats().getOpStats().getStreakStatistics();
+                OpStatsUtils.StreakStats streakStats = data.streaks();
 
                 StringBuilder desc = new StringBuilder();
                 desc.append("**Current Streak:** ").append(streakStats.currentStreak()).append(" day").append(streakStats.currentStreak() == 1 ? "" : "s").append("\n");
@@ -252,55 +578,42 @@ public class StatsCommand extends AbstractCommand {
                         .setDescription(desc.toString());
             }
 
+            case CONTRIBUTIONS -> {
+                log().info("Calculating open days over the past year...");
+                OpStatsUtils.StreakStats streakStats = data.streaks();
+                // Counted from the same days the graph draws, which usually start a little more than a year back
+                int fromIndex = (int) Math.max(0, data.today().minusYears(1).plusDays(1).toEpochDay() - data.yearStart().toEpochDay());
+                int daysOpen = data.yearOpenDays().get(fromIndex, fromIndex + 366).cardinality();
+
+                StringBuilder desc = new StringBuilder();
+                desc.append("**Days Open in the Past Year:** ").append(daysOpen).append(" day").append(daysOpen == 1 ? "" : "s").append("\n");
+                desc.append("**Current Streak:** ").append(streakStats.currentStreak()).append(" day").append(streakStats.currentStreak() == 1 ? "" : "s").append("\n");
+                desc.append("**Longest Streak:** ").append(streakStats.longestStreak()).append(" day").append(streakStats.longestStreak() == 1 ? "" : "s").append("\n");
+
+                yield EmbedUtils.defaultEmbed()
+                        .setTitle("🗓️ Year at a Glance")
+                        .setDescription(desc.toString());
+            }
+
             case HOURLY_HEATMAP -> {
                 log().info("Generating hourly heatmap...");
-                OpStatsUtils.TimeOfDayStats timeStats = stats().getOpStats().getTimeOfDayStatistics();
-
-                Map<Integer, Integer> operatingHourCounts = new HashMap<>();
-
-                for (OpStatsUtils.OperatingHours oh : timeStats.operatingHours()) {
-                    LocalTime open = oh.open();
-                    LocalTime close = oh.close();
-
-                    int startHour = open.getHour();
-                    int endHour = close.getHour();
-
-                    // Same-day operation
-                    if (!close.isBefore(open)) {
-                        for (int h = startHour; h < endHour; h++) {
-                            operatingHourCounts.merge(h, 1, Integer::sum);
-                        }
-                    }
-
-                    // Overnight operation
-                    else {
-                        for (int h = startHour; h < 24; h++) {
-                            operatingHourCounts.merge(h, 1, Integer::sum);
-                        }
-                        for (int h = 0; h < endHour; h++) {
-                            operatingHourCounts.merge(h, 1, Integer::sum);
-                        }
-                    }
+                // Summed from the same hours the chart draws, so the two always agree
+                long[] openTimeByHourOfWeek = data.openTimeByHourOfWeek();
+                long[] openTimeByHour = new long[24];
+                for (int hour = 0; hour < openTimeByHourOfWeek.length; hour++) openTimeByHour[hour % 24] += openTimeByHourOfWeek[hour];
+
+                int busiestHour = 0;
+                for (int hour = 1; hour < 24; hour++) {
+                    if (openTimeByHour[hour] > openTimeByHour[busiestHour]) busiestHour = hour;
                 }
 
                 StringBuilder desc = new StringBuilder();
-                desc.append("```\n");
-                desc.append(" Hour | Operating Activity\n");
-                desc.append("------|").append("-".repeat(30)).append("\n");
-
-                int maxCount = operatingHourCounts.values().stream()
-                        .max(Integer::compareTo)
-                        .orElse(1);
-
-                for (int hour = 0; hour < 24; hour++) {
-                    int count = operatingHourCounts.getOrDefault(hour, 0);
-                    String hourStr = String.format("%02d:00", hour);
-                    String bar = createBar(count, maxCount, 30);
-                    desc.append(hourStr).append(" | ").append(bar).append("\n");
+                desc.append("*Time the space has been open in each hour of the week, darker is less.*\n\n");
+                if (openTimeByHour[busiestHour] > 0) {
+                    desc.append("**Most Often Open:** ").append(TimeUtils.formatTime(LocalTime.of(busiestHour, 0)))
+                            .append(" - ").append(TimeUtils.formatTime(LocalTime.of((busiestHour + 1) % 24, 0))).append("\n");
                 }
 
-                desc.append("```");
-
                 yield EmbedUtils.defaultEmbed()
                         .setTitle("🌡️ Operating Hours Heatmap")
                         .setDescription(desc.toString());
@@ -309,8 +622,8 @@ public class StatsCommand extends AbstractCommand {
                 log().info("Calculating cat statistics...");
 
 
-                List<CatStatsUtils.MessageCatStat> topMessages = stats().getCatStats().getTopMessages(5);
-                List<Map.Entry<Long, Integer>> topUsers = stats().getCatStats().getTopUsers(5);
+                List<CatStatsUtils.MessageCatStat> topMessages = data.topCatMessages();
+                List<Map.Entry<Long, Integer>> topUsers = data.topCatUsers();
 
                 StringBuilder desc = new StringBuilder();
 
@@ -356,16 +669,16 @@ public class StatsCommand extends AbstractCommand {
             case SUMMARY -> {
                 log().info("Generating comprehensive report...");
 
-                OpStatsUtils.SessionStats[] sessionStats = stats().getOpStats().getSessionStatistics();
-                OpStatsUtils.TimeOfDayStats timeStats = stats().getOpStats().getTimeOfDayStatistics();
-                OpStatsUtils.DayOfWeekStats dayStats = stats().getOpStats().getDayOfWeekStatistics();
-                OpStatsUtils.StreakStats streakStats = stats().getOpStats().getStreakStatistics();
+                OpStatsUtils.SessionStats openStats = data.openSessions();
+                OpStatsUtils.TimeOfDayStats timeStats = data.timeOfDay();
+                OpStatsUtils.DayOfWeekStats dayStats = data.dayOfWeek();
+                OpStatsUtils.StreakStats streakStats = data.streaks();
 
                 StringBuilder desc = new StringBuilder();
-                desc.append("**Total Operating Time:** ").append(TimeUtils.formatDuration(sessionStats[0].totalSessionTime(), false)).append("\n");
-                desc.append("**Total Open Sessions:** ").append(sessionStats[0].totalSessions()).append("\n");
-                desc.append("**Avg Open Session Length:** ").append(TimeUtils.formatDuration(sessionStats[0].averageDuration(), false)).append("\n");
-                desc.append("**Longest Open Session:** ").append(TimeUtils.formatDuration(sessionStats[0].longestSession(), false)).append("\n");
+                desc.append("**Total Operating Time:** ").append(TimeUtils.formatDuration(openStats.totalSessionTime(), false)).append("\n");
+                desc.append("**Total Open Sessions:** ").append(openStats.totalSessions()).append("\n");
+                desc.append("**Avg Open Session Length:** ").append(TimeUtils.formatDuration(openStats.averageDuration(), false)).append("\n");
+                desc.append("**Longest Open Session:** ").append(TimeUtils.formatDuration(openStats.longestSession(), false)).append("\n");
                 desc.append("**Current Streak:** ").append(streakStats.currentStreak()).append(" day").append(streakStats.currentStreak() == 1 ? "" : "s").append("\n\n");
 
                 if (timeStats.averageOpenTime() != null) desc.append("**Typical Opening:** ").append(TimeUtils.formatTime(timeStats.averageOpenTime())).append("\n");
@@ -379,14 +692,9 @@ public class StatsCommand extends AbstractCommand {
         };
     }
 
-    private String createHourDistribution(List<LocalTime> times, String label) {
-        if (times.isEmpty()) return "";
-
-        Map<Integer, Long> hourCounts = times.stream()
-                .map(LocalTime::getHour)
-                .collect(Collectors.groupingBy(h -> h, Collectors.counting()));
-
-        long maxCount = hourCounts.values().stream().max(Long::compareTo).orElse(1L);
+    private String createHourDistribution(int[] hourCounts, String label) {
+        long maxCount = Arrays.stream(hourCounts).max().orElse(0);
+        if (maxCount == 0) return "";
 
         StringBuilder result = new StringBuilder();
         result.append("*").append(label).append(" by hour:*\n");
@@ -394,7 +702,7 @@ public class StatsCommand extends AbstractCommand {
         for (int block = 0; block < 24; block += 6) {
             result.append("`");
             for (int hour = block; hour < block + 6 && hour < 24; hour++) {
-                long count = hourCounts.getOrDefault(hour, 0L);
+                long count = hourCounts[hour];
                 result.append(getBarChar(count, maxCount));
             }
             result.append("` ");
@@ -428,4 +736,95 @@ public class StatsCommand extends AbstractCommand {
             default -> rank + ".";
         };
     }
-}
\ No newline at end of file
+
+    /**
+     * The data sections are built from, read once up front so every section generated in the same pass describes
+     * the same moment. The cat leaderboards are only read when a cat section is being built.
+     */
+    private static final class ReportData implements MMSContext {
+        private final DataVersion.Stamp stamp;
+        private final LocalDate today = LocalDate.now();
+        private final LocalDate yearStart = today.minusWeeks(52).with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        private final OpStatsUtils.StatsSnapshot snapshot;
+        private final long[] openTimeByHourOfWeek;
+        private final BitSet yearOpenDays;
+        private final List<CatStatsUtils.MessageCatStat> topCatMessages;
+        private final List<Map.Entry<Long, Integer>> topCatUsers;
+
+        /**
+         * @param stamp the versions read before this, which the sections are stored under
+         */
+        ReportData(OpStatsUtils opStats, DataVersion.Stamp stamp, boolean withCats) {
+            this.stamp = stamp;
+
+            StatsAccumulator liveStats = opStats.getLiveStats();
+            // The accumulator locks on itself, so holding its lock keeps an event from landing between these reads
+            synchronized (liveStats) {
+                snapshot = opStats.getSnapshot();
+                openTimeByHourOfWeek = liveStats.openTimeByHourOfWeek();
+                yearOpenDays = liveStats.openDays(yearStart, today);
+            }
+
+            topCatMessages = withCats ? stats().getCatStats().getTopMessages(5) : List.of();
+            topCatUsers = withCats ? stats().getCatStats().getTopUsers(5) : List.of();
+        }
+
+        DataVersion.Stamp stamp() {
+            return stamp;
+        }
+
+        LocalDate today() {
+            return today;
+        }
+
+        /**
+         * The Monday the contribution graph starts on, 52 weeks before this one.
+         */
+        LocalDate yearStart() {
+            return yearStart;
+        }
+
+        /**
+         * @return the open days from {@link #yearStart()} through today, with bit 0 being the start
+         */
+        BitSet yearOpenDays() {
+            return yearOpenDays;
+        }
+
+        long[] openTimeByHourOfWeek() {
+            return openTimeByHourOfWeek;
+        }
+
+        OpStatsUtils.SessionStats openSessions() {
+            return snapshot.openSessions();
+        }
+
+        OpStatsUtils.SessionStats closedSessions() {
+            return snapshot.closedSessions();
+        }
+
+        OpStatsUtils.TimeOfDayStats timeOfDay() {
+            return snapshot.timeOfDay();
+        }
+
+        OpStatsUtils.DayOfWeekStats dayOfWeek() {
+            return snapshot.dayOfWeek();
+        }
+
+        OpStatsUtils.UserStats users() {
+            return snapshot.users();
+        }
+
+        OpStatsUtils.StreakStats streaks() {
+            return snapshot.streaks();
+        }
+
+        List<CatStatsUtils.MessageCatStat> topCatMessages() {
+            return topCatMessages;
+        }
+
+        List<Map.Entry<Long, Integer>> topCatUsers() {
+            return topCatUsers;
+        }
+    }
+}
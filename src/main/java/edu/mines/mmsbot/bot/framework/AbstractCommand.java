@@ -1,11 +1,18 @@
 package edu.mines.mmsbot.bot.framework;
 
+import edu.mines.mmsbot.MMSApp;
 import edu.mines.mmsbot.MMSContext;
+import edu.mines.mmsbot.data.Config;
 import edu.mines.mmsbot.util.EmbedUtils;
 import net.dv8tion.jda.api.entities.ISnowflake;
 import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import net.dv8tion.jda.api.interactions.commands.OptionMapping;
+import net.dv8tion.jda.api.interactions.commands.OptionType;
+import net.dv8tion.jda.api.interactions.commands.build.OptionData;
 import net.dv8tion.jda.api.interactions.commands.build.SlashCommandData;
 
+import java.util.List;
+
 public abstract class AbstractCommand implements MMSContext {
     private final SlashCommandData command;
 
@@ -19,6 +26,25 @@ public abstract class AbstractCommand implements MMSContext {
 
     public abstract void execute(SlashCommandInteractionEvent event);
 
+    /**
+     * Lets a command pick which space it acts on. Left off when only one space is configured.
+     */
+    protected static SlashCommandData withSpaceOption(SlashCommandData command) {
+        List<Config.TargetServer.Space> spaces = MMSApp.getApp().getConfig().targetServer.spaces;
+        if (spaces.size() < 2) return command;
+
+        OptionData option = new OptionData(OptionType.INTEGER, "space", "Which space, defaults to the " + spaces.getFirst().name + ".", false);
+        for (Config.TargetServer.Space space : spaces) option.addChoice(space.name, space.id);
+        return command.addOptions(option);
+    }
+
+    /**
+     * The space picked with the option from {@link #withSpaceOption(SlashCommandData)}, or the primary space.
+     */
+    protected SpaceStatus selectedSpace(SlashCommandInteractionEvent event) {
+        return spaceStatus(event.getOption("space", config().targetServer.primarySpace().id, OptionMapping::getAsInt));
+    }
+
     public boolean serverIncorrect(SlashCommandInteractionEvent event) {
         if (event.getGuild().getIdLong() != config().targetServer.serverID) {
             event.replyEmbeds(EmbedUtils.defaultEmbed()
@@ -0,0 +1,71 @@
+package edu.mines.mmsbot.bot.framework;
+
+import edu.mines.mmsbot.MMSContext;
+import edu.mines.mmsbot.util.TimeUtils;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches for the space being left open. When a session starts, one timer is set for the point it would become
+ * longer than sessions starting at that time of the week usually run. Locking cancels it, so there's never more
+ * than one timer and nothing polls.
+ */
+public class ForgottenLockDetector implements MMSContext {
+
+    private final SpaceStatus spaceStatus;
+    private final ScheduledExecutorService scheduler;
+
+    private ScheduledFuture<?> pending;
+    private long openTime = -1;
+
+    public ForgottenLockDetector(SpaceStatus spaceStatus) {
+        this.spaceStatus = spaceStatus;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, spaceStatus.getSpace().name + " Forgotten Lock Detector");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Sets the timer for a session that started at the given time, replacing any earlier one.
+     */
+    public synchronized void sessionOpened(long openTime) {
+        cancel();
+
+        long bound = spaceStatus.getOpStats().getSessionLengths().upperBound(openTime);
+        long delay = Math.max(0, openTime + bound - System.currentTimeMillis());
+
+        this.openTime = openTime;
+        pending = scheduler.schedule(() -> expire(openTime, bound), delay, TimeUnit.MILLISECONDS);
+        log().info("Forgotten lock check set for {} from now.", TimeUtils.formatDuration(delay, false));
+    }
+
+    /**
+     * Drops the timer once the space is locked.
+     */
+    public synchronized void sessionClosed() {
+        cancel();
+    }
+
+    private void cancel() {
+        if (pending != null) pending.cancel(false);
+        pending = null;
+        openTime = -1;
+    }
+
+    private void expire(long openTime, long bound) {
+        synchronized (this) {
+            // The session may have closed while this was waiting to run
+            if (this.openTime != openTime) return;
+            pending = null;
+            this.openTime = -1;
+        }
+
+        log().info("Session open since {} has passed its expected length.", openTime);
+        spaceStatus.sendForgottenLockPing(openTime, bound);
+    }
+}
@@ -7,14 +7,17 @@ import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.Role;
 import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
 
+import java.util.HashMap;
+import java.util.Map;
+
 public class SpaceDiscord implements MMSContext {
 
     private final Config.TargetServer ts;
     private final JDA jda;
     private Guild guild;
-    private TextChannel lockChannel;
     private Role keyHolderRole;
-    private Role unlockPingRole;
+    private final Map<Integer, TextChannel> lockChannels = new HashMap<>();
+    private final Map<Integer, Role> unlockPingRoles = new HashMap<>();
 
     public SpaceDiscord(JDA jda) {
         this.ts = config().targetServer;
@@ -29,22 +32,26 @@ public class SpaceDiscord implements MMSContext {
             return false;
         }
 
-        this.lockChannel = guild.getTextChannelById(ts.lockChannelID);
-        if (lockChannel == null) {
-            log().warn("Lock channel with ID {} not found!",ts.lockChannelID);
-            return false;
-        }
-
         this.keyHolderRole = guild.getRoleById(ts.keyHolderRoleID);
         if (keyHolderRole == null) {
             log().warn("Key holder role could not be found with ID {}!",ts.keyHolderRoleID);
             return false;
         }
 
-        this.unlockPingRole = guild.getRoleById(ts.unlockPingRole);
-        if (unlockPingRole == null) {
-            log().warn("Unlock ping role could not be found with ID {}!",ts.unlockPingRole);
-            return false;
+        for (Config.TargetServer.Space space : ts.spaces) {
+            TextChannel lockChannel = guild.getTextChannelById(space.lockChannelID);
+            if (lockChannel == null) {
+                log().warn("Lock channel for {} with ID {} not found!",space.name,space.lockChannelID);
+                return false;
+            }
+            lockChannels.put(space.id, lockChannel);
+
+            Role unlockPingRole = guild.getRoleById(space.unlockPingRole);
+            if (unlockPingRole == null) {
+                log().warn("Unlock ping role for {} could not be found with ID {}!",space.name,space.unlockPingRole);
+                return false;
+            }
+            unlockPingRoles.put(space.id, unlockPingRole);
         }
 
         return true;
@@ -58,15 +65,33 @@ public class SpaceDiscord implements MMSContext {
         return guild;
     }
 
+    /**
+     * The unlock ping role of the primary space.
+     */
     public Role getUnlockPingRole() {
-        return unlockPingRole;
+        return getUnlockPingRole(ts.primarySpace().id);
+    }
+
+    public Role getUnlockPingRole(int spaceId) {
+        return unlockPingRoles.get(spaceId);
     }
 
     public Role getKeyHolderRole() {
         return keyHolderRole;
     }
 
+    /**
+     * The lock channel of the primary space.
+     */
     public TextChannel getLockChannel() {
-        return lockChannel;
+        return getLockChannel(ts.primarySpace().id);
+    }
+
+    public TextChannel getLockChannel(int spaceId) {
+        return lockChannels.get(spaceId);
+    }
+
+    public boolean isLockChannel(long channelId) {
+        return lockChannels.values().stream().anyMatch(channel -> channel.getIdLong() == channelId);
     }
 }
@@ -2,6 +2,7 @@ package edu.mines.mmsbot.bot.framework;
 
 import edu.mines.mmsbot.MMSContext;
 import edu.mines.mmsbot.bot.BotRuntime;
+import edu.mines.mmsbot.data.Config;
 import edu.mines.mmsbot.data.util.OpStatsUtils;
 import edu.mines.mmsbot.util.EmbedUtils;
 import edu.mines.mmsbot.util.TimeUtils;
@@ -18,11 +19,21 @@ import net.dv8tion.jda.api.requests.restaction.MessageCreateAction;
 import java.text.SimpleDateFormat;
 import java.time.Instant;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class SpaceStatus implements MMSContext {
 
     private final BotRuntime runtime;
-    private SpaceState state;
+    private final Config.TargetServer.Space space;
+    private final OpStatsUtils opStats;
+    private final ForgottenLockDetector lockDetector;
+    // Discord calls for this space go through here, so a slow one never holds up the sensor or another space
+    private final ExecutorService notifier;
+    private final List<StatusListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile SpaceState state;
     
     public enum SpaceState {
         OPEN(false, false),
@@ -59,23 +70,44 @@ public class SpaceStatus implements MMSContext {
         }
     }
 
-    public SpaceStatus(BotRuntime runtime) {
+    /**
+     * Told about every state change and claim in a space. Called on whichever thread made the change, so
+     * implementations should hand work off rather than do it.
+     */
+    public interface StatusListener {
+        void stateChanged(SpaceStatus space, SpaceState state, long timestamp, long userID);
+
+        void eventClaimed(SpaceStatus space, long eventID, long userID);
+    }
+
+    public SpaceStatus(BotRuntime runtime, Config.TargetServer.Space space) {
         this.runtime = runtime;
+        this.space = space;
+        this.opStats = stats().getOpStats(space.id);
+        this.lockDetector = new ForgottenLockDetector(this);
+        this.notifier = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, space.name + " Notifier");
+            thread.setDaemon(true);
+            return thread;
+        });
 
-        OpStatsUtils.Event lastEvent = stats().getOpStats().getLastEvent(0);
+        OpStatsUtils.Event lastEvent = opStats.getLastEvent(0);
 
         boolean locked = lastEvent == null
                 || lastEvent.eventType().equals(OpStatsUtils.EventType.LOCK);
 
         state = SpaceState.fromSensor(locked);
 
-        log().info("Initialized space state to {}", state);
+        log().info("Initialized {} state to {}", space.name, state);
 
         if (lastEvent == null) {
             updateStatus(System.currentTimeMillis());
         } else {
             updateStatus(lastEvent.timestamp());
         }
+
+        Long openSince = opStats.getOpenSince();
+        if (openSince != null) lockDetector.sessionOpened(openSince);
     }
 
     /**
@@ -89,7 +121,7 @@ public class SpaceStatus implements MMSContext {
 
         if (state.isOverridden()) {
             log().info("Override present ({}). Disengaging override.", state);
-            state = state.clearOverride();
+            setState(state.clearOverride(), timestamp, userID);
             return;
         }
 
@@ -98,14 +130,16 @@ public class SpaceStatus implements MMSContext {
             return;
         }
 
-        state = SpaceState.fromSensor(sensorShowsLocked);
+        setState(SpaceState.fromSensor(sensorShowsLocked), timestamp, userID);
         log().info("Updated stored state to {}, notifying members.", state);
 
         if (sensorShowsLocked) {
-            long eventID = stats().getOpStats().logEvent(new OpStatsUtils.Event(timestamp, OpStatsUtils.EventType.LOCK, userID));
+            long eventID = opStats.logEvent(new OpStatsUtils.Event(timestamp, OpStatsUtils.EventType.LOCK, userID));
+            lockDetector.sessionClosed();
             sendNotification(userID, false, timestamp,eventID,true);
         } else {
-            long eventID = stats().getOpStats().logEvent(new OpStatsUtils.Event(timestamp, OpStatsUtils.EventType.OPEN, userID));
+            long eventID = opStats.logEvent(new OpStatsUtils.Event(timestamp, OpStatsUtils.EventType.OPEN, userID));
+            lockDetector.sessionOpened(timestamp);
             sendNotification(userID, true, timestamp, eventID,false);
         }
     }
@@ -121,11 +155,12 @@ public class SpaceStatus implements MMSContext {
 
         if (state.isOverridden()) log().info("Space open was overridden ({}). Clearing override.", state);
 
-        state = SpaceState.OPEN;
+        long ts = System.currentTimeMillis();
+        setState(SpaceState.OPEN, ts, userID);
         log().info("Member {} has manually opened the space.", userID);
 
-        long ts = System.currentTimeMillis();
-        long eventID = stats().getOpStats().logEvent(new OpStatsUtils.Event(ts, OpStatsUtils.EventType.OPEN, userID));
+        long eventID = opStats.logEvent(new OpStatsUtils.Event(ts, OpStatsUtils.EventType.OPEN, userID));
+        lockDetector.sessionOpened(ts);
 
         sendNotification(userID, pingMembers, ts, eventID,false);
         return true;
@@ -143,11 +178,12 @@ public class SpaceStatus implements MMSContext {
         if (state.isOverridden()) log().info("Space lock was overridden ({}). Clearing override.", state);
 
 
-        state = SpaceState.LOCKED;
+        long ts = System.currentTimeMillis();
+        setState(SpaceState.LOCKED, ts, userID);
         log().info("Member {} has manually locked the space.", userID);
 
-        long ts = System.currentTimeMillis();
-        long eventID = stats().getOpStats().logEvent(new OpStatsUtils.Event(ts, OpStatsUtils.EventType.LOCK, userID));
+        long eventID = opStats.logEvent(new OpStatsUtils.Event(ts, OpStatsUtils.EventType.LOCK, userID));
+        lockDetector.sessionClosed();
 
         sendNotification(userID, pingMembers, ts, eventID,true);
         return true;
@@ -160,9 +196,10 @@ public class SpaceStatus implements MMSContext {
         if (state != SpaceState.OPEN) throw new IllegalStateException("Cannot enable open override while space is not open.");
 
         log().info("Enabling OPEN override requested by member {}.", userID);
-        state = SpaceState.OPEN_OVERRIDDEN;
+        long ts = System.currentTimeMillis();
+        setState(SpaceState.OPEN_OVERRIDDEN, ts, userID);
 
-        stats().getOpStats().logEvent(new OpStatsUtils.Event(System.currentTimeMillis(), OpStatsUtils.EventType.OVERRIDE_OPEN, userID));
+        opStats.logEvent(new OpStatsUtils.Event(ts, OpStatsUtils.EventType.OVERRIDE_OPEN, userID));
         return true;
     }
 
@@ -173,9 +210,10 @@ public class SpaceStatus implements MMSContext {
         if (state != SpaceState.LOCKED) throw new IllegalStateException("Cannot enable lock override while space is not locked.");
 
         log().info("Enabling LOCK override requested by member {}.", userID);
-        state = SpaceState.LOCKED_OVERRIDDEN;
+        long ts = System.currentTimeMillis();
+        setState(SpaceState.LOCKED_OVERRIDDEN, ts, userID);
 
-        stats().getOpStats().logEvent(new OpStatsUtils.Event(System.currentTimeMillis(), OpStatsUtils.EventType.OVERRIDE_LOCK, userID));
+        opStats.logEvent(new OpStatsUtils.Event(ts, OpStatsUtils.EventType.OVERRIDE_LOCK, userID));
         return true;
     }
 
@@ -190,36 +228,92 @@ public class SpaceStatus implements MMSContext {
 
         log().info("Manually clearing override. Stored State: {} Sensor State: {}", state, sensorLocked);
 
-        state = SpaceState.fromSensor(sensorLocked);
+        long ts = System.currentTimeMillis();
+        setState(SpaceState.fromSensor(sensorLocked), ts, userID);
 
-        stats().getOpStats().logEvent(new OpStatsUtils.Event(
-                System.currentTimeMillis(),
+        opStats.logEvent(new OpStatsUtils.Event(
+                ts,
                 OpStatsUtils.EventType.CLEAR_OVERRIDE,
                 userID));
         return true;
     }
 
+    private void setState(SpaceState newState, long timestamp, long userID) {
+        if (state == newState) return;
+        state = newState;
+        for (StatusListener listener : listeners) listener.stateChanged(this, newState, timestamp, userID);
+    }
+
+    /**
+     * Lets listeners know a member claimed one of this space's events.
+     */
+    public void eventClaimed(long eventID, long userID) {
+        for (StatusListener listener : listeners) listener.eventClaimed(this, eventID, userID);
+    }
+
+    public void addListener(StatusListener listener) {
+        listeners.add(listener);
+    }
+
     /**
      * Internal lock/open notification for discord.
      * @param isLock true = lock, false = open
      */
     private void sendNotification(long userID, boolean ping, long timestamp, long eventID, boolean isLock) {
-        TextChannel channel = runtime().getServer().getLockChannel();
+        // Built now so the embed describes this event even if another is logged before the message goes out
+        MessageEmbed embed = isLock
+                ? generateLockEmbed(userID, timestamp)
+                : generateOpenEmbed(userID, timestamp);
+
+        notifier.execute(() -> {
+            try {
+                TextChannel channel = runtime().getServer().getLockChannel(space.id);
+
+                MessageCreateAction action = channel
+                        .sendMessageEmbeds(embed)
+                        .setContent(ping ? runtime().getServer().getUnlockPingRole(space.id).getAsMention() : "");
+
+                if (userID == -1) action.addComponents(ActionRow.of(createClaimButton(eventID, isLock)));
+
+                // Waiting for each message keeps this space's notifications in order without blocking the others
+                Message sentMessage = action.complete();
+                cleanClaimButtons(channel, sentMessage);
+                // The cat leaderboard only covers the primary space's channel
+                if (isPrimary()) stats().getCatStats().storeMessage(sentMessage.getIdLong());
+            } catch (RuntimeException ex) {
+                log().error("Error sending {} notification for {}: {}", isLock ? "lock" : "open", space.name, ex.getMessage(), ex);
+            }
+        });
 
-        MessageCreateAction action = channel
-                .sendMessageEmbeds(isLock
-                        ? generateLockEmbed(userID, timestamp)
-                        : generateOpenEmbed(userID, timestamp))
-                .setContent(ping ? runtime().getServer().getUnlockPingRole().getAsMention() : "");
+        updateStatus(timestamp);
+    }
 
-        if (userID == -1) action.addComponents(ActionRow.of(createClaimButton(eventID, isLock)));
+    /**
+     * Asks key holders to check on the space when it's been open much longer than usual, in case the door was
+     * left unlocked or the sensor was bypassed.
+     * @param openTime when the session started
+     * @param expected how long sessions starting around then usually stay under
+     */
+    public void sendForgottenLockPing(long openTime, long expected) {
+        if (state.isLocked()) return;
+
+        MessageEmbed embed = EmbedUtils.defaultEmbed()
+                .setDescription("⏰ The " + space.name + " has been open for " + TimeUtils.formatDuration(System.currentTimeMillis() - openTime, false)
+                        + ", which is a lot longer than usual for a session starting then (most are under " + TimeUtils.formatDuration(expected, false) + ")."
+                        + " If nobody is there, could a key holder make sure it's locked?")
+                .setTimestamp(Instant.ofEpochMilli(openTime))
+                .build();
 
-        action.queue(sentMessage -> {
-            cleanClaimButtons(channel, sentMessage);
-            stats().getCatStats().storeMessage(sentMessage.getIdLong());
+        notifier.execute(() -> {
+            try {
+                runtime().getServer().getLockChannel(space.id)
+                        .sendMessageEmbeds(embed)
+                        .setContent(runtime().getServer().getKeyHolderRole().getAsMention())
+                        .complete();
+            } catch (RuntimeException ex) {
+                log().error("Error sending forgotten lock ping for {}: {}", space.name, ex.getMessage(), ex);
+            }
         });
-
-        updateStatus(timestamp);
     }
 
     /**
@@ -246,10 +340,10 @@ public class SpaceStatus implements MMSContext {
      */
     public MessageEmbed generateLockEmbed(long userID, long timestamp) {
         String description = (userID == -1
-                ? "🔒 The Blaster Design Factory is no longer open."
-                : "🔒 The Blaster Design Factory has been locked by " + runtime().getJda().getUserById(userID).getAsMention() + ".");
+                ? "🔒 The " + space.name + " is no longer open."
+                : "🔒 The " + space.name + " has been locked by " + runtime().getJda().getUserById(userID).getAsMention() + ".");
 
-        OpStatsUtils.Event lastEvent = stats().getOpStats().getLastEvent(1);
+        OpStatsUtils.Event lastEvent = opStats.getLastEvent(1);
 
         log().info("Generating a lock embed for an event that occurred on {}",TimeUtils.formatDate(timestamp));
 
@@ -261,7 +355,7 @@ public class SpaceStatus implements MMSContext {
                 .setDescription(description + " It was open for " + duration)
                 .addField(
                         "Want to receive status updates?",
-                        "Run the command </doorbell-role:1448522122120134720> to get pinged whenever the Blaster Design Factory is opened.",
+                        "Run the command </doorbell-role:1448522122120134720> to get pinged whenever the " + space.name + " is opened.",
                         false
                 )
                 .setTimestamp(Instant.ofEpochMilli(timestamp))
@@ -273,10 +367,10 @@ public class SpaceStatus implements MMSContext {
      */
     public MessageEmbed generateOpenEmbed(long userID, long timestamp) {
         String description = (userID == -1
-                ? "🔓 The Blaster Design Factory is now opened."
-                : "🔓 The Blaster Design Factory has been opened by " + runtime().getJda().getUserById(userID).getAsMention() + ".");
+                ? "🔓 The " + space.name + " is now opened."
+                : "🔓 The " + space.name + " has been opened by " + runtime().getJda().getUserById(userID).getAsMention() + ".");
 
-        OpStatsUtils.Event lastEvent = stats().getOpStats().getLastEvent(1);
+        OpStatsUtils.Event lastEvent = opStats.getLastEvent(1);
 
         log().info("Generating an open embed for an event that occurred on {}",TimeUtils.formatDate(timestamp));
 
@@ -288,7 +382,7 @@ public class SpaceStatus implements MMSContext {
                 .setDescription(description + " It was closed for " + duration)
                 .addField(
                         "Want to receive status updates?",
-                        "Run the command </doorbell-role:1448522122120134720> to get pinged whenever the Blaster Design Factory is opened.",
+                        "Run the command </doorbell-role:1448522122120134720> to get pinged whenever the " + space.name + " is opened.",
                         false
                 )
                 .setTimestamp(Instant.ofEpochMilli(timestamp))
@@ -299,6 +393,8 @@ public class SpaceStatus implements MMSContext {
      * Internal method for updating bot profile status
      */
     private void updateStatus(long updateTime) {
+        // There's only one presence, so it follows the primary space
+        if (!isPrimary()) return;
         log().info("Updating bot status...");
 
         Date date = new Date(updateTime);
@@ -306,8 +402,8 @@ public class SpaceStatus implements MMSContext {
         String formattedTime = sdf.format(date);
 
         String statusText = state.isLocked()
-                ? "🔒 The Blaster Design Factory is locked"
-                : "🔓 The Blaster Design Factory is open";
+                ? "🔒 The " + space.name + " is locked"
+                : "🔓 The " + space.name + " is open";
 
         runtime().getJda().getPresence().setActivity(Activity.playing(statusText).withState("Last update: " + formattedTime));
     }
@@ -327,4 +423,16 @@ public class SpaceStatus implements MMSContext {
         return state;
     }
 
+    public Config.TargetServer.Space getSpace() {
+        return space;
+    }
+
+    public OpStatsUtils getOpStats() {
+        return opStats;
+    }
+
+    public boolean isPrimary() {
+        return space.id == config().targetServer.primarySpace().id;
+    }
+
 }
\ No newline at end of file
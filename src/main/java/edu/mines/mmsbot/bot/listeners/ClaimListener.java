@@ -1,6 +1,8 @@
 package edu.mines.mmsbot.bot.listeners;
 
 import edu.mines.mmsbot.MMSContext;
+import edu.mines.mmsbot.bot.framework.SpaceStatus;
+import edu.mines.mmsbot.data.util.OpStatsUtils;
 import edu.mines.mmsbot.util.EmbedUtils;
 import net.dv8tion.jda.api.components.buttons.Button;
 import net.dv8tion.jda.api.entities.*;
@@ -36,8 +38,22 @@ public class ClaimListener extends ListenerAdapter implements MMSContext {
         boolean lock = buttonID.startsWith("lock-event_");
         String eventString = buttonID.replaceAll("(lock-event_|open-event_)","");
         long eventID = Long.parseLong(eventString);
+        OpStatsUtils opStats = stats().getOpStatsForEvent(eventID);
+        if (opStats == null) {
+            log().warn("Claim button pressed for event {}, which isn't in any configured space.", eventID);
+            message.editMessageComponents().queue();
+            event.replyEmbeds(
+                    EmbedUtils.defaultEmbed()
+                            .setTitle("Unable to claim event")
+                            .setDescription("This event belongs to a space that is no longer configured.")
+                            .build()
+            ).setEphemeral(true).queue();
+            return;
+        }
+        SpaceStatus space = spaceStatus(opStats.getSpaceId());
+
         try {
-            if (!stats().getOpStats().claimEvent(eventID,user.getIdLong())) {
+            if (!opStats.claimEvent(eventID,user.getIdLong())) {
                 event.replyEmbeds(
                         EmbedUtils.defaultEmbed()
                                 .setTitle("Event already claimed")
@@ -45,7 +61,7 @@ public class ClaimListener extends ListenerAdapter implements MMSContext {
                                 .build()
                 ).setEphemeral(true).queue();
 
-                updateMessage(message,lock,stats().getOpStats().getEvent(eventID).userID());
+                updateMessage(space,message,lock,opStats.getEvent(eventID).userID());
 
                 return;
             }
@@ -65,10 +81,11 @@ public class ClaimListener extends ListenerAdapter implements MMSContext {
                         .setTitle("Claiming Event...")
                         .build()
         ).setEphemeral(true).queue();
-        updateMessage(message,lock,user.getIdLong());
+        space.eventClaimed(eventID, user.getIdLong());
+        updateMessage(space,message,lock,user.getIdLong());
     }
 
-    private void updateMessage(Message message, boolean lock, long claimerId) {
+    private void updateMessage(SpaceStatus space, Message message, boolean lock, long claimerId) {
         long stamp = -1;
 
         for (MessageEmbed embed : message.getEmbeds()) {
@@ -81,8 +98,8 @@ public class ClaimListener extends ListenerAdapter implements MMSContext {
                 ? Instant.from(message.getTimeCreated()).toEpochMilli()
                 : stamp;
         MessageEmbed embed = lock
-                ? spaceStatus().generateLockEmbed(claimerId,stampUsed)
-                : spaceStatus().generateOpenEmbed(claimerId,stampUsed);
+                ? space.generateLockEmbed(claimerId,stampUsed)
+                : space.generateOpenEmbed(claimerId,stampUsed);
 
         message.editMessageEmbeds(
                 embed
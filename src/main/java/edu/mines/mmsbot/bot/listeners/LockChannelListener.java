@@ -14,7 +14,7 @@ public class LockChannelListener extends ListenerAdapter implements MMSContext {
 
     @Override // If more than 10 messages are in front of a button, it will not be cleaned up properly. It's best to just not allow messaging in the channel for anyone.
     public void onMessageReceived(MessageReceivedEvent event) {
-        if (event.getChannel().getIdLong() != runtime().getServer().getLockChannel().getIdLong()) return;
+        if (!runtime().getServer().isLockChannel(event.getChannel().getIdLong())) return;
 
         User author = event.getAuthor();
         long authorId = author.getIdLong();
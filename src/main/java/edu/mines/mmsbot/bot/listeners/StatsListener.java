@@ -3,9 +3,9 @@ package edu.mines.mmsbot.bot.listeners;
 import edu.mines.mmsbot.MMSContext;
 import edu.mines.mmsbot.bot.commands.StatsCommand;
 import edu.mines.mmsbot.data.util.StatsReport.StatType;
-import net.dv8tion.jda.api.entities.MessageEmbed;
 import net.dv8tion.jda.api.events.interaction.component.StringSelectInteractionEvent;
 import net.dv8tion.jda.api.hooks.ListenerAdapter;
+import net.dv8tion.jda.api.utils.messages.MessageEditData;
 import org.jetbrains.annotations.NotNull;
 
 import java.time.Instant;
@@ -14,18 +14,22 @@ public class StatsListener extends ListenerAdapter implements MMSContext {
 
     @Override
     public void onStringSelectInteraction(@NotNull StringSelectInteractionEvent event) {
-        if (!event.getComponentId().equals("stat-selector")) return;
+        String componentId = event.getComponentId();
+        // Menus sent before reports were per space have no space, and show the primary one
+        if (!componentId.startsWith("stat-selector")) return;
+        int spaceId = componentId.startsWith(StatsCommand.STAT_SELECTOR)
+                ? Integer.parseInt(componentId.substring(StatsCommand.STAT_SELECTOR.length()))
+                : config().targetServer.primarySpace().id;
 
         event.deferEdit().queue();
 
         long startTime = Instant.from(event.getTimeCreated()).toEpochMilli();
         StatType selected = StatType.valueOf(event.getSelectedOptions().getFirst().getValue());
 
-        MessageEmbed embed = runtime()
+        MessageEditData message = runtime()
                 .getCommand(StatsCommand.class)
-                .getCachedEmbed(selected, startTime)
-                .build();
+                .getCachedMessage(spaceId, selected, startTime);
 
-        event.getHook().editOriginalEmbeds(embed).queue();
+        event.getHook().editOriginal(message).queue();
     }
 }
\ No newline at end of file
@@ -0,0 +1,110 @@
+package edu.mines.mmsbot.data;
+
+import edu.mines.mmsbot.MMSContext;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Fills in data for new columns and tables in the background after startup, a batch at a time.
+ * <p>
+ * Each batch is its own write, committed together with the backfill's cursor in the backfills table, so a restart
+ * picks up where the last one stopped and sensor events only ever wait behind a single batch.
+ */
+public class BackfillRunner implements MMSContext {
+
+    private static final long PAUSE_MS = 50;
+
+    /**
+     * One step of a backfill.
+     */
+    @FunctionalInterface
+    public interface Backfill {
+        /**
+         * Processes the next batch.
+         * @param cursor where the last batch stopped, 0 the first time
+         * @return where to continue from, or -1 once there's nothing left
+         */
+        long run(Connection conn, long cursor) throws SQLException;
+    }
+
+    private final Database db;
+    private final Map<String, Backfill> backfills = new LinkedHashMap<>();
+    private final Thread thread = new Thread(this::runAll, "Backfill Runner");
+
+    public BackfillRunner(Database db) {
+        this.db = db;
+        thread.setDaemon(true);
+    }
+
+    /**
+     * Adds a backfill. The name is what its progress is saved under, so it shouldn't change once shipped.
+     */
+    public void add(String name, Backfill backfill) {
+        backfills.put(name, backfill);
+    }
+
+    public void start() {
+        thread.start();
+    }
+
+    public void stop() {
+        thread.interrupt();
+    }
+
+    private void runAll() {
+        for (Map.Entry<String, Backfill> entry : backfills.entrySet()) {
+            try {
+                run(entry.getKey(), entry.getValue());
+            } catch (InterruptedException ex) {
+                return;
+            } catch (SQLException | RuntimeException ex) {
+                log().error("Backfill {} failed, it will resume on the next start: {}", entry.getKey(), ex.getMessage(), ex);
+            }
+        }
+    }
+
+    private void run(String name, Backfill backfill) throws SQLException, InterruptedException {
+        long cursor = db.read(conn -> {
+            try (PreparedStatement stmt = conn.prepareStatement("SELECT cursor, done FROM backfills WHERE name = ?")) {
+                stmt.setString(1, name);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (!rs.next()) return 0L;
+                    return rs.getInt(2) == 1 ? -1L : rs.getLong(1);
+                }
+            }
+        });
+        if (cursor == -1) return;
+
+        long start = System.currentTimeMillis();
+        int batches = 0;
+        log().info("Running backfill {} from {}...", name, cursor);
+
+        while (cursor != -1) {
+            long from = cursor;
+            cursor = db.write(conn -> {
+                long next = backfill.run(conn, from);
+                try (PreparedStatement stmt = conn.prepareStatement("""
+                    INSERT INTO backfills (name, cursor, done) VALUES (?, ?, ?)
+                    ON CONFLICT(name) DO UPDATE SET cursor = excluded.cursor, done = excluded.done
+                """)) {
+                    stmt.setString(1, name);
+                    stmt.setLong(2, next == -1 ? from : next);
+                    stmt.setInt(3, next == -1 ? 1 : 0);
+                    stmt.executeUpdate();
+                }
+                return next;
+            });
+            batches++;
+
+            // Leaves gaps for the writer to get to sensor events and commands
+            Thread.sleep(PAUSE_MS);
+        }
+
+        log().info("Finished backfill {} in {} batches over {}ms.", name, batches, System.currentTimeMillis() - start);
+    }
+}
@@ -14,7 +14,8 @@ public class Config implements JsonSerializable<Config> {
 
     /*
     When editing the config, make sure to use public *non-static* variables for them to work properly.
-    That includes inner-classes. They must be public and non-static.
+    Nested classes must be public and static, so Gson can construct them and run their field initializers.
+    Non-static ones are allocated without a constructor, leaving any key missing from the file as 0 or null.
     To exclude a variable, make it static or transient.
      */
 
@@ -24,10 +25,48 @@ public class Config implements JsonSerializable<Config> {
     public int debounceSeconds = 60;
     public List<Long> developerIDs = new ArrayList<>(List.of(643598233913786387L, 320991166591926272L)); // Maybe I'll find a use for this some day, but it's just the webmasters' accounts right now.
     public boolean virtual = false;
-    public class TargetServer {
+    public StatusApi statusApi = new StatusApi();
+
+    public static class StatusApi {
+        public boolean enabled = false;
+        public int port = 8080;
+    }
+
+    public static class TargetServer {
         public long serverID = 0L;
-        public long lockChannelID = 0L;
         public long keyHolderRoleID = 0L;
+        public List<Space> spaces = new ArrayList<>();
+
+        // Configs from before spaces existed only had these. They're moved into the first space when the config loads.
+        public long lockChannelID = 0L;
         public long unlockPingRole = 0L;
+
+        public static class Space {
+            public int id = 0; // Stored on every event, so don't change it once the space has history
+            public String name = "Blaster Design Factory";
+            public int gpioPin = 4;
+            public long lockChannelID = 0L;
+            public long unlockPingRole = 0L;
+        }
+
+        /**
+         * Turns the old single-space fields into the first space if no spaces are configured yet.
+         */
+        public void migrateSpaces() {
+            if (spaces == null) spaces = new ArrayList<>();
+            if (!spaces.isEmpty()) return;
+
+            Space space = new Space();
+            space.lockChannelID = lockChannelID;
+            space.unlockPingRole = unlockPingRole;
+            spaces.add(space);
+        }
+
+        /**
+         * The first configured space, which commands and statistics use when no space is picked.
+         */
+        public Space primarySpace() {
+            return spaces.getFirst();
+        }
     }
 }
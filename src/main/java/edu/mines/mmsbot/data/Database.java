@@ -0,0 +1,278 @@
+package edu.mines.mmsbot.data;
+
+import edu.mines.mmsbot.MMSContext;
+import org.sqlite.SQLiteConfig;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Owns every connection to the statistics database.
+ * <p>
+ * Writes are queued to a single writer thread, which is the only user of the one writable connection. Whatever has
+ * queued up while it was busy is run as one transaction and committed together, so a burst of writes costs one
+ * WAL sync instead of one each. Every write gets its own savepoint, so one that fails is rolled back without
+ * taking the rest of its group with it.
+ * <p>
+ * Reads borrow one of a few read-only connections. With WAL they see the last commit and never wait on the writer,
+ * so a slow export or statistics query can't hold up a sensor event.
+ * <p>
+ * Statements prepared through {@link #prepare} are kept for the life of their connection, so SQL that runs on every
+ * event is only compiled once.
+ */
+public class Database implements MMSContext {
+
+    private static final int MAX_GROUP = 64;
+    private static final long SLOW_STATEMENT_NANOS = 250_000_000L;
+
+    /**
+     * Database work, given the connection to run it on.
+     */
+    @FunctionalInterface
+    public interface Work<T> {
+        T run(Connection conn) throws SQLException;
+    }
+
+    private record Task<T>(Work<T> work, CompletableFuture<T> result) {}
+
+    private static final Task<Void> STOP = new Task<>(conn -> null, new CompletableFuture<>());
+
+    private final Connection writeConn;
+    private final BlockingQueue<Connection> readConns;
+    private final List<Connection> allReadConns = new ArrayList<>();
+    private final BlockingQueue<Task<?>> queue = new LinkedBlockingQueue<>();
+    private final Thread writer = new Thread(this::runWriter, "Database Writer");
+    // Filled in the constructor and never changed after, each inner map is only used by whoever holds its connection
+    private final Map<Connection, Map<String, PreparedStatement>> statements = new IdentityHashMap<>();
+    private final StatementTimings timings = new StatementTimings();
+    // Only touched by the writer thread
+    private List<Runnable> taskCommitActions;
+    private List<Runnable> taskRollbackActions;
+
+    public Database(String url, int readers) throws SQLException {
+        writeConn = DriverManager.getConnection(url);
+        try (Statement stmt = writeConn.createStatement()) {
+            // WAL should provide data integrity if power is lost to the Pi, and lets the readers run alongside the writer
+            stmt.execute("PRAGMA journal_mode = WAL;");
+            stmt.execute("PRAGMA synchronous = NORMAL;");
+            stmt.execute("PRAGMA wal_autocheckpoint = 1000;");
+        }
+        // The writer is always inside a transaction, each group of writes ends it with a commit
+        writeConn.setAutoCommit(false);
+        statements.put(writeConn, new HashMap<>());
+
+        SQLiteConfig readConfig = new SQLiteConfig();
+        readConfig.setReadOnly(true);
+        readConns = new LinkedBlockingQueue<>();
+        for (int i = 0; i < readers; i++) {
+            Connection conn = DriverManager.getConnection(url, readConfig.toProperties());
+            allReadConns.add(conn);
+            statements.put(conn, new HashMap<>());
+            readConns.add(conn);
+        }
+
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Queues a write and returns without waiting for it.
+     * @return completes with the work's result once it's committed, or exceptionally if it failed
+     */
+    public <T> CompletableFuture<T> submit(Work<T> work) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        queue.add(new Task<>(work, result));
+        return result;
+    }
+
+    /**
+     * Queues a write and waits for it to be committed. Called from the writer thread, for example from inside
+     * other work, it runs straight away as part of the current transaction.
+     */
+    public <T> T write(Work<T> work) throws SQLException {
+        if (Thread.currentThread() == writer) return work.run(writeConn);
+
+        try {
+            return submit(work).join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof SQLException sql) throw sql;
+            if (ex.getCause() instanceof RuntimeException runtime) throw runtime;
+            throw ex;
+        }
+    }
+
+    /**
+     * Runs a query on a read-only connection, waiting for one to be free if they're all in use.
+     */
+    public <T> T read(Work<T> work) throws SQLException {
+        Connection conn;
+        try {
+            conn = readConns.take();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted waiting for a read connection.", ex);
+        }
+
+        try {
+            return work.run(conn);
+        } finally {
+            readConns.add(conn);
+        }
+    }
+
+    /**
+     * A statement for some SQL on a connection, prepared the first time it's asked for and reused after that.
+     * It belongs to the connection, so it must not be closed, though its result sets still should be.
+     * @param conn the connection the current work was given
+     */
+    public PreparedStatement prepare(Connection conn, String sql) throws SQLException {
+        Map<String, PreparedStatement> cache = statements.get(conn);
+        if (cache == null) throw new IllegalArgumentException("Connection isn't owned by this database.");
+
+        PreparedStatement stmt = cache.get(sql);
+        if (stmt == null) {
+            stmt = conn.prepareStatement(sql);
+            cache.put(sql, stmt);
+        }
+        return stmt;
+    }
+
+    /**
+     * Records how long a statement took, logging it if it was slow.
+     * @param startNanos {@link System#nanoTime()} from just before it ran
+     */
+    public void recordTiming(String name, long startNanos) {
+        long elapsed = timings.record(name, startNanos);
+        if (elapsed > SLOW_STATEMENT_NANOS) log().warn("Slow statement {} took {}ms.", name, elapsed / 1_000_000);
+    }
+
+    public StatementTimings getTimings() {
+        return timings;
+    }
+
+    /**
+     * Runs an action on the writer thread once the write calling this has been committed, such as bumping a data
+     * version so nothing reads the old rows under the new version. Dropped if the write is rolled back.
+     */
+    public void afterCommit(Runnable action) {
+        if (Thread.currentThread() != writer) throw new IllegalStateException("afterCommit can only be called from database work.");
+        taskCommitActions.add(action);
+    }
+
+    /**
+     * Runs an action on the writer thread if the write calling this is rolled back, either on its own or because
+     * its group failed to commit, such as undoing in-memory state it advanced for later writes to see. Actions run
+     * newest first.
+     */
+    public void onRollback(Runnable action) {
+        if (Thread.currentThread() != writer) throw new IllegalStateException("onRollback can only be called from database work.");
+        taskRollbackActions.add(action);
+    }
+
+    /**
+     * Finishes the writes already queued, then closes every connection.
+     */
+    public void close() throws SQLException {
+        queue.add(STOP);
+        try {
+            writer.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+
+        for (Map<String, PreparedStatement> cache : statements.values()) {
+            for (PreparedStatement stmt : cache.values()) stmt.close();
+        }
+        for (Connection conn : allReadConns) conn.close();
+        writeConn.close();
+    }
+
+    private void runWriter() {
+        List<Task<?>> group = new ArrayList<>();
+        boolean stopping = false;
+
+        while (!stopping) {
+            try {
+                group.add(queue.take());
+            } catch (InterruptedException ex) {
+                break;
+            }
+            queue.drainTo(group, MAX_GROUP - 1);
+
+            stopping = group.remove(STOP);
+            if (!group.isEmpty()) runGroup(group);
+            group.clear();
+        }
+    }
+
+    private void runGroup(List<Task<?>> group) {
+        List<Runnable> commitActions = new ArrayList<>();
+        List<Runnable> rollbackActions = new ArrayList<>();
+        List<Runnable> completions = new ArrayList<>();
+        for (Task<?> task : group) run(task, commitActions, rollbackActions, completions);
+
+        if (completions.isEmpty()) return;
+
+        try {
+            writeConn.commit();
+        } catch (SQLException ex) {
+            log().error("Error committing {} writes: {}", completions.size(), ex.getMessage(), ex);
+            try {
+                writeConn.rollback();
+            } catch (SQLException rollbackEx) {
+                log().error("Error rolling back transaction: {}", rollbackEx.getMessage(), rollbackEx);
+            }
+            runActions(rollbackActions.reversed());
+            for (Task<?> task : group) task.result().completeExceptionally(ex);
+            return;
+        }
+
+        runActions(commitActions);
+        completions.forEach(Runnable::run);
+    }
+
+    private void runActions(List<Runnable> actions) {
+        for (Runnable action : actions) {
+            try {
+                action.run();
+            } catch (RuntimeException ex) {
+                log().error("Error running commit or rollback action: {}", ex.getMessage(), ex);
+            }
+        }
+    }
+
+    private <T> void run(Task<T> task, List<Runnable> commitActions, List<Runnable> rollbackActions, List<Runnable> completions) {
+        taskCommitActions = new ArrayList<>();
+        taskRollbackActions = new ArrayList<>();
+        Savepoint savepoint = null;
+
+        try {
+            savepoint = writeConn.setSavepoint();
+            T value = task.work().run(writeConn);
+            writeConn.releaseSavepoint(savepoint);
+
+            commitActions.addAll(taskCommitActions);
+            rollbackActions.addAll(taskRollbackActions);
+            completions.add(() -> task.result().complete(value));
+        } catch (SQLException | RuntimeException ex) {
+            if (savepoint != null) {
+                try {
+                    writeConn.rollback(savepoint);
+                    writeConn.releaseSavepoint(savepoint);
+                } catch (SQLException rollbackEx) {
+                    log().error("Error rolling back to savepoint: {}", rollbackEx.getMessage(), rollbackEx);
+                }
+            }
+            runActions(taskRollbackActions.reversed());
+            task.result().completeExceptionally(ex);
+        }
+    }
+}
@@ -1,68 +1,112 @@
 package edu.mines.mmsbot.data;
 
 import edu.mines.mmsbot.MMSContext;
+import edu.mines.mmsbot.data.dao.EventDao;
 import edu.mines.mmsbot.data.util.CatStatsUtils;
+import edu.mines.mmsbot.data.util.DataVersion;
 import edu.mines.mmsbot.data.util.OpStatsUtils;
+import edu.mines.mmsbot.data.util.OpStatsUtils.EventType;
+import edu.mines.mmsbot.util.TimeUtils;
 
 import java.io.File;
 import java.sql.*;
+import java.util.*;
 
 public class OperationStatistics implements MMSContext {
 
-    private Connection conn;
-    private OpStatsUtils opStats;
+    // Enough for the statistics refresher, an export and a couple of commands at once
+    private static final int READ_CONNECTIONS = 3;
+    private static final int BACKFILL_BATCH = 500;
+
+    private Database db;
+    private BackfillRunner backfills;
+    private final DataVersion dataVersion = new DataVersion();
+    private final Map<Integer, OpStatsUtils> opStats = new LinkedHashMap<>();
     private CatStatsUtils catStats;
 
     public void startDatabase(String statisticsFile) throws Exception {
+        startDatabase(statisticsFile, config().targetServer.spaces.stream().map(space -> space.id).toList());
+    }
+
+    /**
+     * Opens the database and loads the statistics of each space, in order. The first space is the primary one.
+     */
+    void startDatabase(String statisticsFile, List<Integer> spaceIds) throws Exception {
         File dbFile = new File(statisticsFile);
         File parentDir = dbFile.getParentFile();
         if (parentDir != null && !parentDir.exists()) parentDir.mkdirs();
 
         // SQLite creates the file if it doesn't exist
         String url = "jdbc:sqlite:" + statisticsFile;
-        conn = DriverManager.getConnection(url);
-        this.opStats = new OpStatsUtils(conn);
-        this.catStats = new CatStatsUtils(conn);
+        db = new Database(url, READ_CONNECTIONS);
+        for (int spaceId : spaceIds) {
+            opStats.put(spaceId, new OpStatsUtils(db, dataVersion, spaceId));
+        }
+        this.catStats = new CatStatsUtils(db, dataVersion);
+
+        new SchemaMigrations().migrate(db);
+
+        for (OpStatsUtils spaceStats : opStats.values()) spaceStats.loadStatistics();
 
-        createTables();
-        enableWAL();
+        backfills = new BackfillRunner(db);
+        backfills.add("events.local_buckets", this::backfillLocalBuckets);
+        backfills.add("events.type_codes", this::backfillTypeCodes);
+        for (OpStatsUtils spaceStats : opStats.values()) spaceStats.scheduleRebuilds(backfills);
+        backfills.start();
     }
 
-    private void enableWAL() throws SQLException {
-        try (Statement stmt = conn.createStatement()) {
-            // WAL should provide data integrity if power is lost to the Pi
-            stmt.execute("PRAGMA journal_mode = WAL;");
-            stmt.execute("PRAGMA synchronous = NORMAL;");
-            stmt.execute("PRAGMA wal_autocheckpoint = 1000;");
+    /**
+     * Fills in the local time buckets of events logged before the columns existed. Until it reaches an event,
+     * the event store works the buckets out as it loads.
+     */
+    private long backfillLocalBuckets(Connection conn, long afterId) throws SQLException {
+        EventDao eventDao = new EventDao(db);
+        long lastId = -1;
+
+        try (PreparedStatement select = conn.prepareStatement("SELECT id, timestamp FROM events WHERE id > ? AND local_day IS NULL ORDER BY id LIMIT ?")) {
+            select.setLong(1, afterId);
+            select.setInt(2, BACKFILL_BATCH);
+            try (ResultSet rs = select.executeQuery()) {
+                while (rs.next()) {
+                    lastId = rs.getLong(1);
+                    eventDao.addBackfill(conn, lastId, TimeUtils.LocalBucket.of(rs.getLong(2)));
+                }
+            }
         }
+        eventDao.flushBackfill(conn);
+
+        return lastId;
     }
 
-    private void createTables() throws SQLException {
-        try (Statement stmt = conn.createStatement()) {
-            stmt.execute("""
-            CREATE TABLE IF NOT EXISTS events (
-                id INTEGER PRIMARY KEY AUTOINCREMENT,
-                timestamp INTEGER NOT NULL,
-                event_type TEXT NOT NULL,
-                user_id INTEGER NOT NULL
-                )
-            """);
-
-            stmt.execute("CREATE INDEX IF NOT EXISTS idx_events_timestamp ON events(timestamp)");
-
-            stmt.execute("""
-            CREATE TABLE IF NOT EXISTS message_reacts (
-                message_id INTEGER PRIMARY KEY,
-                reacted_users TEXT NOT NULL
-            )
-            """);
+    /**
+     * Replaces the type names of events logged before types were stored as codes. Until it reaches an event, the
+     * event store reads the name instead.
+     */
+    private long backfillTypeCodes(Connection conn, long afterId) throws SQLException {
+        EventDao eventDao = new EventDao(db);
+        long lastId = -1;
+
+        // Codes are digits, so only names start with a letter
+        try (PreparedStatement select = conn.prepareStatement("SELECT id, event_type FROM events WHERE id > ? AND event_type GLOB '[A-Z]*' ORDER BY id LIMIT ?")) {
+            select.setLong(1, afterId);
+            select.setInt(2, BACKFILL_BATCH);
+            try (ResultSet rs = select.executeQuery()) {
+                while (rs.next()) {
+                    lastId = rs.getLong(1);
+                    eventDao.addTypeBackfill(conn, lastId, EventType.valueOf(rs.getString(2)));
+                }
+            }
         }
+        eventDao.flushTypeBackfill(conn);
+
+        return lastId;
     }
 
     public void closeDatabase() {
-        if (conn != null) {
+        if (backfills != null) backfills.stop();
+        if (db != null) {
             try {
-                conn.close();
+                db.close();
                 log().info("Database closed successfully");
             } catch (SQLException e) {
                 log().error("Error closing database: {}", e.getMessage(),e);
@@ -70,15 +114,40 @@ public class OperationStatistics implements MMSContext {
         }
     }
 
-    public Connection getConn() {
-        return conn;
+    public Database getDatabase() {
+        return db;
     }
 
     public CatStatsUtils getCatStats() {
         return catStats;
     }
 
+    /**
+     * Statistics for the primary space.
+     */
     public OpStatsUtils getOpStats() {
-        return opStats;
+        return getOpStats(config().targetServer.primarySpace().id);
+    }
+
+    public OpStatsUtils getOpStats(int spaceId) {
+        return opStats.get(spaceId);
+    }
+
+    /**
+     * @return the statistics of the space an event was logged in, or null if no space has it
+     */
+    public OpStatsUtils getOpStatsForEvent(long eventId) {
+        for (OpStatsUtils spaceStats : opStats.values()) {
+            if (spaceStats.getEventStore().indexOf(eventId) >= 0) return spaceStats;
+        }
+        return null;
+    }
+
+    public Collection<OpStatsUtils> getAllOpStats() {
+        return opStats.values();
+    }
+
+    public DataVersion getDataVersion() {
+        return dataVersion;
     }
 }
\ No newline at end of file
@@ -0,0 +1,304 @@
+package edu.mines.mmsbot.data;
+
+import edu.mines.mmsbot.MMSContext;
+import edu.mines.mmsbot.data.util.OpStatsUtils.EventType;
+
+import java.sql.*;
+import java.util.*;
+
+/**
+ * Brings the statistics database up to the current schema. The version is kept in {@code PRAGMA user_version},
+ * and each migration above it runs in its own transaction along with the version bump, so a failed migration
+ * leaves the database at the last version that fully applied.
+ * <p>
+ * Migrations are only ever appended. Once one has shipped, changes go in a new one rather than an edit, since
+ * databases that already ran it won't run it again. Anything slow that can happen after startup, like filling in a
+ * new column, belongs in a {@link BackfillRunner} backfill instead.
+ */
+public class SchemaMigrations implements MMSContext {
+
+    private record Migration(int version, String description, Database.Work<Void> apply) {}
+
+    private final List<Migration> migrations = List.of(
+            new Migration(1, "create the original tables", conn -> {
+                createTables(conn);
+                return null;
+            }),
+            new Migration(2, "index events by type", conn -> {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute("CREATE INDEX IF NOT EXISTS idx_events_type ON events(event_type, timestamp)");
+                }
+                return null;
+            }),
+            new Migration(3, "track backfill progress", conn -> {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute("""
+                    CREATE TABLE IF NOT EXISTS backfills (
+                        name TEXT PRIMARY KEY,
+                        cursor INTEGER NOT NULL DEFAULT 0,
+                        done INTEGER NOT NULL DEFAULT 0
+                    )
+                    """);
+                }
+                return null;
+            }),
+            new Migration(4, "give each cat reaction its own row", conn -> {
+                normalizeReactions(conn);
+                return null;
+            }),
+            new Migration(5, "store event types as codes", conn -> {
+                encodeEventTypes(conn);
+                return null;
+            })
+    );
+
+    /**
+     * Applies every migration newer than the database, in order.
+     */
+    public void migrate(Database db) throws SQLException {
+        int current = db.read(SchemaMigrations::userVersion);
+        int latest = migrations.getLast().version();
+        if (current >= latest) {
+            db.write(SchemaMigrations::syncEventTypes);
+            return;
+        }
+
+        log().info("Migrating statistics database from version {} to {}...", current, latest);
+        for (Migration migration : migrations) {
+            if (migration.version() <= current) continue;
+
+            long start = System.currentTimeMillis();
+            db.write(conn -> {
+                migration.apply().run(conn);
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute("PRAGMA user_version = " + migration.version());
+                }
+                return null;
+            });
+            log().info("Applied migration {} ({}) in {}ms.", migration.version(), migration.description(), System.currentTimeMillis() - start);
+        }
+        db.write(SchemaMigrations::syncEventTypes);
+    }
+
+    /**
+     * Writes the name of every event type to event_types, so types added since the last start show up in exports.
+     */
+    private static Void syncEventTypes(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("""
+            INSERT INTO event_types (code, name) VALUES (?, ?)
+            ON CONFLICT(code) DO UPDATE SET name = excluded.name
+        """)) {
+            for (EventType type : EventType.values()) {
+                stmt.setInt(1, type.code());
+                stmt.setString(2, type.name());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+        return null;
+    }
+
+    private static int userVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery("PRAGMA user_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    /**
+     * Everything that existed before migrations did. Databases from then are at version 0 and already have most
+     * of this, so it has to stay safe to run over an existing schema.
+     */
+    private void createTables(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("""
+            CREATE TABLE IF NOT EXISTS events (
+                id INTEGER PRIMARY KEY AUTOINCREMENT,
+                timestamp INTEGER NOT NULL,
+                event_type TEXT NOT NULL,
+                user_id INTEGER NOT NULL,
+                local_day INTEGER,
+                day_of_week INTEGER,
+                minute_of_day INTEGER,
+                claimed INTEGER NOT NULL DEFAULT 0
+                )
+            """);
+
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_events_timestamp ON events(timestamp)");
+            addMissingEventColumns(conn);
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_events_local_day ON events(local_day)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_events_user ON events(user_id, timestamp)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_events_space ON events(space_id, timestamp)");
+
+            // These are all derived from events, so older copies without a space are dropped and rebuilt on load
+            for (String derived : List.of("daily_rollups", "hourly_rollups", "user_daily_rollups", "sessions")) {
+                dropIfMissingSpace(conn, derived);
+            }
+
+            stmt.execute("""
+            CREATE TABLE IF NOT EXISTS daily_rollups (
+                space_id INTEGER NOT NULL,
+                day INTEGER NOT NULL,
+                open_ms INTEGER NOT NULL DEFAULT 0,
+                open_count INTEGER NOT NULL DEFAULT 0,
+                lock_count INTEGER NOT NULL DEFAULT 0,
+                first_open INTEGER,
+                last_lock INTEGER,
+                PRIMARY KEY (space_id, day)
+            )
+            """);
+
+            stmt.execute("""
+            CREATE TABLE IF NOT EXISTS hourly_rollups (
+                space_id INTEGER NOT NULL,
+                hour_of_week INTEGER NOT NULL,
+                open_ms INTEGER NOT NULL DEFAULT 0,
+                open_count INTEGER NOT NULL DEFAULT 0,
+                lock_count INTEGER NOT NULL DEFAULT 0,
+                PRIMARY KEY (space_id, hour_of_week)
+            )
+            """);
+
+            stmt.execute("""
+            CREATE TABLE IF NOT EXISTS user_daily_rollups (
+                space_id INTEGER NOT NULL,
+                user_id INTEGER NOT NULL,
+                day INTEGER NOT NULL,
+                opens INTEGER NOT NULL DEFAULT 0,
+                locks INTEGER NOT NULL DEFAULT 0,
+                PRIMARY KEY (space_id, user_id, day)
+            )
+            """);
+
+            stmt.execute("""
+            CREATE TABLE IF NOT EXISTS sessions (
+                open_event_id INTEGER PRIMARY KEY,
+                lock_event_id INTEGER NOT NULL UNIQUE,
+                space_id INTEGER NOT NULL,
+                open_ts INTEGER NOT NULL,
+                close_ts INTEGER NOT NULL,
+                duration INTEGER NOT NULL,
+                opener INTEGER NOT NULL,
+                locker INTEGER NOT NULL
+            )
+            """);
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_sessions_open_ts ON sessions(space_id, open_ts)");
+
+            stmt.execute("""
+            CREATE TABLE IF NOT EXISTS message_reacts (
+                message_id INTEGER PRIMARY KEY,
+                reacted_users TEXT NOT NULL
+            )
+            """);
+        }
+    }
+
+    /**
+     * Splits the comma separated reacted_users lists of message_reacts into one message_reactions row per user, so the
+     * leaderboards can be counted by SQLite off an index. The messages themselves move to lock_messages, since a
+     * message nobody has reacted to still needs to be checked for new reactions.
+     */
+    private void normalizeReactions(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS lock_messages (message_id INTEGER PRIMARY KEY)");
+            // reacted_at is when the bot first saw the reaction, Discord doesn't say when it was added
+            stmt.execute("""
+            CREATE TABLE IF NOT EXISTS message_reactions (
+                emoji TEXT NOT NULL,
+                message_id INTEGER NOT NULL,
+                user_id INTEGER NOT NULL,
+                reacted_at INTEGER,
+                PRIMARY KEY (emoji, message_id, user_id)
+            ) WITHOUT ROWID
+            """);
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_message_reactions_user ON message_reactions(emoji, user_id)");
+
+            stmt.execute("INSERT OR IGNORE INTO lock_messages (message_id) SELECT message_id FROM message_reacts");
+
+            // Everything in the old table was a cat reaction, and there's no time to give them
+            int rows = 0;
+            try (ResultSet rs = stmt.executeQuery("SELECT message_id, reacted_users FROM message_reacts");
+                 PreparedStatement insert = conn.prepareStatement(
+                         "INSERT OR IGNORE INTO message_reactions (emoji, message_id, user_id) VALUES (?, ?, ?)")) {
+                while (rs.next()) {
+                    String users = rs.getString(2);
+                    if (users == null || users.contains("NO_USERS")) continue;
+
+                    for (String user : users.split(",")) {
+                        if (user.isBlank()) continue;
+                        insert.setString(1, "🐈");
+                        insert.setLong(2, rs.getLong(1));
+                        insert.setLong(3, Long.parseLong(user.trim()));
+                        insert.addBatch();
+                        rows++;
+                    }
+                }
+                insert.executeBatch();
+            }
+
+            stmt.execute("DROP TABLE message_reacts");
+            log().info("Moved {} cat reactions to message_reactions.", rows);
+        }
+    }
+
+    /**
+     * Adds the table of event type names. Rows logged from now on store the type's integer code, and rows logged
+     * before keep its name until the type code backfill reaches them, so anything reading event_type takes both.
+     * The column keeps its declared type, since changing it means copying the whole table.
+     */
+    private void encodeEventTypes(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS event_types (code INTEGER PRIMARY KEY, name TEXT NOT NULL UNIQUE)");
+        }
+        syncEventTypes(conn);
+    }
+
+    /**
+     * Adds columns to events tables created before the columns existed.
+     */
+    private void addMissingEventColumns(Connection conn) throws SQLException {
+        Set<String> columns = new HashSet<>();
+        try (Statement stmt = conn.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery("PRAGMA table_info(events)")) {
+                while (rs.next()) columns.add(rs.getString("name"));
+            }
+
+            Map<String, String> definitions = new LinkedHashMap<>();
+            definitions.put("local_day", "INTEGER");
+            definitions.put("day_of_week", "INTEGER");
+            definitions.put("minute_of_day", "INTEGER");
+            // Claims made before this column existed can't be told apart from events logged with a user
+            definitions.put("claimed", "INTEGER NOT NULL DEFAULT 0");
+            // Everything logged before spaces existed belongs to the original space
+            definitions.put("space_id", "INTEGER NOT NULL DEFAULT 0");
+
+            for (Map.Entry<String, String> column : definitions.entrySet()) {
+                if (!columns.contains(column.getKey())) {
+                    stmt.execute("ALTER TABLE events ADD COLUMN " + column.getKey() + " " + column.getValue());
+                    log().info("Added column {} to events.", column.getKey());
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops a table that predates spaces so it can be recreated with a space_id column.
+     */
+    private void dropIfMissingSpace(Connection conn, String table) throws SQLException {
+        boolean exists = false;
+        boolean hasSpace = false;
+
+        try (Statement stmt = conn.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery("PRAGMA table_info(" + table + ")")) {
+                while (rs.next()) {
+                    exists = true;
+                    if (rs.getString("name").equals("space_id")) hasSpace = true;
+                }
+            }
+
+            if (exists && !hasSpace) {
+                stmt.execute("DROP TABLE " + table);
+                log().info("Dropped {} so it can be rebuilt per space.", table);
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package edu.mines.mmsbot.data;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * How many times each named database statement has run and how long it took, for the dev command.
+ */
+public class StatementTimings {
+
+    private final Map<String, Timing> timings = new ConcurrentHashMap<>();
+
+    private static final class Timing {
+        final LongAdder count = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+        final AtomicLong maxNanos = new AtomicLong();
+    }
+
+    public record Summary(String name, long count, long totalNanos, long maxNanos) {
+        public long averageNanos() {
+            return count == 0 ? 0 : totalNanos / count;
+        }
+    }
+
+    /**
+     * Records one run of a statement.
+     * @param startNanos {@link System#nanoTime()} from just before it started
+     * @return how long it took, in nanoseconds
+     */
+    public long record(String name, long startNanos) {
+        long elapsed = System.nanoTime() - startNanos;
+        Timing timing = timings.computeIfAbsent(name, n -> new Timing());
+        timing.count.increment();
+        timing.totalNanos.add(elapsed);
+        timing.maxNanos.accumulateAndGet(elapsed, Math::max);
+        return elapsed;
+    }
+
+    /**
+     * @return every statement that has run, most total time first
+     */
+    public List<Summary> summaries() {
+        return timings.entrySet().stream()
+                .map(entry -> new Summary(entry.getKey(), entry.getValue().count.sum(),
+                        entry.getValue().totalNanos.sum(), entry.getValue().maxNanos.get()))
+                .sorted(Comparator.comparingLong(Summary::totalNanos).reversed())
+                .toList();
+    }
+}
@@ -0,0 +1,104 @@
+package edu.mines.mmsbot.data.dao;
+
+import edu.mines.mmsbot.data.Database;
+import edu.mines.mmsbot.data.util.OpStatsUtils.Event;
+import edu.mines.mmsbot.data.util.OpStatsUtils.EventType;
+import edu.mines.mmsbot.util.TimeUtils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Writes to the events table. Reads go through the in-memory event store instead.
+ */
+public class EventDao {
+
+    private static final String INSERT = """
+        INSERT INTO events (timestamp, event_type, user_id, local_day, day_of_week, minute_of_day, space_id) VALUES (?, ?, ?, ?, ?, ?, ?)
+    """;
+    private static final String CLAIM = "UPDATE events SET user_id = ?, claimed = 1 WHERE id = ? AND user_id = -1 AND space_id = ?";
+    private static final String BACKFILL_BUCKETS = "UPDATE events SET local_day = ?, day_of_week = ?, minute_of_day = ? WHERE id = ?";
+    private static final String BACKFILL_TYPE = "UPDATE events SET event_type = ? WHERE id = ?";
+
+    private final Database db;
+
+    public EventDao(Database db) {
+        this.db = db;
+    }
+
+    /**
+     * @return the new event's ID
+     */
+    public long insert(Connection conn, Event event, TimeUtils.LocalBucket bucket, int spaceId) throws SQLException {
+        long start = System.nanoTime();
+        PreparedStatement stmt = db.prepare(conn, INSERT);
+        stmt.setLong(1, event.timestamp());
+        stmt.setInt(2, event.eventType().code());
+        stmt.setLong(3, event.userID());
+        stmt.setInt(4, bucket.epochDay());
+        stmt.setInt(5, bucket.dayOfWeek());
+        stmt.setInt(6, bucket.minuteOfDay());
+        stmt.setInt(7, spaceId);
+        stmt.executeUpdate();
+
+        try (ResultSet rs = stmt.getGeneratedKeys()) {
+            if (!rs.next()) throw new SQLException("Insert succeeded but no ID was returned.");
+            long id = rs.getLong(1);
+            db.recordTiming("events.insert", start);
+            return id;
+        }
+    }
+
+    /**
+     * Credits an unclaimed event to a member.
+     * @return false if the event doesn't exist in the space or was already claimed
+     */
+    public boolean claim(Connection conn, long eventId, long userId, int spaceId) throws SQLException {
+        long start = System.nanoTime();
+        PreparedStatement stmt = db.prepare(conn, CLAIM);
+        stmt.setLong(1, userId);
+        stmt.setLong(2, eventId);
+        stmt.setInt(3, spaceId);
+
+        int rowsUpdated = stmt.executeUpdate();
+        db.recordTiming("events.claim", start);
+        return rowsUpdated == 1;
+    }
+
+    /**
+     * Queues an update of one event's local time buckets. Run them with {@link #flushBackfill(Connection)}.
+     */
+    public void addBackfill(Connection conn, long eventId, TimeUtils.LocalBucket bucket) throws SQLException {
+        PreparedStatement stmt = db.prepare(conn, BACKFILL_BUCKETS);
+        stmt.setInt(1, bucket.epochDay());
+        stmt.setInt(2, bucket.dayOfWeek());
+        stmt.setInt(3, bucket.minuteOfDay());
+        stmt.setLong(4, eventId);
+        stmt.addBatch();
+    }
+
+    public void flushBackfill(Connection conn) throws SQLException {
+        long start = System.nanoTime();
+        db.prepare(conn, BACKFILL_BUCKETS).executeBatch();
+        db.recordTiming("events.backfill", start);
+    }
+
+    /**
+     * Queues replacing the type name an event was logged with by the type's code. Run them with
+     * {@link #flushTypeBackfill(Connection)}.
+     */
+    public void addTypeBackfill(Connection conn, long eventId, EventType eventType) throws SQLException {
+        PreparedStatement stmt = db.prepare(conn, BACKFILL_TYPE);
+        stmt.setInt(1, eventType.code());
+        stmt.setLong(2, eventId);
+        stmt.addBatch();
+    }
+
+    public void flushTypeBackfill(Connection conn) throws SQLException {
+        long start = System.nanoTime();
+        db.prepare(conn, BACKFILL_TYPE).executeBatch();
+        db.recordTiming("events.backfill_type", start);
+    }
+}
@@ -0,0 +1,151 @@
+package edu.mines.mmsbot.data.dao;
+
+import edu.mines.mmsbot.data.Database;
+import edu.mines.mmsbot.data.util.CatStatsUtils.MessageCatStat;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+
+/**
+ * Reads and writes the lock channel messages the bot watches for reactions, in lock_messages, and who reacted to
+ * them with what, one row per reaction in message_reactions.
+ */
+public class ReactionDao {
+
+    private static final String TRACK = "INSERT OR IGNORE INTO lock_messages (message_id) VALUES (?)";
+    private static final String SELECT_IDS = "SELECT message_id FROM lock_messages";
+    private static final String SELECT_USERS = "SELECT user_id FROM message_reactions WHERE emoji = ? AND message_id = ?";
+    private static final String INSERT = """
+        INSERT OR IGNORE INTO message_reactions (emoji, message_id, user_id, reacted_at) VALUES (?, ?, ?, ?)
+    """;
+    private static final String DELETE = "DELETE FROM message_reactions WHERE emoji = ? AND message_id = ? AND user_id = ?";
+    private static final String TOP_MESSAGES = """
+        SELECT message_id, COUNT(*) AS reacts FROM message_reactions WHERE emoji = ?
+        GROUP BY message_id ORDER BY reacts DESC LIMIT ?
+    """;
+    private static final String TOP_USERS = """
+        SELECT user_id, COUNT(*) AS reacts FROM message_reactions WHERE emoji = ?
+        GROUP BY user_id ORDER BY reacts DESC LIMIT ?
+    """;
+
+    private final Database db;
+
+    public ReactionDao(Database db) {
+        this.db = db;
+    }
+
+    /**
+     * Starts watching a message for reactions.
+     */
+    public void track(Connection conn, long messageId) throws SQLException {
+        long start = System.nanoTime();
+        PreparedStatement stmt = db.prepare(conn, TRACK);
+        stmt.setLong(1, messageId);
+        stmt.executeUpdate();
+        db.recordTiming("lock_messages.track", start);
+    }
+
+    /**
+     * Sets who has reacted to each message in the map with an emoji. Only the differences from what's stored are
+     * written, so reactions that are still there keep the time they were first seen.
+     * @param users reacted user IDs by message ID
+     */
+    public void replace(Connection conn, String emoji, Map<Long, List<Long>> users) throws SQLException {
+        if (users.isEmpty()) return;
+
+        long start = System.nanoTime();
+        long now = System.currentTimeMillis();
+        PreparedStatement track = db.prepare(conn, TRACK);
+        PreparedStatement insert = db.prepare(conn, INSERT);
+        PreparedStatement delete = db.prepare(conn, DELETE);
+
+        for (Map.Entry<Long, List<Long>> entry : users.entrySet()) {
+            long messageId = entry.getKey();
+            Set<Long> current = new HashSet<>(entry.getValue());
+            Set<Long> stored = storedUsers(conn, emoji, messageId);
+
+            track.setLong(1, messageId);
+            track.addBatch();
+
+            for (long user : stored) {
+                if (current.contains(user)) continue;
+                delete.setString(1, emoji);
+                delete.setLong(2, messageId);
+                delete.setLong(3, user);
+                delete.addBatch();
+            }
+            for (long user : current) {
+                if (stored.contains(user)) continue;
+                insert.setString(1, emoji);
+                insert.setLong(2, messageId);
+                insert.setLong(3, user);
+                insert.setLong(4, now);
+                insert.addBatch();
+            }
+        }
+
+        track.executeBatch();
+        delete.executeBatch();
+        insert.executeBatch();
+        db.recordTiming("message_reactions.replace", start);
+    }
+
+    private Set<Long> storedUsers(Connection conn, String emoji, long messageId) throws SQLException {
+        PreparedStatement stmt = db.prepare(conn, SELECT_USERS);
+        stmt.setString(1, emoji);
+        stmt.setLong(2, messageId);
+
+        Set<Long> users = new HashSet<>();
+        try (ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) users.add(rs.getLong(1));
+        }
+        return users;
+    }
+
+    public List<Long> messageIds(Connection conn) throws SQLException {
+        long start = System.nanoTime();
+        List<Long> messages = new ArrayList<>();
+        try (ResultSet rs = db.prepare(conn, SELECT_IDS).executeQuery()) {
+            while (rs.next()) messages.add(rs.getLong(1));
+        }
+        db.recordTiming("lock_messages.ids", start);
+        return messages;
+    }
+
+    /**
+     * @return the messages with the most reactions of an emoji, most first
+     */
+    public List<MessageCatStat> topMessages(Connection conn, String emoji, int limit) throws SQLException {
+        long start = System.nanoTime();
+        PreparedStatement stmt = db.prepare(conn, TOP_MESSAGES);
+        stmt.setString(1, emoji);
+        stmt.setInt(2, limit);
+
+        List<MessageCatStat> stats = new ArrayList<>();
+        try (ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) stats.add(new MessageCatStat(rs.getLong(1), rs.getInt(2)));
+        }
+        db.recordTiming("message_reactions.top_messages", start);
+        return stats;
+    }
+
+    /**
+     * @return reaction counts of the users who have reacted with an emoji the most, most first
+     */
+    public List<Map.Entry<Long, Integer>> topUsers(Connection conn, String emoji, int limit) throws SQLException {
+        long start = System.nanoTime();
+        PreparedStatement stmt = db.prepare(conn, TOP_USERS);
+        stmt.setString(1, emoji);
+        stmt.setInt(2, limit);
+
+        List<Map.Entry<Long, Integer>> users = new ArrayList<>();
+        try (ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) users.add(Map.entry(rs.getLong(1), rs.getInt(2)));
+        }
+        db.recordTiming("message_reactions.top_users", start);
+        return users;
+    }
+}
@@ -1,43 +1,49 @@
 package edu.mines.mmsbot.data.util;
 
 import edu.mines.mmsbot.MMSContext;
+import edu.mines.mmsbot.data.Database;
+import edu.mines.mmsbot.data.dao.ReactionDao;
 import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.MessageReaction;
 import net.dv8tion.jda.api.entities.User;
 import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
 import net.dv8tion.jda.api.entities.emoji.Emoji;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.List;
+import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.stream.Stream;
 
 public class CatStatsUtils implements MMSContext {
 
-    private final Connection conn;
+    private static final Emoji CAT = Emoji.fromUnicode("🐈");
 
-    public CatStatsUtils(Connection conn) {
-        this.conn = conn;
+    private final Database db;
+    private final ReactionDao reactions;
+    private final DataVersion dataVersion;
+
+    public CatStatsUtils(Database db, DataVersion dataVersion) {
+        this.db = db;
+        this.reactions = new ReactionDao(db);
+        this.dataVersion = dataVersion;
     }
     
     public CompletableFuture<AtomicInteger> populateTable() {
         TextChannel channel = runtime().getServer().getLockChannel();
         AtomicInteger count = new AtomicInteger(0);
         long selfId = runtime().getJda().getSelfUser().getIdLong();
+        Map<Long, CompletableFuture<List<Long>>> reactors = new ConcurrentHashMap<>();
 
         return channel.getIterableHistory()
                 .forEachAsync(message -> {
                     if (message.getAuthor().getIdLong() == selfId) {
-                        updateMessage(message);
+                        reactors.put(message.getIdLong(), catReactors(message));
                         count.incrementAndGet();
                     }
                     return true;
                 })
+                .thenCompose(v -> storeReactors(reactors))
                 .thenApply(v -> count);
     }
 
@@ -45,71 +51,53 @@ public class CatStatsUtils implements MMSContext {
     public CompletableFuture<AtomicInteger> updateTable() {
         AtomicInteger count = new AtomicInteger(0);
         TextChannel channel = runtime().getServer().getLockChannel();
+        Map<Long, CompletableFuture<List<Long>>> reactors = new ConcurrentHashMap<>();
 
-        List<CompletableFuture<Void>> futures = pullMessages().stream()
-                .map(id ->
-                        channel.retrieveMessageById(id)
-                                .submit()
-                                .thenAccept(msg -> {
-                                    updateMessage(msg);
-                                    count.incrementAndGet();
-                                })
-                )
-                .toList();
-
-        return CompletableFuture
-                .allOf(futures.toArray(new CompletableFuture[0]))
-                .thenApply(v -> count);
-    }
-
-    public List<MessageCatStat> getTopMessages(int limit) {
-        try (PreparedStatement stmt = conn.prepareStatement("""
-            SELECT message_id, reacted_users FROM message_reacts
-        """)) {
+        for (long id : pullMessages()) {
+            reactors.put(id, channel.retrieveMessageById(id)
+                    .submit()
+                    .thenCompose(msg -> {
+                        count.incrementAndGet();
+                        return catReactors(msg);
+                    }));
+        }
 
-            try (ResultSet rs = stmt.executeQuery()) {
-                List<MessageCatStat> stats = new ArrayList<>();
+        return storeReactors(reactors).thenApply(v -> count);
+    }
 
-                while (rs.next()) {
-                    long messageId = rs.getLong(1);
-                    List<Long> users = extractList(rs.getString(2));
-                    stats.add(new MessageCatStat(messageId, users.size()));
-                }
+    /**
+     * Waits for every message's reactions to be fetched, then writes them all in one transaction instead of one
+     * per message. A message that couldn't be fetched, such as one that was deleted, is logged and left as it was
+     * without holding up the rest.
+     */
+    CompletableFuture<Void> storeReactors(Map<Long, CompletableFuture<List<Long>>> reactors) {
+        Map<Long, List<Long>> users = new ConcurrentHashMap<>();
+        CompletableFuture<?>[] fetches = reactors.entrySet().stream()
+                .map(entry -> entry.getValue().handle((reacted, ex) -> {
+                    if (ex != null) {
+                        log().warn("Error fetching cat reactions for message {}: {}", entry.getKey(), ex.getMessage());
+                    } else {
+                        users.put(entry.getKey(), reacted);
+                    }
+                    return null;
+                }))
+                .toArray(CompletableFuture[]::new);
 
-                return stats.stream()
-                        .sorted((a, b) -> Integer.compare(b.count(), a.count()))
-                        .limit(limit)
-                        .toList();
-            }
+        return CompletableFuture.allOf(fetches).thenCompose(v -> upsertReactions(users));
+    }
 
+    public List<MessageCatStat> getTopMessages(int limit) {
+        try {
+            return db.read(conn -> reactions.topMessages(conn, CAT.getName(), limit));
         } catch (SQLException ex) {
             log().error("Error retrieving top cat messages", ex);
             return List.of();
         }
     }
 
-    public List<java.util.Map.Entry<Long, Integer>> getTopUsers(int limit) {
-        try (PreparedStatement stmt = conn.prepareStatement("""
-            SELECT reacted_users FROM message_reacts
-        """)) {
-
-            try (ResultSet rs = stmt.executeQuery()) {
-                java.util.Map<Long, Integer> counts = new java.util.HashMap<>();
-
-                while (rs.next()) {
-                    List<Long> users = extractList(rs.getString(1));
-
-                    for (Long user : users) {
-                        counts.merge(user, 1, Integer::sum);
-                    }
-                }
-
-                return counts.entrySet().stream()
-                        .sorted(java.util.Map.Entry.<Long, Integer>comparingByValue().reversed())
-                        .limit(limit)
-                        .toList();
-            }
-
+    public List<Map.Entry<Long, Integer>> getTopUsers(int limit) {
+        try {
+            return db.read(conn -> reactions.topUsers(conn, CAT.getName(), limit));
         } catch (SQLException ex) {
             log().error("Error retrieving top cat users", ex);
             return List.of();
@@ -118,82 +106,63 @@ public class CatStatsUtils implements MMSContext {
 
 
     public List<Long> pullMessages() {
-        try (PreparedStatement stmt = conn.prepareStatement("""
-            SELECT * FROM message_reacts
-        """)) {
-            try (ResultSet rs = stmt.executeQuery()) {
-                List<Long> messages = new ArrayList<>();
-                
-                while (rs.next()) {
-                    messages.add(rs.getLong(1));
-                }
-
-                return messages;
-            }
+        try {
+            return db.read(reactions::messageIds);
         } catch (SQLException ex) {
             log().error("Error while selecting all message IDs",ex);
-            return null;
+            return List.of();
         }
     }
     
     public void updateMessage(Message message) {
-        message.getReactions().forEach(reaction->{
-            if (!reaction.getEmoji().equals(Emoji.fromUnicode("🐈"))) return;
-
-            reaction.retrieveUsers()
-                    .map(userList -> {
-                        updateReactions(message.getIdLong(),userList.stream()
-                                .map(User::getIdLong)
-                                .toList());
-
-                        return userList;
-                    }).queue();
-        });
+        catReactors(message).thenAccept(users -> updateReactions(message.getIdLong(), users));
     }
 
-    public void storeMessage(long messageID) {
-        try (PreparedStatement stmt = conn.prepareStatement("""
-            INSERT INTO message_reacts ( message_id, reacted_users ) values ( ?, ? )
-            ON CONFLICT(message_id) DO UPDATE SET reacted_users = excluded.reacted_users
-        """)) {
-            stmt.setLong(1,messageID);
-            stmt.setString(2,"NO_USERS");
-
-            stmt.executeUpdate();
-        } catch (SQLException ex) {
-            log().error("Error logging message to cat table {}: ",messageID,ex);
+    /**
+     * @return the IDs of everyone who reacted to a message with a cat, empty if nobody has, so removing the last
+     * cat clears the message's stored reactions
+     */
+    private CompletableFuture<List<Long>> catReactors(Message message) {
+        for (MessageReaction reaction : message.getReactions()) {
+            if (!reaction.getEmoji().equals(CAT)) continue;
+
+            return reaction.retrieveUsers()
+                    .submit()
+                    .thenApply(userList -> userList.stream()
+                            .map(User::getIdLong)
+                            .toList());
         }
+        return CompletableFuture.completedFuture(List.of());
     }
 
-    public void updateReactions(long messageID, List<Long> users) {
-        try (PreparedStatement stmt = conn.prepareStatement("""
-            INSERT INTO message_reacts ( message_id, reacted_users ) values ( ?, ? )
-            ON CONFLICT(message_id) DO UPDATE SET reacted_users = excluded.reacted_users
-        """)) {
-            stmt.setLong(1,messageID);
-            stmt.setString(2,packList(users));
-            
-            stmt.executeUpdate();
-        } catch (SQLException ex) {
-            log().error("Error updating cat emoji on message {} for users {}: ",messageID,users.toString(),ex);
-        }
+    public void storeMessage(long messageID) {
+        db.submit(conn -> {
+            reactions.track(conn, messageID);
+            return (Void) null;
+        }).exceptionally(ex -> {
+            log().error("Error storing message {}: ", messageID, ex);
+            return null;
+        });
     }
 
-    public String packList(Collection<Long> ids) {
-        return ids.stream()
-                .map(String::valueOf)
-                .reduce((a, b) -> a + "," + b)
-                .orElse("");
+    public void updateReactions(long messageID, List<Long> users) {
+        upsertReactions(Map.of(messageID, users));
     }
 
-
-    public List<Long> extractList(String value) {
-        if (value == null || value.isBlank() || value.contains("NO_USERS")) return List.of();
-
-        return Stream.of(value.split(","))
-                .filter(s -> !s.isBlank())
-                .map(Long::parseLong)
-                .toList();
+    /**
+     * Replaces the cat reactions of several messages in one transaction.
+     * @param users reacted user IDs by message ID
+     */
+    public CompletableFuture<Void> upsertReactions(Map<Long, List<Long>> users) {
+        // Queued rather than waited on, so it also shares a commit with anything else written at the same time
+        return db.submit(conn -> {
+            reactions.replace(conn, CAT.getName(), users);
+            db.afterCommit(() -> dataVersion.bump(DataVersion.Source.REACTIONS));
+            return (Void) null;
+        }).exceptionally(ex -> {
+            log().error("Error updating cat reactions on messages {}: ", users.keySet(), ex);
+            return null;
+        });
     }
 
     public record MessageCatStat(long messageId, int count) {}
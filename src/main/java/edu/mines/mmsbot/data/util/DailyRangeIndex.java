@@ -0,0 +1,102 @@
+package edu.mines.mmsbot.data.util;
+
+import edu.mines.mmsbot.data.util.OpStatsUtils.WindowStats;
+import edu.mines.mmsbot.util.TimeUtils;
+
+import java.time.LocalDate;
+
+/**
+ * Per-day tallies kept in Fenwick trees so any window of days can be summarised in O(log n).
+ * Days are indexed from a Monday, which lets the day of week tallies be indexed by week instead of by day.
+ */
+public class DailyRangeIndex {
+
+    private long baseDay = Long.MIN_VALUE;
+
+    private final FenwickTree openTime = new FenwickTree(64);
+    private final FenwickTree opens = new FenwickTree(64);
+    private final FenwickTree locks = new FenwickTree(64);
+    private final FenwickTree daysOpen = new FenwickTree(64);
+    private final FenwickTree[] opensByDayOfWeek = new FenwickTree[7];
+    private final FenwickTree[] openTimeByDayOfWeek = new FenwickTree[7];
+
+    public DailyRangeIndex() {
+        for (int i = 0; i < 7; i++) {
+            opensByDayOfWeek[i] = new FenwickTree(16);
+            openTimeByDayOfWeek[i] = new FenwickTree(16);
+        }
+    }
+
+    public void addOpen(long epochDay) {
+        int index = indexOf(epochDay);
+        if (opens.get(index) == 0) daysOpen.add(index, 1);
+        opens.add(index, 1);
+        opensByDayOfWeek[index % 7].add(index / 7, 1);
+    }
+
+    public void addLock(long epochDay) {
+        locks.add(indexOf(epochDay), 1);
+    }
+
+    public void addOpenTime(long epochDay, long duration) {
+        int index = indexOf(epochDay);
+        openTime.add(index, duration);
+        openTimeByDayOfWeek[index % 7].add(index / 7, duration);
+    }
+
+    /**
+     * Summarises every day from one date through another, inclusive.
+     */
+    public WindowStats query(LocalDate from, LocalDate to) {
+        int[] opensByDay = new int[7];
+        long[] openTimeByDay = new long[7];
+
+        if (baseDay == Long.MIN_VALUE || to.isBefore(from)) {
+            return new WindowStats(from, to, 0, 0, 0, 0, opensByDay, openTimeByDay);
+        }
+
+        int start = (int) Math.max(0, from.toEpochDay() - baseDay);
+        int end = (int) (to.toEpochDay() - baseDay);
+
+        for (int day = 0; day < 7; day++) {
+            // Weeks whose copy of this weekday falls inside the window
+            int firstWeek = Math.floorDiv(start - day + 6, 7);
+            int lastWeek = Math.floorDiv(end - day, 7);
+            opensByDay[day] = (int) opensByDayOfWeek[day].rangeSum(firstWeek, lastWeek);
+            openTimeByDay[day] = openTimeByDayOfWeek[day].rangeSum(firstWeek, lastWeek);
+        }
+
+        return new WindowStats(
+                from,
+                to,
+                openTime.rangeSum(start, end),
+                (int) opens.rangeSum(start, end),
+                (int) locks.rangeSum(start, end),
+                (int) daysOpen.rangeSum(start, end),
+                opensByDay,
+                openTimeByDay
+        );
+    }
+
+    private int indexOf(long epochDay) {
+        long monday = epochDay - TimeUtils.dayOfWeek(epochDay);
+
+        if (baseDay == Long.MIN_VALUE) {
+            baseDay = monday;
+        } else if (monday < baseDay) {
+            // Only happens for events older than anything seen so far, so the rebuild is rare
+            int days = (int) (baseDay - monday);
+            openTime.shiftRight(days);
+            opens.shiftRight(days);
+            locks.shiftRight(days);
+            daysOpen.shiftRight(days);
+            for (int i = 0; i < 7; i++) {
+                opensByDayOfWeek[i].shiftRight(days / 7);
+                openTimeByDayOfWeek[i].shiftRight(days / 7);
+            }
+            baseDay = monday;
+        }
+
+        return (int) (epochDay - baseDay);
+    }
+}
@@ -0,0 +1,158 @@
+package edu.mines.mmsbot.data.util;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntConsumer;
+
+/**
+ * Monotonic version counters for each kind of data the statistics are built from. Writers bump the counter for
+ * what they changed, and cached results remember the versions they were built from so they can tell when
+ * they're stale without a timer.
+ * <p>
+ * Events and claims are counted per space as well as overall, so a change in one space doesn't make another
+ * space's results look stale.
+ */
+public class DataVersion {
+
+    /**
+     * How often the clock source ticks. Sections that include in-progress sessions or "today" go stale on this.
+     */
+    private static final long CLOCK_RESOLUTION_MS = 15 * 60 * 1000;
+
+    /**
+     * What listeners are passed for a change to a source every space shares.
+     */
+    public static final int ALL_SPACES = -1;
+
+    public enum Source {
+        /** Opens, locks and overrides being logged */
+        EVENTS(true),
+        /** Members claiming an event */
+        CLAIMS(true),
+        /** Cat reactions on lock channel messages */
+        REACTIONS(false),
+        /** The passage of time, for figures that depend on the current time */
+        CLOCK(false);
+
+        /** Whether changes to this source belong to one space */
+        public final boolean perSpace;
+
+        Source(boolean perSpace) {
+            this.perSpace = perSpace;
+        }
+    }
+
+    private static final Source[] SOURCES = Source.values();
+
+    // Every change, whichever space it was in
+    private final AtomicLongArray versions = new AtomicLongArray(SOURCES.length);
+    private final Map<Integer, AtomicLongArray> spaceVersions = new ConcurrentHashMap<>();
+    private final List<IntConsumer> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Bumps a source every space shares.
+     */
+    public void bump(Source source) {
+        if (source.perSpace) throw new IllegalArgumentException(source + " changes belong to a space.");
+        versions.incrementAndGet(source.ordinal());
+        listeners.forEach(listener -> listener.accept(ALL_SPACES));
+    }
+
+    /**
+     * Bumps a source for the space it changed in.
+     */
+    public void bump(Source source, int spaceId) {
+        if (!source.perSpace) throw new IllegalArgumentException(source + " is shared by every space.");
+        versions.incrementAndGet(source.ordinal());
+        spaceVersions(spaceId).incrementAndGet(source.ordinal());
+        listeners.forEach(listener -> listener.accept(spaceId));
+    }
+
+    /**
+     * Runs a callback after every bump, on the writer's thread, with the space that changed or {@link #ALL_SPACES}.
+     * Callbacks should hand work off rather than do it.
+     */
+    public void addListener(IntConsumer listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * @return the current version of every source across all spaces, taken before reading the data it describes
+     */
+    public Stamp stamp() {
+        return stamp(versions);
+    }
+
+    /**
+     * @return the current version of every source as one space sees it, taken before reading the data it describes
+     */
+    public Stamp stamp(int spaceId) {
+        return stamp(spaceVersions(spaceId));
+    }
+
+    private Stamp stamp(AtomicLongArray perSpace) {
+        long[] values = new long[SOURCES.length];
+        for (Source source : SOURCES) {
+            values[source.ordinal()] = (source.perSpace ? perSpace : versions).get(source.ordinal());
+        }
+        values[Source.CLOCK.ordinal()] = System.currentTimeMillis() / CLOCK_RESOLUTION_MS;
+        return new Stamp(values);
+    }
+
+    private AtomicLongArray spaceVersions(int spaceId) {
+        return spaceVersions.computeIfAbsent(spaceId, id -> new AtomicLongArray(SOURCES.length));
+    }
+
+    /**
+     * The versions of every source at one moment.
+     */
+    public static final class Stamp {
+        private final long[] values;
+
+        private Stamp(long[] values) {
+            this.values = values;
+        }
+
+        /**
+         * @return true if any of the given sources changed between this stamp and a newer one
+         */
+        public boolean changed(Stamp newer, Set<Source> sources) {
+            for (Source source : sources) {
+                if (values[source.ordinal()] != newer.values[source.ordinal()]) return true;
+            }
+            return false;
+        }
+
+        /**
+         * @return a short string that changes whenever any of the given sources does, for use in cache validators
+         */
+        public String tag(Set<Source> sources) {
+            StringBuilder tag = new StringBuilder();
+            for (Source source : sources) {
+                if (!tag.isEmpty()) tag.append('.');
+                tag.append(Long.toString(values[source.ordinal()], 36));
+            }
+            return tag.toString();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Stamp other && Arrays.equals(values, other.values);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(values);
+        }
+
+        @Override
+        public String toString() {
+            return Arrays.toString(values);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package edu.mines.mmsbot.data.util;
+
+/**
+ * Mergeable quantile sketch for durations, using logarithmically sized buckets (in the style of DDSketch).
+ * Every quantile it reports is within 1% of the true value, and memory is a fixed array of bucket counts
+ * no matter how many durations are added.
+ */
+public class DurationSketch {
+
+    private static final double RELATIVE_ACCURACY = 0.01;
+    private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+
+    // Durations are clamped to this range, anything under a second or over ten years isn't worth resolving
+    private static final long MIN_DURATION = 1_000L;
+    private static final long MAX_DURATION = 10L * 365 * 86_400_000L;
+    private static final int INDEX_OFFSET = rawIndex(MIN_DURATION);
+    private static final int BUCKET_COUNT = rawIndex(MAX_DURATION) - INDEX_OFFSET + 1;
+
+    private final int[] counts = new int[BUCKET_COUNT];
+    private int count = 0;
+
+    public void add(long duration) {
+        counts[bucketOf(duration)]++;
+        count++;
+    }
+
+    /**
+     * Adds every duration recorded by another sketch to this one.
+     */
+    public void merge(DurationSketch other) {
+        for (int i = 0; i < BUCKET_COUNT; i++) counts[i] += other.counts[i];
+        count += other.count;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public long quantile(double q) {
+        return quantile(q, -1);
+    }
+
+    /**
+     * Estimates a quantile as if one extra duration had been added, without modifying the sketch.
+     * @param extra the extra duration, or a negative value for none
+     */
+    public long quantile(double q, long extra) {
+        int extraBucket = extra < 0 ? -1 : bucketOf(extra);
+        int total = count + (extraBucket == -1 ? 0 : 1);
+        if (total == 0) return 0;
+
+        long rank = (long) Math.floor(q * (total - 1));
+        long seen = 0;
+
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if (i == extraBucket) seen++;
+            if (seen > rank) return valueOf(i);
+        }
+
+        return MAX_DURATION;
+    }
+
+    /**
+     * Counts durations into histogram bins.
+     * @param upperBounds exclusive upper bound of each bin in ascending order, the last bin holds everything above them
+     * @return an array with one more entry than upperBounds
+     */
+    public int[] histogram(long[] upperBounds) {
+        int[] bins = new int[upperBounds.length + 1];
+        int bin = 0;
+
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            if (counts[i] == 0) continue;
+
+            long value = valueOf(i);
+            while (bin < upperBounds.length && value >= upperBounds[bin]) bin++;
+            bins[bin] += counts[i];
+        }
+
+        return bins;
+    }
+
+    private static int rawIndex(long duration) {
+        return (int) Math.ceil(Math.log(duration) / LOG_GAMMA);
+    }
+
+    private static int bucketOf(long duration) {
+        long clamped = Math.max(MIN_DURATION, Math.min(MAX_DURATION, duration));
+        return Math.min(BUCKET_COUNT - 1, rawIndex(clamped) - INDEX_OFFSET);
+    }
+
+    /**
+     * Representative value of a bucket, chosen so it is within the relative accuracy of anything in the bucket.
+     */
+    private static long valueOf(int bucket) {
+        return Math.round(2 * Math.pow(GAMMA, bucket + INDEX_OFFSET) / (GAMMA + 1));
+    }
+}
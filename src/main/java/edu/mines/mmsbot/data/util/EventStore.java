@@ -0,0 +1,190 @@
+package edu.mines.mmsbot.data.util;
+
+import edu.mines.mmsbot.data.util.OpStatsUtils.Event;
+import edu.mines.mmsbot.data.util.OpStatsUtils.EventType;
+import edu.mines.mmsbot.util.TimeUtils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+/**
+ * Append-only, column oriented copy of the events table. Each column is stored as a list of fixed size primitive
+ * chunks, so appending never copies existing rows and scanning the history allocates nothing per row.
+ */
+public class EventStore {
+
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private long[][] ids = new long[1][];
+    private long[][] timestamps = new long[1][];
+    private byte[][] types = new byte[1][];
+    private long[][] users = new long[1][];
+    private int[][] localDays = new int[1][];
+    private short[][] minutesOfDay = new short[1][];
+    private int size = 0;
+
+    /**
+     * Visitor for {@link #forEach(EventVisitor)}. Receives primitives so scans don't box or allocate.
+     */
+    @FunctionalInterface
+    public interface EventVisitor {
+        void visit(long id, long timestamp, EventType eventType, long userId, int localDay, int minuteOfDay);
+    }
+
+    /**
+     * Replaces the contents of the store with every row of the events table logged in a space, in timestamp order.
+     */
+    public synchronized void load(Connection conn, int spaceId) throws SQLException {
+        ids = new long[1][];
+        timestamps = new long[1][];
+        types = new byte[1][];
+        users = new long[1][];
+        localDays = new int[1][];
+        minutesOfDay = new short[1][];
+        size = 0;
+
+        try (PreparedStatement stmt = conn.prepareStatement("""
+            SELECT id, timestamp, event_type, user_id, local_day, minute_of_day FROM events WHERE space_id = ? ORDER BY timestamp, id
+        """)) {
+            stmt.setInt(1, spaceId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    int localDay = rs.getInt(5);
+                    int minuteOfDay = rs.getInt(6);
+                    // Rows the local bucket backfill hasn't reached yet
+                    if (rs.wasNull()) {
+                        TimeUtils.LocalBucket bucket = TimeUtils.LocalBucket.of(rs.getLong(2));
+                        localDay = bucket.epochDay();
+                        minuteOfDay = bucket.minuteOfDay();
+                    }
+                    append(rs.getLong(1), rs.getLong(2), readType(rs.getString(3)), rs.getLong(4), localDay, minuteOfDay);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads an event_type column, which holds the type's code, or its name on rows the type code backfill hasn't
+     * reached yet.
+     */
+    private static EventType readType(String stored) {
+        return Character.isDigit(stored.charAt(0)) ? EventType.fromCode(Integer.parseInt(stored)) : EventType.valueOf(stored);
+    }
+
+    public synchronized void append(long id, long timestamp, EventType eventType, long userId, int localDay, int minuteOfDay) {
+        int chunk = size >>> CHUNK_BITS;
+        int offset = size & CHUNK_MASK;
+
+        if (offset == 0) addChunk(chunk);
+
+        ids[chunk][offset] = id;
+        timestamps[chunk][offset] = timestamp;
+        types[chunk][offset] = eventType.code();
+        users[chunk][offset] = userId;
+        localDays[chunk][offset] = localDay;
+        minutesOfDay[chunk][offset] = (short) minuteOfDay;
+        size++;
+    }
+
+    private void addChunk(int chunk) {
+        if (chunk == ids.length) {
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            timestamps = Arrays.copyOf(timestamps, capacity);
+            types = Arrays.copyOf(types, capacity);
+            users = Arrays.copyOf(users, capacity);
+            localDays = Arrays.copyOf(localDays, capacity);
+            minutesOfDay = Arrays.copyOf(minutesOfDay, capacity);
+        }
+
+        ids[chunk] = new long[CHUNK_SIZE];
+        timestamps[chunk] = new long[CHUNK_SIZE];
+        types[chunk] = new byte[CHUNK_SIZE];
+        users[chunk] = new long[CHUNK_SIZE];
+        localDays[chunk] = new int[CHUNK_SIZE];
+        minutesOfDay[chunk] = new short[CHUNK_SIZE];
+    }
+
+    /**
+     * Patches the user column of an unclaimed event.
+     * @return true if the event was found and had no user yet
+     */
+    public synchronized boolean claim(long id, long userId) {
+        int index = indexOf(id);
+        if (index == -1) return false;
+
+        long[] chunk = users[index >>> CHUNK_BITS];
+        if (chunk[index & CHUNK_MASK] != -1) return false;
+
+        chunk[index & CHUNK_MASK] = userId;
+        return true;
+    }
+
+    /**
+     * Finds the row holding an event ID. Searches from the newest row, since claims are almost always recent.
+     * @return the row index, or -1 if the ID isn't stored
+     */
+    public synchronized int indexOf(long id) {
+        for (int i = size - 1; i >= 0; i--) {
+            if (ids[i >>> CHUNK_BITS][i & CHUNK_MASK] == id) return i;
+        }
+        return -1;
+    }
+
+    public synchronized Event get(int index) {
+        if (index < 0 || index >= size) return null;
+
+        int chunk = index >>> CHUNK_BITS;
+        int offset = index & CHUNK_MASK;
+        return new Event(timestamps[chunk][offset], EventType.fromCode(types[chunk][offset]), users[chunk][offset]);
+    }
+
+    /**
+     * Visits every event in timestamp order while holding the store's lock.
+     */
+    public synchronized void forEach(EventVisitor visitor) {
+        for (int chunk = 0; chunk * CHUNK_SIZE < size; chunk++) {
+            long[] chunkIds = ids[chunk];
+            long[] chunkTimestamps = timestamps[chunk];
+            byte[] chunkTypes = types[chunk];
+            long[] chunkUsers = users[chunk];
+            int[] chunkDays = localDays[chunk];
+            short[] chunkMinutes = minutesOfDay[chunk];
+            int length = Math.min(CHUNK_SIZE, size - chunk * CHUNK_SIZE);
+
+            for (int i = 0; i < length; i++) {
+                visitor.visit(chunkIds[i], chunkTimestamps[i], EventType.fromCode(chunkTypes[i]), chunkUsers[i], chunkDays[i], chunkMinutes[i]);
+            }
+        }
+    }
+
+    /**
+     * Visits the newest events after a timestamp, at most a limit of them, in timestamp order. The first one is
+     * found by binary search and the rest are counted back from the end, so only the visited rows are touched
+     * however far back the timestamp is.
+     */
+    public synchronized void forEachSince(long since, int limit, EventVisitor visitor) {
+        int low = Math.max(0, size - limit), high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timestamps[mid >>> CHUNK_BITS][mid & CHUNK_MASK] <= since) low = mid + 1;
+            else high = mid;
+        }
+
+        for (int i = low; i < size; i++) {
+            int chunk = i >>> CHUNK_BITS;
+            int offset = i & CHUNK_MASK;
+            visitor.visit(ids[chunk][offset], timestamps[chunk][offset], EventType.fromCode(types[chunk][offset]),
+                    users[chunk][offset], localDays[chunk][offset], minutesOfDay[chunk][offset]);
+        }
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+}
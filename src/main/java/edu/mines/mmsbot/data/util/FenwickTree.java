@@ -0,0 +1,75 @@
+package edu.mines.mmsbot.data.util;
+
+import java.util.Arrays;
+
+/**
+ * Binary indexed tree over a growable array of longs, answering point updates and range sums in O(log n).
+ */
+public class FenwickTree {
+
+    private long[] tree; // 1-indexed, tree[0] is unused
+
+    public FenwickTree(int capacity) {
+        this.tree = new long[Math.max(2, capacity + 1)];
+    }
+
+    public void add(int index, long delta) {
+        if (index + 1 >= tree.length) grow(index + 1);
+        for (int i = index + 1; i < tree.length; i += i & -i) tree[i] += delta;
+    }
+
+    /**
+     * @return the sum of every value from index 0 through index, inclusive
+     */
+    public long prefixSum(int index) {
+        long sum = 0;
+        for (int i = Math.min(index + 1, tree.length - 1); i > 0; i -= i & -i) sum += tree[i];
+        return sum;
+    }
+
+    /**
+     * @return the sum of every value from one index through another, inclusive
+     */
+    public long rangeSum(int from, int to) {
+        if (to < from || to < 0) return 0;
+        return prefixSum(to) - (from <= 0 ? 0 : prefixSum(from - 1));
+    }
+
+    public long get(int index) {
+        return rangeSum(index, index);
+    }
+
+    /**
+     * Moves every value count positions to the right, leaving zeros at the start.
+     */
+    public void shiftRight(int count) {
+        long[] values = values();
+        long[] shifted = new long[values.length + count];
+        System.arraycopy(values, 0, shifted, count, values.length);
+        build(shifted);
+    }
+
+    private void grow(int size) {
+        long[] values = Arrays.copyOf(values(), Math.max(size, (tree.length - 1) * 2));
+        build(values);
+    }
+
+    private long[] values() {
+        long[] values = new long[tree.length - 1];
+        for (int i = 0; i < values.length; i++) values[i] = get(i);
+        return values;
+    }
+
+    /**
+     * Builds the tree from plain values in linear time.
+     */
+    private void build(long[] values) {
+        tree = new long[values.length + 1];
+        System.arraycopy(values, 0, tree, 1, values.length);
+
+        for (int i = 1; i < tree.length; i++) {
+            int parent = i + (i & -i);
+            if (parent < tree.length) tree[parent] += tree[i];
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package edu.mines.mmsbot.data.util;
+
+import edu.mines.mmsbot.data.util.OpStatsUtils.EventType;
+import edu.mines.mmsbot.data.util.OpStatsUtils.MemberStats;
+import edu.mines.mmsbot.data.util.OpStatsUtils.Session;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Per-member aggregates, kept up to date as events are logged and claimed so looking up one member's
+ * statistics never scans the event history.
+ */
+public class MemberIndex {
+
+    private final Map<Long, Member> members = new HashMap<>();
+    private final SessionPairing sessions;
+
+    private static final class Member {
+        int opens;
+        int locks;
+        int claimed;
+        long openTime;
+        long openMinutesTotal;
+        long lastOpen;
+        final int[] opensByHour = new int[24];
+        final OpenDayCalendar daysOpened = new OpenDayCalendar();
+    }
+
+    public MemberIndex(SessionPairing sessions) {
+        this.sessions = sessions;
+    }
+
+    /**
+     * Reads how many events each member has claimed. Everything else comes from {@link #accept}.
+     */
+    public synchronized void loadClaims(Connection conn, int spaceId) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT user_id, COUNT(*) FROM events WHERE claimed = 1 AND space_id = ? GROUP BY user_id")) {
+            stmt.setInt(1, spaceId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) member(rs.getLong(1)).claimed = rs.getInt(2);
+            }
+        }
+    }
+
+    /**
+     * Feeds the next event in. Events are expected in timestamp order.
+     * @param session the session the event closed, or null
+     */
+    public synchronized void accept(long timestamp, EventType eventType, long userId, int localDay, int minuteOfDay, Session session) {
+        if (eventType == EventType.OPEN) {
+            if (userId != -1) recordOpen(member(userId), timestamp, localDay, minuteOfDay);
+        } else if (eventType == EventType.LOCK) {
+            if (userId != -1) member(userId).locks++;
+            if (session != null && session.opener() != -1) member(session.opener()).openTime += session.duration();
+        }
+    }
+
+    /**
+     * Credits a claimed event to a member, including the length of the session if it was an open.
+     * @param session the completed session the open started, or null if there isn't one
+     */
+    public synchronized void claim(long timestamp, EventType eventType, long userId, int localDay, int minuteOfDay, Session session) {
+        Member member = member(userId);
+        member.claimed++;
+
+        if (eventType == EventType.LOCK) {
+            member.locks++;
+        } else if (eventType == EventType.OPEN) {
+            recordOpen(member, timestamp, localDay, minuteOfDay);
+            if (session != null) member.openTime += session.duration();
+        }
+    }
+
+    public synchronized MemberStats stats(long userId) {
+        Member member = members.get(userId);
+        if (member == null) return MemberStats.empty(userId);
+
+        long openTime = member.openTime;
+        Long openSince = sessions.getOpenSince();
+        if (openSince != null && sessions.getOpener() == userId) openTime += System.currentTimeMillis() - openSince;
+
+        return new MemberStats(
+                userId,
+                member.opens,
+                member.locks,
+                member.claimed,
+                openTime,
+                member.opens == 0 ? null : LocalTime.ofSecondOfDay(member.openMinutesTotal / member.opens * 60),
+                member.opensByHour.clone(),
+                member.lastOpen == 0 ? null : member.lastOpen,
+                member.daysOpened.currentStreak(LocalDate.now().toEpochDay()),
+                member.daysOpened.longestStreak(),
+                member.daysOpened.totalDays()
+        );
+    }
+
+    private void recordOpen(Member member, long timestamp, int localDay, int minuteOfDay) {
+        member.opens++;
+        member.openMinutesTotal += minuteOfDay;
+        member.opensByHour[minuteOfDay / 60]++;
+        member.lastOpen = Math.max(member.lastOpen, timestamp);
+        member.daysOpened.add(localDay);
+    }
+
+    private Member member(long userId) {
+        return members.computeIfAbsent(userId, u -> new Member());
+    }
+}
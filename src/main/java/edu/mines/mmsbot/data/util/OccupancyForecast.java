@@ -0,0 +1,129 @@
+package edu.mines.mmsbot.data.util;
+
+import edu.mines.mmsbot.data.util.OpStatsUtils.Session;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * How likely the space is to be open in each hour of the week, learned from the event history with exponential
+ * decay so recent semesters count for more than old ones.
+ * <p>
+ * Each of the 168 hour-of-week buckets holds the decayed time the space was open during that hour, over the
+ * decayed time that hour was observed at all. Decay is applied forward: new time is weighted up by how far it is
+ * past a fixed landmark instead of every bucket being weighted down, so an update only touches the hours it covers.
+ * <p>
+ * The time since the last event counts too, as open if a session is in progress and closed if not, so a space that
+ * has been open all afternoon raises this afternoon's estimate before it locks and a space left closed lowers it.
+ * A lookup credits the buckets with the time since the previous lookup, so however many hours are looked up at once,
+ * the span is only walked once and each lookup after the first is a single division.
+ */
+public class OccupancyForecast {
+
+    public static final int HOURS_PER_WEEK = 168;
+
+    private static final double HALF_LIFE_MS = 8 * 7 * 86_400_000.0;
+    private static final double DECAY_RATE = Math.log(2) / HALF_LIFE_MS;
+    // Weights grow exponentially, so they are scaled back down well before a double would overflow
+    private static final double MAX_EXPONENT = 300;
+
+    private final double[] openWeight = new double[HOURS_PER_WEEK];
+    private final double[] observedWeight = new double[HOURS_PER_WEEK];
+
+    private long landmark = -1;
+    private long observedThrough = -1;
+    private long openSince = -1;
+
+    /**
+     * Feeds in an open. The time since the previous session counts as closed, and the session it starts counts as
+     * open until {@link #accept(Session)} closes it.
+     */
+    public synchronized void open(long timestamp) {
+        start(timestamp);
+        observe(observedThrough, timestamp, false);
+        openSince = timestamp;
+    }
+
+    /**
+     * Feeds the next completed session in. The time since the previous session counts as closed.
+     * Sessions are expected in order.
+     */
+    public synchronized void accept(Session session) {
+        start(session.openTime());
+        observe(observedThrough, session.openTime(), false);
+        observe(Math.max(observedThrough, session.openTime()), session.closeTime(), true);
+        openSince = -1;
+    }
+
+    private void start(long timestamp) {
+        if (landmark != -1) return;
+        landmark = timestamp;
+        observedThrough = timestamp;
+    }
+
+    /**
+     * @return the chance the space is open during an hour of the week, or -1 if that hour has never been observed
+     */
+    public double probability(int hourOfWeek) {
+        return probability(hourOfWeek, System.currentTimeMillis());
+    }
+
+    /**
+     * @param now the time the span since the last event is counted up to
+     */
+    synchronized double probability(int hourOfWeek, long now) {
+        // Nothing has been fed in yet, so there's no span to count
+        if (landmark != -1) observe(observedThrough, now, openSince != -1);
+
+        double observed = observedWeight[hourOfWeek];
+        return observed == 0 ? -1 : openWeight[hourOfWeek] / observed;
+    }
+
+    public double probability(ZonedDateTime time) {
+        return probability(StatsRollups.hourOfWeek(time));
+    }
+
+    /**
+     * Splits a span at local hour boundaries and credits each hour of the week with its share.
+     */
+    private void observe(long from, long to, boolean open) {
+        if (to <= from) return;
+        rescaleIfNeeded(to);
+
+        ZonedDateTime cursor = Instant.ofEpochMilli(from).atZone(ZoneId.systemDefault());
+        long start = from;
+
+        while (start < to) {
+            ZonedDateTime nextHour = cursor.truncatedTo(ChronoUnit.HOURS).plusHours(1);
+            long end = Math.min(to, nextHour.toInstant().toEpochMilli());
+            int hour = StatsRollups.hourOfWeek(cursor);
+            double weight = (end - start) * Math.exp(DECAY_RATE * (start - landmark));
+
+            observedWeight[hour] += weight;
+            if (open) openWeight[hour] += weight;
+
+            cursor = nextHour;
+            start = end;
+        }
+
+        observedThrough = Math.max(observedThrough, to);
+    }
+
+    /**
+     * Moves the landmark forward once weights get large. Every bucket scales by the same factor,
+     * so the probabilities don't change.
+     */
+    private void rescaleIfNeeded(long timestamp) {
+        double exponent = DECAY_RATE * (timestamp - landmark);
+        if (exponent < MAX_EXPONENT) return;
+
+        double scale = Math.exp(-exponent);
+        for (int i = 0; i < HOURS_PER_WEEK; i++) {
+            openWeight[i] *= scale;
+            observedWeight[i] *= scale;
+        }
+        landmark = timestamp;
+    }
+}
@@ -1,391 +1,444 @@
 package edu.mines.mmsbot.data.util;
 
 import edu.mines.mmsbot.MMSContext;
+import edu.mines.mmsbot.data.BackfillRunner;
+import edu.mines.mmsbot.data.Database;
+import edu.mines.mmsbot.data.dao.EventDao;
 import edu.mines.mmsbot.util.TimeUtils;
 
 import java.sql.*;
 import java.time.*;
 import java.util.*;
+import java.util.function.IntConsumer;
 
 public class OpStatsUtils implements MMSContext {
 
-    private final Connection conn;
-    
-    public OpStatsUtils(Connection conn) {
-        this.conn = conn;
+    private final Database db;
+    private final EventDao eventDao;
+    private final int spaceId;
+    private final SessionPairing sessions = new SessionPairing();
+    // Runs ahead of sessions by the writes that haven't committed yet, so a later event in the same group commit
+    // pairs against an earlier one. Only used by database work, and put back when a write is rolled back.
+    private final SessionPairing pendingSessions = new SessionPairing();
+    private final StatsAccumulator liveStats = new StatsAccumulator(sessions);
+    private final StatsRollups rollups;
+    private final SessionTable sessionTable;
+    private final EventStore events = new EventStore();
+    private final MemberIndex members = new MemberIndex(sessions);
+    private final OccupancyForecast forecast = new OccupancyForecast();
+    private final SessionLengthModel sessionLengths = new SessionLengthModel();
+    private final DataVersion dataVersion;
+
+    public OpStatsUtils(Database db, DataVersion dataVersion, int spaceId) {
+        this.db = db;
+        this.eventDao = new EventDao(db);
+        this.dataVersion = dataVersion;
+        this.spaceId = spaceId;
+        this.rollups = new StatsRollups(db, spaceId);
+        this.sessionTable = new SessionTable(db, spaceId);
     }
 
-    public long logEvent(Event event) {
-        try (PreparedStatement stmt = conn.prepareStatement("INSERT INTO events (timestamp, event_type, user_id) VALUES (?, ?, ?)")) {
-            stmt.setLong(1, event.timestamp);
-            stmt.setString(2, event.eventType.name());
-            stmt.setLong(3, event.userID);
-            stmt.executeUpdate();
-
-            try (ResultSet rs = stmt.getGeneratedKeys()) {
-                if (rs.next()) return rs.getLong(1);
-            }
+    /**
+     * Loads the event history into memory and folds it into the live statistics. Called once the tables exist.
+     */
+    public void loadStatistics() throws SQLException {
+        long start = System.currentTimeMillis();
 
-            throw new SQLException("Insert succeeded but no ID was returned.");
-        } catch (SQLException e) {
-            log().error("Error logging event: {}", e.getMessage(),e);
-            return -1;
-        }
+        db.read(conn -> {
+            events.load(conn, spaceId);
+            members.loadClaims(conn, spaceId);
+            return null;
+        });
+        events.forEach((id, timestamp, eventType, userId, localDay, minuteOfDay) -> {
+            Session session = sessions.accept(id, timestamp, eventType, userId, localDay, minuteOfDay);
+            liveStats.accept(timestamp, eventType, userId, localDay, minuteOfDay, session);
+            members.accept(timestamp, eventType, userId, localDay, minuteOfDay, session);
+            if (eventType == EventType.OPEN) forecast.open(timestamp);
+            if (session == null) return;
+            forecast.accept(session);
+            sessionLengths.accept(session);
+        });
+        pendingSessions.reset(sessions);
+
+        log().info("Loaded statistics for space {} from {} events in {}ms.", spaceId, events.size(), System.currentTimeMillis() - start);
     }
 
-    public boolean claimEvent(long eventId, long userId) throws SQLException {
-        log().info("Claiming event with ID {} for {}.", eventId,userId);
-        try (PreparedStatement stmt = conn.prepareStatement("UPDATE events SET user_id = ? WHERE id = ? AND user_id = -1")) {
-            stmt.setLong(1, userId);
-            stmt.setLong(2, eventId);
-
-            int rowsUpdated = stmt.executeUpdate();
-            log().info("Query updated {} rows.", rowsUpdated);
-
-            return rowsUpdated == 1;
+    /**
+     * Queues rebuilds of the rollup and session tables if they're empty while there are events, as they are in a
+     * database that predates them, so startup doesn't wait on them. Each rebuild is a single batch, since it has to
+     * read the whole history in the same write as it replaces the table.
+     */
+    public void scheduleRebuilds(BackfillRunner backfills) throws SQLException {
+        if (events.size() == 0) return;
+
+        if (rollups.isEmpty()) {
+            log().info("Rollup tables for space {} are empty, they will be rebuilt from the event history.", spaceId);
+            backfills.add("rollups.space_" + spaceId, (conn, cursor) -> {
+                rollups.rebuild(conn);
+                db.afterCommit(() -> dataVersion.bump(DataVersion.Source.EVENTS, spaceId));
+                return -1;
+            });
         }
-    }
-
-    public Event getEvent(long eventId) {
-        log().info("Fetching event with ID {}.", eventId);
-        try (PreparedStatement stmt = conn.prepareStatement("SELECT timestamp, event_type, user_id FROM events WHERE id = ?")) {
-            stmt.setLong(1, eventId);
-
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    long timestamp = rs.getLong("timestamp");
-                    String eventType = rs.getString("event_type");
-                    long userId = rs.getLong("user_id");
-
-                    return new Event(timestamp, EventType.valueOf(eventType), userId);
-                }
-            }
 
-            return null;
-        } catch (SQLException e) {
-            log().error("Error fetching event with id {}: {}.", eventId, e.getMessage(), e);
-            return null;
+        if (sessionTable.isEmpty()) {
+            log().info("Sessions table for space {} is empty, it will be rebuilt from the event history.", spaceId);
+            backfills.add("sessions.space_" + spaceId, (conn, cursor) -> {
+                sessionTable.rebuild(conn);
+                db.afterCommit(() -> dataVersion.bump(DataVersion.Source.EVENTS, spaceId));
+                return -1;
+            });
         }
     }
 
-    public Event getLastEvent(int offset) {
-        log().info("Retrieving event with offset {}...", offset);
+    public void rebuildRollups() throws SQLException {
+        rollups.rebuild();
+    }
 
-        try (PreparedStatement stmt = conn.prepareStatement("SELECT timestamp, event_type, user_id FROM events ORDER BY timestamp DESC LIMIT 1 OFFSET ?")) {
+    public void rebuildSessions() throws SQLException {
+        sessionTable.rebuild();
+    }
 
-            stmt.setInt(1, offset);
+    /**
+     * @return the new event's ID, or -1 if it couldn't be logged
+     */
+    public long logEvent(Event event) {
+        long[] ids = logEvents(List.of(event));
+        return ids.length == 0 ? -1 : ids[0];
+    }
 
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    long stamp = rs.getLong("timestamp");
-                    log().info("Event was on {}", TimeUtils.formatDate(stamp));
-                    return new Event(
-                            stamp,
-                            EventType.valueOf(rs.getString("event_type")),
-                            rs.getLong("user_id")
-                    );
+    /**
+     * Logs several events, in order, in one transaction.
+     * @return the new events' IDs, or an empty array if they couldn't be logged
+     */
+    public long[] logEvents(List<Event> newEvents) {
+        try {
+            return db.write(conn -> {
+                SessionPairing before = pendingSessions.copy();
+                db.onRollback(() -> pendingSessions.reset(before));
+
+                long[] ids = new long[newEvents.size()];
+                TimeUtils.LocalBucket[] buckets = new TimeUtils.LocalBucket[ids.length];
+                for (int i = 0; i < ids.length; i++) {
+                    buckets[i] = TimeUtils.LocalBucket.of(newEvents.get(i).timestamp);
+                    ids[i] = insertEvent(conn, newEvents.get(i), buckets[i]);
                 }
-            }
-
-            return null;
 
+                // Nothing in memory sees the batch until all of it is committed, so a rolled back write leaves no trace
+                db.afterCommit(() -> {
+                    for (int i = 0; i < ids.length; i++) applyEvent(ids[i], newEvents.get(i), buckets[i]);
+                    dataVersion.bump(DataVersion.Source.EVENTS, spaceId);
+                });
+                return ids;
+            });
         } catch (SQLException e) {
-            log().error("Error getting event with offset {}: {}", offset, e.getMessage(),e);
-            return null;
+            log().error("Error logging event: {}", e.getMessage(),e);
+            return new long[0];
         }
     }
 
-    public SessionStats[] getSessionStatistics() {
-        try (Statement stmt = conn.createStatement()) {
-            try (ResultSet rs = stmt.executeQuery(
-                    "SELECT timestamp, event_type FROM events ORDER BY timestamp"
-            )) {
-
-                List<Long> openDurations = new ArrayList<>();
-                List<Long> closedDurations = new ArrayList<>();
-
-                Long lastOpenTime = null;
-                Long lastCloseTime = null;
-
-                while (rs.next()) {
-                    long timestamp = rs.getLong("timestamp");
-                    String eventType = rs.getString("event_type");
+    /**
+     * Writes an event's row and everything derived from it, advancing the pending pairing for the next one.
+     */
+    private long insertEvent(Connection conn, Event event, TimeUtils.LocalBucket bucket) throws SQLException {
+        long id = eventDao.insert(conn, event, bucket, spaceId);
 
-                    if ("OPEN".equals(eventType)) {
-                        if (lastCloseTime != null) {
-                            closedDurations.add(timestamp - lastCloseTime);
-                        }
-                        lastOpenTime = timestamp;
-                    } else if ("LOCK".equals(eventType) && lastOpenTime != null) {
-                        openDurations.add(timestamp - lastOpenTime);
-                        lastCloseTime = timestamp;
-                        lastOpenTime = null;
-                    }
-                }
+        Session session = pendingSessions.closedBy(id, event.timestamp, event.eventType, event.userID);
+        rollups.recordEvent(conn, event.timestamp, event.eventType, event.userID, bucket, session);
+        if (session != null) sessionTable.record(conn, session);
 
-                if (lastOpenTime != null) {
-                    openDurations.add(System.currentTimeMillis() - lastOpenTime);
-                }
+        pendingSessions.accept(id, event.timestamp, event.eventType, event.userID, bucket.epochDay(), bucket.minuteOfDay());
+        return id;
+    }
 
-                return new SessionStats[]{
-                        buildStats(openDurations),
-                        buildStats(closedDurations)
-                };
-            }
-        } catch (SQLException e) {
-            log().error("Error calculating session statistics: {}", e.getMessage(), e);
-            return new SessionStats[] {
-                    new SessionStats(0, 0, 0f, 0, 0, 0, 0),
-                    new SessionStats(0, 0, 0f, 0, 0, 0, 0)
-            };
+    private void applyEvent(long id, Event event, TimeUtils.LocalBucket bucket) {
+        Session session = sessions.accept(id, event.timestamp, event.eventType, event.userID, bucket.epochDay(), bucket.minuteOfDay());
+        events.append(id, event.timestamp, event.eventType, event.userID, bucket.epochDay(), bucket.minuteOfDay());
+        liveStats.accept(event.timestamp, event.eventType, event.userID, bucket.epochDay(), bucket.minuteOfDay(), session);
+        members.accept(event.timestamp, event.eventType, event.userID, bucket.epochDay(), bucket.minuteOfDay(), session);
+        if (event.eventType == EventType.OPEN) forecast.open(event.timestamp);
+        if (session != null) {
+            forecast.accept(session);
+            sessionLengths.accept(session);
         }
     }
 
+    public boolean claimEvent(long eventId, long userId) throws SQLException {
+        log().info("Claiming event with ID {} for {}.", eventId,userId);
+        return db.write(conn -> {
+            if (!eventDao.claim(conn, eventId, userId, spaceId)) {
+                log().info("Event {} was already claimed.", eventId);
+                return false;
+            }
 
-    private SessionStats buildStats(List<Long> durations) {
-        if (durations.isEmpty()) return new SessionStats(0, 0, 0f, 0, 0, 0, 0);
-
-        durations.sort(Long::compareTo);
-
-        long totalTime = durations.stream().mapToLong(Long::longValue).sum();
-        int count = durations.size();
-
-        long average = totalTime / count;
-
-        long median = (count % 2 == 0)
-                ? (durations.get(count / 2 - 1) + durations.get(count / 2)) / 2
-                : durations.get(count / 2);
+            Event claimed = getEvent(eventId);
+            Session session = null;
+            if (claimed != null) {
+                rollups.recordClaim(conn, claimed.timestamp(), claimed.eventType(), userId);
+                sessionTable.recordClaim(conn, eventId, claimed.eventType(), userId);
+                if (claimed.eventType() == EventType.OPEN) session = sessionTable.getStartedBy(conn, eventId);
+            }
 
-        double variance = durations.stream()
-                .mapToDouble(d -> Math.pow(d - average, 2))
-                .average()
-                .orElse(0);
+            SessionPairing before = pendingSessions.copy();
+            db.onRollback(() -> pendingSessions.reset(before));
+            pendingSessions.claim(eventId, userId);
+
+            Session startedBy = session;
+            db.afterCommit(() -> {
+                events.claim(eventId, userId);
+                sessions.claim(eventId, userId);
+                if (claimed != null) {
+                    TimeUtils.LocalBucket bucket = TimeUtils.LocalBucket.of(claimed.timestamp());
+                    liveStats.claim(claimed.eventType(), userId);
+                    members.claim(claimed.timestamp(), claimed.eventType(), userId, bucket.epochDay(), bucket.minuteOfDay(), startedBy);
+                }
+                dataVersion.bump(DataVersion.Source.CLAIMS, spaceId);
+            });
+            return true;
+        });
+    }
 
-        float stdDev = (float) Math.sqrt(variance);
+    public Event getEvent(long eventId) {
+        log().info("Fetching event with ID {}.", eventId);
+        return events.get(events.indexOf(eventId));
+    }
 
-        long longest = durations.get(count - 1);
-        long shortest = durations.getFirst();
+    public Event getLastEvent(int offset) {
+        log().info("Retrieving event with offset {}...", offset);
 
-        return new SessionStats(
-                average,
-                median,
-                stdDev,
-                longest,
-                shortest,
-                count,
-                totalTime
-        );
+        Event event = events.get(events.size() - 1 - offset);
+        if (event != null) log().info("Event was on {}", TimeUtils.formatDate(event.timestamp()));
+        return event;
     }
 
-    public TimeOfDayStats getTimeOfDayStatistics() {
-        try (Statement stmt = conn.createStatement()) {
-            ResultSet rs = stmt.executeQuery("SELECT timestamp, event_type FROM events ORDER BY timestamp");
+    /**
+     * Returns every operating statistic from the live aggregates without querying the database.
+     */
+    public StatsSnapshot getSnapshot() {
+        return liveStats.snapshot();
+    }
 
-            List<OperatingHours> operatingHours = new ArrayList<>();
-            List<LocalTime> openTimes = new ArrayList<>();
-            List<LocalTime> closeTimes = new ArrayList<>();
+    /**
+     * One member's history, read from the per-member aggregates.
+     */
+    public MemberStats getMemberStatistics(long userId) {
+        return members.stats(userId);
+    }
 
-            LocalTime lastOpen = null;
+    public OccupancyForecast getForecast() {
+        return forecast;
+    }
 
-            while (rs.next()) {
-                long timestamp = rs.getLong("timestamp");
-                String eventType = rs.getString("event_type");
+    public SessionLengthModel getSessionLengths() {
+        return sessionLengths;
+    }
 
-                LocalTime time = Instant.ofEpochMilli(timestamp)
-                        .atZone(ZoneId.systemDefault())
-                        .toLocalTime();
+    /**
+     * @return when the in-progress session started, or null if the space is closed
+     */
+    public Long getOpenSince() {
+        return sessions.getOpenSince();
+    }
 
-                switch (eventType) {
-                    case "OPEN" -> {
-                        lastOpen = time;
-                        openTimes.add(time);
-                    }
-                    case "LOCK" -> {
-                        if (lastOpen != null) {
-                            operatingHours.add(new OperatingHours(lastOpen, time));
-                            closeTimes.add(time);
-                            lastOpen = null;
-                        }
-                    }
-                }
-            }
+    /**
+     * The live aggregates, for callers that only need part of a snapshot.
+     */
+    public StatsAccumulator getLiveStats() {
+        return liveStats;
+    }
 
-            return new TimeOfDayStats(
-                    getAverageTime(openTimes),
-                    getAverageTime(closeTimes),
-                    operatingHours
-            );
+    /**
+     * Summarises a range of local days, inclusive, from the in-memory range index.
+     */
+    public WindowStats getWindowStatistics(LocalDate from, LocalDate to) {
+        return liveStats.windowStats(from, to);
+    }
 
+    /**
+     * Totals the completed sessions that started on a range of local days, inclusive, from the sessions table.
+     */
+    public SessionSummary getSessionSummary(LocalDate from, LocalDate to) {
+        ZoneId zone = ZoneId.systemDefault();
+        try {
+            return sessionTable.summarize(from.atStartOfDay(zone).toInstant().toEpochMilli(),
+                    to.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli());
         } catch (SQLException e) {
-            log().error("Error calculating time of day statistics: {}", e.getMessage(), e);
-            return new TimeOfDayStats(null, null, List.of());
+            log().error("Error reading sessions: {}", e.getMessage(), e);
+            return new SessionSummary(0, 0, 0);
         }
     }
 
-    public DayOfWeekStats getDayOfWeekStatistics() {
-        try (Statement stmt = conn.createStatement()) {
-            try (ResultSet rs = stmt.executeQuery("SELECT timestamp, event_type FROM events ORDER BY timestamp")) {
-
-                Map<DayOfWeek, Integer> opensByDay = new EnumMap<>(DayOfWeek.class);
-                Map<DayOfWeek, Long> durationByDay = new EnumMap<>(DayOfWeek.class);
-
-                for (DayOfWeek day : DayOfWeek.values()) {
-                    opensByDay.put(day, 0);
-                    durationByDay.put(day, 0L);
-                }
+    /**
+     * Day of week statistics for a range of local days, read from the daily rollups.
+     * Unlike the live statistics, open time is split across the days a session spans.
+     */
+    public DayOfWeekStats getDayOfWeekStatistics(LocalDate from, LocalDate to) {
+        Map<DayOfWeek, Integer> opensByDay = new EnumMap<>(DayOfWeek.class);
+        Map<DayOfWeek, Long> durationByDay = new EnumMap<>(DayOfWeek.class);
+
+        for (DayOfWeek day : DayOfWeek.values()) {
+            opensByDay.put(day, 0);
+            durationByDay.put(day, 0L);
+        }
 
-                Long lastOpenTime = null;
-                DayOfWeek lastOpenDay = null;
-
-                while (rs.next()) {
-                    long timestamp = rs.getLong("timestamp");
-                    String eventType = rs.getString("event_type");
-
-                    LocalDate date = Instant.ofEpochMilli(timestamp)
-                            .atZone(ZoneId.systemDefault())
-                            .toLocalDate();
-                    DayOfWeek day = date.getDayOfWeek();
-
-                    if (eventType.equals("OPEN")) {
-                        opensByDay.put(day, opensByDay.get(day) + 1);
-                        lastOpenTime = timestamp;
-                        lastOpenDay = day;
-                    } else if (eventType.equals("LOCK") && lastOpenTime != null && lastOpenDay != null) {
-                        long duration = timestamp - lastOpenTime;
-                        durationByDay.put(lastOpenDay, durationByDay.get(lastOpenDay) + duration);
-                        lastOpenTime = null;
-                        lastOpenDay = null;
+        try {
+            // Epoch day 0 was a Thursday, so shifting by 3 makes Monday 0 like DayOfWeek.ordinal()
+            db.read(conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement("""
+                    SELECT (day + 3) % 7, SUM(open_count), SUM(open_ms) FROM daily_rollups
+                    WHERE space_id = ? AND day BETWEEN ? AND ? GROUP BY (day + 3) % 7
+                """)) {
+                    stmt.setInt(1, spaceId);
+                    stmt.setLong(2, from.toEpochDay());
+                    stmt.setLong(3, to.toEpochDay());
+
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            DayOfWeek day = DayOfWeek.values()[rs.getInt(1)];
+                            opensByDay.put(day, rs.getInt(2));
+                            durationByDay.put(day, rs.getLong(3));
+                        }
                     }
                 }
-
-                DayOfWeek busiestDay = durationByDay.entrySet().stream()
-                        .max(Map.Entry.comparingByValue())
-                        .map(Map.Entry::getKey)
-                        .orElse(null);
-
-                return new DayOfWeekStats(busiestDay, opensByDay, durationByDay);
-            }
+                return null;
+            });
         } catch (SQLException e) {
-            log().error("Error calculating day of week statistics: {}", e.getMessage(),e);
-            return new DayOfWeekStats(null, new EnumMap<>(DayOfWeek.class), new EnumMap<>(DayOfWeek.class));
+            log().error("Error reading day of week rollups: {}", e.getMessage(), e);
         }
-    }
-
-    public UserStats getUserStatistics() {
-        try (Statement stmt = conn.createStatement()) {
-            try (ResultSet rs = stmt.executeQuery("SELECT user_id, event_type FROM events ORDER BY timestamp")) {
 
-                Map<Long, Integer> opensByUser = new HashMap<>();
-                Map<Long, Integer> locksByUser = new HashMap<>();
+        DayOfWeek busiestDay = durationByDay.entrySet().stream()
+                .max(Map.Entry.comparingByValue())
+                .map(Map.Entry::getKey)
+                .orElse(null);
 
-                while (rs.next()) {
-                    long userId = rs.getLong("user_id");
-                    if (userId == -1) continue;
-                    String eventType = rs.getString("event_type");
+        return new DayOfWeekStats(busiestDay, opensByDay, durationByDay);
+    }
 
-                    if (eventType.equals("OPEN")) {
-                        opensByUser.put(userId, opensByUser.getOrDefault(userId, 0) + 1);
-                    } else if (eventType.equals("LOCK")) {
-                        locksByUser.put(userId, locksByUser.getOrDefault(userId, 0) + 1);
+    /**
+     * Per-user open and lock counts for a range of local days, read from the user rollups.
+     */
+    public UserStats getUserStatistics(LocalDate from, LocalDate to) {
+        Map<Long, Integer> opensByUser = new HashMap<>();
+        Map<Long, Integer> locksByUser = new HashMap<>();
+
+        try {
+            db.read(conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement("""
+                    SELECT user_id, SUM(opens), SUM(locks) FROM user_daily_rollups
+                    WHERE space_id = ? AND day BETWEEN ? AND ? GROUP BY user_id
+                """)) {
+                    stmt.setInt(1, spaceId);
+                    stmt.setLong(2, from.toEpochDay());
+                    stmt.setLong(3, to.toEpochDay());
+
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            if (rs.getInt(2) > 0) opensByUser.put(rs.getLong(1), rs.getInt(2));
+                            if (rs.getInt(3) > 0) locksByUser.put(rs.getLong(1), rs.getInt(3));
+                        }
                     }
                 }
-
-                return new UserStats(opensByUser, locksByUser);
-            }
+                return null;
+            });
         } catch (SQLException e) {
-            log().error("Error calculating user statistics: {}", e.getMessage(),e);
-            return new UserStats(new HashMap<>(), new HashMap<>());
+            log().error("Error reading user rollups: {}", e.getMessage(), e);
         }
-    }
-
-    public StreakStats getStreakStatistics() {
-        try (Statement stmt = conn.createStatement()) {
-            try (ResultSet rs = stmt.executeQuery("SELECT timestamp, event_type FROM events ORDER BY timestamp")) {
-
-                Set<LocalDate> datesOpen = new HashSet<>();
-
-                while (rs.next()) {
-                    long timestamp = rs.getLong("timestamp");
-                    String eventType = rs.getString("event_type");
-
-                    LocalDate date = Instant.ofEpochMilli(timestamp)
-                            .atZone(ZoneId.systemDefault())
-                            .toLocalDate();
 
-                    if (eventType.equals("OPEN")) datesOpen.add(date);
-                }
-
-                int currentStreak = 0;
-                LocalDate checkDate = LocalDate.now();
+        return new UserStats(opensByUser, locksByUser);
+    }
 
-                while (datesOpen.contains(checkDate)) {
-                    currentStreak++;
-                    checkDate = checkDate.minusDays(1);
+    /**
+     * Total open time for each hour of the week (Monday 00:00 is index 0), read from the hourly rollups.
+     */
+    public long[] getOpenTimeByHourOfWeek() {
+        long[] openTime = new long[168];
+
+        try {
+            db.read(conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement("SELECT hour_of_week, open_ms FROM hourly_rollups WHERE space_id = ?")) {
+                    stmt.setInt(1, spaceId);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) openTime[rs.getInt(1)] = rs.getLong(2);
+                    }
                 }
-
-                List<LocalDate> sortedDates = datesOpen.stream()
-                        .sorted()
-                        .toList();
-
-                int longestStreak = getLongestStreak(sortedDates);
-
-                return new StreakStats(currentStreak, longestStreak, datesOpen.size());
-            }
+                return null;
+            });
         } catch (SQLException e) {
-            log().error("Error calculating streak statistics: {}", e.getMessage(),e);
-            return new StreakStats(0, 0, 0);
+            log().error("Error reading hourly rollups: {}", e.getMessage(), e);
         }
-    }
 
-    private int getLongestStreak(List<LocalDate> sortedDates) {
-        int longestStreak = 0;
-        int tempStreak = 0;
-        LocalDate previousDate = null;
-
-        for (LocalDate date : sortedDates) {
-            if (previousDate == null || date.equals(previousDate.plusDays(1))) {
-                tempStreak++;
-            } else {
-                longestStreak = Math.max(longestStreak, tempStreak);
-                tempStreak = 1;
-            }
-            previousDate = date;
-        }
-        longestStreak = Math.max(longestStreak, tempStreak);
-        return longestStreak;
+        return openTime;
     }
 
-    private LocalTime getAverageTime(List<LocalTime> times) {
-        if (times.isEmpty()) return null;
-
-        long totalSeconds = times.stream()
-                .mapToLong(LocalTime::toSecondOfDay)
-                .sum();
+    public EventStore getEventStore() {
+        return events;
+    }
 
-        long avgSeconds = totalSeconds / times.size();
-        return LocalTime.ofSecondOfDay(avgSeconds);
+    public int getSpaceId() {
+        return spaceId;
     }
 
     public record SessionStats(
             long averageDuration,
             long medianDuration,
+            long p90Duration,
+            long p99Duration,
             float standardDeviation,
             long longestSession,
             long shortestSession,
             int totalSessions,
-            long totalSessionTime
-    ) {}
+            long totalSessionTime,
+            int[] distribution
+    ) {
+        // Session length histogram bins: under 15 minutes, 30 minutes, 1, 2, 4 and 8 hours, then anything longer
+        public static final long[] DISTRIBUTION_BOUNDS = {900_000L, 1_800_000L, 3_600_000L, 7_200_000L, 14_400_000L, 28_800_000L};
+        public static final String[] DISTRIBUTION_LABELS = {"<15m", "<30m", "<1h", "<2h", "<4h", "<8h", "8h+"};
+        public static final SessionStats EMPTY = new SessionStats(0, 0, 0, 0, 0f, 0, 0, 0, 0, new int[DISTRIBUTION_BOUNDS.length + 1]);
+
+        public static int distributionBin(long duration) {
+            int bin = 0;
+            while (bin < DISTRIBUTION_BOUNDS.length && duration >= DISTRIBUTION_BOUNDS[bin]) bin++;
+            return bin;
+        }
+    }
 
     public record TimeOfDayStats(
             LocalTime averageOpenTime,
             LocalTime averageCloseTime,
-            List<OperatingHours> operatingHours
+            int[] opensByHour,
+            int[] closesByHour,
+            int[] activeByHour
     ) {}
 
     public record OperatingHours(
             LocalTime open,
             LocalTime close
-    ) {}
+    ) {
+        /**
+         * Visits every hour of the day the space was open for, wrapping past midnight for overnight operation.
+         */
+        public void forEachActiveHour(IntConsumer consumer) {
+            forEachActiveHour(open.getHour() * 60 + open.getMinute(), close.getHour() * 60 + close.getMinute(), consumer);
+        }
+
+        /**
+         * Same as {@link #forEachActiveHour(IntConsumer)}, for opening and closing times given as minutes of the day.
+         */
+        public static void forEachActiveHour(int openMinute, int closeMinute, IntConsumer consumer) {
+            int startHour = openMinute / 60;
+            int endHour = closeMinute / 60;
+
+            // Same-day operation
+            if (closeMinute >= openMinute) {
+                for (int h = startHour; h < endHour; h++) consumer.accept(h);
+            }
+
+            // Overnight operation
+            else {
+                for (int h = startHour; h < 24; h++) consumer.accept(h);
+                for (int h = 0; h < endHour; h++) consumer.accept(h);
+            }
+        }
+    }
 
 
     public record DayOfWeekStats(
@@ -399,15 +452,109 @@ public class OpStatsUtils implements MMSContext {
             Map<Long, Integer> locksByUser
     ) {}
 
+    public record MemberStats(
+            long userId,
+            int opens,
+            int locks,
+            int claimedEvents,
+            long openTime,
+            LocalTime averageOpenTime,
+            int[] opensByHour,
+            Long lastOpen,
+            int currentStreak,
+            int longestStreak,
+            int daysOpened
+    ) {
+        static MemberStats empty(long userId) {
+            return new MemberStats(userId, 0, 0, 0, 0, null, new int[24], null, 0, 0, 0);
+        }
+    }
+
     public record StreakStats(
             int currentStreak,
             int longestStreak,
             int totalDaysOpen
     ) {}
 
+    public record WindowStats(
+            LocalDate from,
+            LocalDate to,
+            long openTime,
+            int opens,
+            int locks,
+            int daysOpen,
+            int[] opensByDay,
+            long[] openTimeByDay
+    ) {}
+
+    /**
+     * A completed session, from the open that started it to the lock that ended it.
+     * The local day and minute of the open aren't stored, they're only carried along for the live statistics.
+     */
+    public record Session(
+            long openEventId,
+            long lockEventId,
+            long openTime,
+            long closeTime,
+            long opener,
+            long locker,
+            int openDay,
+            int openMinute
+    ) {
+        public long duration() {
+            return closeTime - openTime;
+        }
+    }
+
+    public record SessionSummary(
+            int sessions,
+            long totalDuration,
+            long longestSession
+    ) {
+        public long averageDuration() {
+            return sessions == 0 ? 0 : totalDuration / sessions;
+        }
+    }
+
+    public record StatsSnapshot(
+            SessionStats openSessions,
+            SessionStats closedSessions,
+            TimeOfDayStats timeOfDay,
+            DayOfWeekStats dayOfWeek,
+            UserStats users,
+            StreakStats streaks
+    ) {}
+
     public record Event(long timestamp, EventType eventType, long userID) {}
 
+    /**
+     * Kinds of event. Each is stored in the events table and the event store as its code, which must never change
+     * once used. New types take the next free code.
+     */
     public enum EventType {
-        OPEN, LOCK, OVERRIDE_OPEN, OVERRIDE_LOCK, CLEAR_OVERRIDE,
+        OPEN(0), LOCK(1), OVERRIDE_OPEN(2), OVERRIDE_LOCK(3), CLEAR_OVERRIDE(4);
+
+        private static final EventType[] BY_CODE = new EventType[values().length];
+
+        static {
+            for (EventType type : values()) BY_CODE[type.code] = type;
+        }
+
+        private final byte code;
+
+        EventType(int code) {
+            this.code = (byte) code;
+        }
+
+        public byte code() {
+            return code;
+        }
+
+        public static EventType fromCode(int code) {
+            if (code < 0 || code >= BY_CODE.length || BY_CODE[code] == null) {
+                throw new IllegalArgumentException("Unknown event type code " + code);
+            }
+            return BY_CODE[code];
+        }
     }
 }
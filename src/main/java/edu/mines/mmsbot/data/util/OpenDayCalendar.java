@@ -0,0 +1,64 @@
+package edu.mines.mmsbot.data.util;
+
+import java.util.BitSet;
+
+/**
+ * The set of local days the space was open, as a bitmap indexed by epoch day. Streaks and range counts are
+ * answered a machine word at a time instead of walking a sorted list of dates.
+ */
+public class OpenDayCalendar {
+
+    private final BitSet days = new BitSet();
+    private int longestStreak = 0;
+
+    /**
+     * Marks a day as open. Days may arrive in any order.
+     */
+    public void add(long epochDay) {
+        int day = (int) epochDay;
+        if (days.get(day)) return;
+
+        days.set(day);
+        // The new day may have joined two runs, so measure the whole run it's now part of
+        int start = days.previousClearBit(day) + 1;
+        int end = days.nextClearBit(day);
+        longestStreak = Math.max(longestStreak, end - start);
+    }
+
+    public boolean contains(long epochDay) {
+        return days.get((int) epochDay);
+    }
+
+    /**
+     * @return how many consecutive days up to and including today were open, or 0 if today wasn't
+     */
+    public int currentStreak(long today) {
+        int day = (int) today;
+        if (!days.get(day)) return 0;
+        return day - days.previousClearBit(day);
+    }
+
+    public int longestStreak() {
+        return longestStreak;
+    }
+
+    public int totalDays() {
+        return days.cardinality();
+    }
+
+    /**
+     * @return how many days from one epoch day through another, inclusive, were open
+     */
+    public int count(long fromDay, long toDay) {
+        if (toDay < fromDay) return 0;
+        return days.get((int) fromDay, (int) toDay + 1).cardinality();
+    }
+
+    /**
+     * @return the open days from one epoch day through another, inclusive, with bit 0 being the first day
+     */
+    public BitSet range(long fromDay, long toDay) {
+        if (toDay < fromDay) return new BitSet();
+        return days.get((int) fromDay, (int) toDay + 1);
+    }
+}
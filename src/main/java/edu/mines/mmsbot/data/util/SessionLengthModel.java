@@ -0,0 +1,59 @@
+package edu.mines.mmsbot.data.util;
+
+import edu.mines.mmsbot.data.util.OpStatsUtils.Session;
+import edu.mines.mmsbot.util.TimeUtils;
+
+/**
+ * Running mean and variance of session length for each hour of the week a session can start in, so an open
+ * session can be judged against sessions that started at a similar time. Each completed session is an O(1)
+ * update with Welford's algorithm.
+ */
+public class SessionLengthModel {
+
+    // Sessions running this many standard deviations past the mean are unusual
+    private static final double DEVIATIONS = 3;
+    // Hours with fewer sessions than this fall back to every session
+    private static final int MIN_SAMPLES = 5;
+    private static final long MIN_BOUND = 2 * 3_600_000L;
+    private static final long DEFAULT_BOUND = 12 * 3_600_000L;
+
+    private final Welford[] byHour = new Welford[OccupancyForecast.HOURS_PER_WEEK];
+    private final Welford overall = new Welford();
+
+    public SessionLengthModel() {
+        for (int i = 0; i < byHour.length; i++) byHour[i] = new Welford();
+    }
+
+    /**
+     * Feeds a completed session in.
+     */
+    public synchronized void accept(Session session) {
+        byHour[StatsRollups.hourOfWeek(session.openDay(), session.openMinute())].add(session.duration());
+        overall.add(session.duration());
+    }
+
+    /**
+     * @return how long a session starting at a time can run before it's longer than expected
+     */
+    public synchronized long upperBound(long openTime) {
+        TimeUtils.LocalBucket bucket = TimeUtils.LocalBucket.of(openTime);
+        Welford stats = byHour[StatsRollups.hourOfWeek(bucket.epochDay(), bucket.minuteOfDay())];
+        if (stats.count < MIN_SAMPLES) stats = overall;
+        if (stats.count < MIN_SAMPLES) return DEFAULT_BOUND;
+
+        return Math.max(MIN_BOUND, Math.round(stats.mean + DEVIATIONS * Math.sqrt(stats.m2 / stats.count)));
+    }
+
+    private static final class Welford {
+        int count;
+        double mean;
+        double m2;
+
+        void add(long duration) {
+            count++;
+            double delta = duration - mean;
+            mean += delta / count;
+            m2 += delta * (duration - mean);
+        }
+    }
+}
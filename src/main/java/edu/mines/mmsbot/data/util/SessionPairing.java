@@ -0,0 +1,92 @@
+package edu.mines.mmsbot.data.util;
+
+import edu.mines.mmsbot.data.util.OpStatsUtils.EventType;
+import edu.mines.mmsbot.data.util.OpStatsUtils.Session;
+
+/**
+ * Turns the event stream into sessions. An open starts a session, a repeated open restarts it, and a lock ends it.
+ * A lock while nothing is open ends nothing. Everything that works with sessions is fed from here instead of
+ * pairing events itself, so they all agree on what a session is.
+ */
+public class SessionPairing {
+
+    private long openEventId = -1;
+    private long openTime;
+    private long opener;
+    private int openDay;
+    private int openMinute;
+
+    /**
+     * @return the session an event would close, without feeding the event in
+     */
+    public synchronized Session closedBy(long eventId, long timestamp, EventType eventType, long userId) {
+        if (eventType != EventType.LOCK || openEventId == -1) return null;
+        return new Session(openEventId, eventId, openTime, timestamp, opener, userId, openDay, openMinute);
+    }
+
+    /**
+     * Feeds the next event in. Events are expected in timestamp order.
+     * @return the session the event closed, or null if it didn't close one
+     */
+    public synchronized Session accept(long eventId, long timestamp, EventType eventType, long userId, int localDay, int minuteOfDay) {
+        Session session = closedBy(eventId, timestamp, eventType, userId);
+
+        if (eventType == EventType.OPEN) {
+            openEventId = eventId;
+            openTime = timestamp;
+            opener = userId;
+            openDay = localDay;
+            openMinute = minuteOfDay;
+        } else if (eventType == EventType.LOCK) {
+            openEventId = -1;
+        }
+
+        return session;
+    }
+
+    /**
+     * Credits the in-progress session to a member if the claimed event is the open that started it.
+     */
+    public synchronized void claim(long eventId, long userId) {
+        if (eventId == openEventId) opener = userId;
+    }
+
+    /**
+     * @return a separate pairing in the same state, for running events ahead or putting this one back later
+     */
+    public synchronized SessionPairing copy() {
+        SessionPairing copy = new SessionPairing();
+        copy.openEventId = openEventId;
+        copy.openTime = openTime;
+        copy.opener = opener;
+        copy.openDay = openDay;
+        copy.openMinute = openMinute;
+        return copy;
+    }
+
+    /**
+     * Puts this pairing into the state of a copy.
+     */
+    public synchronized void reset(SessionPairing from) {
+        SessionPairing state = from.copy();
+        openEventId = state.openEventId;
+        openTime = state.openTime;
+        opener = state.opener;
+        openDay = state.openDay;
+        openMinute = state.openMinute;
+    }
+
+    /**
+     * @return when the in-progress session started, or null if the space is closed
+     */
+    public synchronized Long getOpenSince() {
+        return openEventId == -1 ? null : openTime;
+    }
+
+    /**
+     * @return who opened the in-progress session, or -1 if nobody has claimed it or the space is closed
+     */
+    public synchronized long getOpener() {
+        return openEventId == -1 ? -1 : opener;
+    }
+}
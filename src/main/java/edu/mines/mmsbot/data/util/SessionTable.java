@@ -0,0 +1,173 @@
+package edu.mines.mmsbot.data.util;
+
+import edu.mines.mmsbot.MMSContext;
+import edu.mines.mmsbot.data.Database;
+import edu.mines.mmsbot.data.util.OpStatsUtils.EventType;
+import edu.mines.mmsbot.data.util.OpStatsUtils.Session;
+import edu.mines.mmsbot.data.util.OpStatsUtils.SessionSummary;
+import edu.mines.mmsbot.util.TimeUtils;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Maintains the sessions table, one row per completed session. Rows are written as locks are logged, and
+ * {@link #rebuild()} derives them from the raw events for databases that predate the table.
+ */
+public class SessionTable implements MMSContext {
+
+    private static final String INSERT = """
+        INSERT OR REPLACE INTO sessions (open_event_id, lock_event_id, open_ts, close_ts, duration, opener, locker, space_id)
+        VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+    """;
+    private static final String CLAIM_OPEN = "UPDATE sessions SET opener = ? WHERE open_event_id = ?";
+    private static final String CLAIM_LOCK = "UPDATE sessions SET locker = ? WHERE lock_event_id = ?";
+    private static final String STARTED_BY = "SELECT open_event_id, lock_event_id, open_ts, close_ts, opener, locker FROM sessions WHERE open_event_id = ?";
+    private static final String SUMMARIZE = """
+        SELECT COUNT(*), COALESCE(SUM(duration), 0), COALESCE(MAX(duration), 0) FROM sessions
+        WHERE space_id = ? AND open_ts >= ? AND open_ts < ?
+    """;
+
+    private final Database db;
+    private final int spaceId;
+
+    public SessionTable(Database db, int spaceId) {
+        this.db = db;
+        this.spaceId = spaceId;
+    }
+
+    public boolean isEmpty() throws SQLException {
+        return db.read(conn -> {
+            try (PreparedStatement stmt = conn.prepareStatement("SELECT EXISTS(SELECT 1 FROM sessions WHERE space_id = ?)")) {
+                stmt.setInt(1, spaceId);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    return !rs.next() || rs.getInt(1) == 0;
+                }
+            }
+        });
+    }
+
+    /**
+     * Adds a freshly closed session. Should run in the same transaction as the lock's insert.
+     */
+    void record(Connection conn, Session session) throws SQLException {
+        long start = System.nanoTime();
+        PreparedStatement stmt = db.prepare(conn, INSERT);
+        bind(stmt, session);
+        stmt.executeUpdate();
+        db.recordTiming("sessions.insert", start);
+    }
+
+    /**
+     * Credits a claimed open or lock to the member on the session it belongs to.
+     */
+    void recordClaim(Connection conn, long eventId, EventType eventType, long userId) throws SQLException {
+        String sql = switch (eventType) {
+            case OPEN -> CLAIM_OPEN;
+            case LOCK -> CLAIM_LOCK;
+            default -> null;
+        };
+        if (sql == null) return;
+
+        long start = System.nanoTime();
+        PreparedStatement stmt = db.prepare(conn, sql);
+        stmt.setLong(1, userId);
+        stmt.setLong(2, eventId);
+        stmt.executeUpdate();
+        db.recordTiming("sessions.claim", start);
+    }
+
+    /**
+     * @return the completed session an open started, or null if it was restarted or is still in progress
+     */
+    public Session getStartedBy(Connection conn, long openEventId) throws SQLException {
+        PreparedStatement stmt = db.prepare(conn, STARTED_BY);
+        stmt.setLong(1, openEventId);
+
+        try (ResultSet rs = stmt.executeQuery()) {
+            if (!rs.next()) return null;
+
+            TimeUtils.LocalBucket bucket = TimeUtils.LocalBucket.of(rs.getLong(3));
+            return new Session(rs.getLong(1), rs.getLong(2), rs.getLong(3), rs.getLong(4), rs.getLong(5), rs.getLong(6),
+                    bucket.epochDay(), bucket.minuteOfDay());
+        }
+    }
+
+    /**
+     * Totals the completed sessions that started in a span of time, using the index on open_ts.
+     */
+    public SessionSummary summarize(long from, long to) throws SQLException {
+        return db.read(conn -> {
+            long start = System.nanoTime();
+            PreparedStatement stmt = db.prepare(conn, SUMMARIZE);
+            stmt.setInt(1, spaceId);
+            stmt.setLong(2, from);
+            stmt.setLong(3, to);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                SessionSummary summary = new SessionSummary(rs.getInt(1), rs.getLong(2), rs.getLong(3));
+                db.recordTiming("sessions.summarize", start);
+                return summary;
+            }
+        });
+    }
+
+    /**
+     * Re-derives every session from the event history in a single transaction.
+     */
+    public void rebuild() throws SQLException {
+        db.write(conn -> {
+            rebuild(conn);
+            return null;
+        });
+    }
+
+    /**
+     * Re-derives every session from the event history. Has to run inside a write, which the history is read in too,
+     * so an event logged while this runs is either in it or written after it, never wiped by it.
+     */
+    void rebuild(Connection conn) throws SQLException {
+        long start = System.currentTimeMillis();
+
+        SessionPairing pairing = new SessionPairing();
+        List<Session> sessions = new ArrayList<>();
+        // Loaded from the table rather than the live store, which doesn't have writes queued ahead of this yet
+        EventStore history = new EventStore();
+        history.load(conn, spaceId);
+        history.forEach((id, timestamp, eventType, userId, localDay, minuteOfDay) -> {
+            Session session = pairing.accept(id, timestamp, eventType, userId, localDay, minuteOfDay);
+            if (session != null) sessions.add(session);
+        });
+
+        try (PreparedStatement clear = conn.prepareStatement("DELETE FROM sessions WHERE space_id = ?");
+             PreparedStatement stmt = conn.prepareStatement("""
+                 INSERT INTO sessions (open_event_id, lock_event_id, open_ts, close_ts, duration, opener, locker, space_id)
+                 VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+             """)) {
+            clear.setInt(1, spaceId);
+            clear.executeUpdate();
+
+            for (int i = 0; i < sessions.size(); i++) {
+                bind(stmt, sessions.get(i));
+                stmt.addBatch();
+                if ((i + 1) % 1000 == 0) stmt.executeBatch();
+            }
+            stmt.executeBatch();
+        }
+
+        log().info("Rebuilt {} sessions in {}ms.", sessions.size(), System.currentTimeMillis() - start);
+    }
+
+    private void bind(PreparedStatement stmt, Session session) throws SQLException {
+        stmt.setLong(1, session.openEventId());
+        stmt.setLong(2, session.lockEventId());
+        stmt.setLong(3, session.openTime());
+        stmt.setLong(4, session.closeTime());
+        stmt.setLong(5, session.duration());
+        stmt.setLong(6, session.opener());
+        stmt.setLong(7, session.locker());
+        stmt.setInt(8, spaceId);
+    }
+}
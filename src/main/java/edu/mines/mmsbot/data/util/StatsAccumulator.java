@@ -0,0 +1,303 @@
+package edu.mines.mmsbot.data.util;
+
+import edu.mines.mmsbot.data.util.OpStatsUtils.*;
+import edu.mines.mmsbot.util.TimeUtils;
+
+import java.time.*;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Keeps every aggregate the statistics report needs up to date as events are logged.
+ * It is folded over the events table once at startup and then updated in constant time per event,
+ * so taking a snapshot never touches the database.
+ */
+public class StatsAccumulator {
+
+    private final RunningStats openSessions = new RunningStats();
+    private final RunningStats closedSessions = new RunningStats();
+    private Long lastCloseTime = null;
+
+    private long openSecondsTotal = 0;
+    private int openTimeCount = 0;
+    private long closeSecondsTotal = 0;
+    private int closeTimeCount = 0;
+    private final int[] opensByHour = new int[24];
+    private final int[] closesByHour = new int[24];
+    private final int[] activeByHour = new int[24];
+    private final long[] openTimeByHourOfWeek = new long[168];
+
+    private final int[] opensByDay = new int[7];
+    private final long[] durationByDay = new long[7];
+
+    private final Map<Long, Integer> opensByUser = new HashMap<>();
+    private final Map<Long, Integer> locksByUser = new HashMap<>();
+
+    private final OpenDayCalendar openDays = new OpenDayCalendar();
+
+    private final DailyRangeIndex rangeIndex = new DailyRangeIndex();
+
+    // Where the in-progress session comes from, so it's counted the same way everywhere
+    private final SessionPairing sessions;
+
+    public StatsAccumulator(SessionPairing sessions) {
+        this.sessions = sessions;
+    }
+
+    /**
+     * Feeds the next event into every aggregate. Events are expected in timestamp order.
+     * @param localDay the local epoch day the event happened on
+     * @param minuteOfDay the local minute of the day the event happened at
+     * @param session the session the event closed, or null
+     */
+    public synchronized void accept(long timestamp, EventType eventType, long userId, int localDay, int minuteOfDay, Session session) {
+        switch (eventType) {
+            case OPEN -> acceptOpen(timestamp, userId, localDay, minuteOfDay);
+            case LOCK -> acceptLock(userId, localDay, minuteOfDay, session);
+            default -> {} // Overrides don't affect operating statistics
+        }
+    }
+
+    /**
+     * Credits a previously anonymous event to the member who claimed it.
+     */
+    public synchronized void claim(EventType eventType, long userId) {
+        switch (eventType) {
+            case OPEN -> opensByUser.merge(userId, 1, Integer::sum);
+            case LOCK -> locksByUser.merge(userId, 1, Integer::sum);
+            default -> {}
+        }
+    }
+
+    private void acceptOpen(long timestamp, long userId, int localDay, int minuteOfDay) {
+        // The space has been closed since the last session ended. A repeated open counts the gap again, as it always has
+        if (lastCloseTime != null) closedSessions.add(timestamp - lastCloseTime);
+
+        openSecondsTotal += minuteOfDay * 60L;
+        openTimeCount++;
+
+        opensByDay[TimeUtils.dayOfWeek(localDay)]++;
+
+        openDays.add(localDay);
+        rangeIndex.addOpen(localDay);
+
+        if (userId != -1) opensByUser.merge(userId, 1, Integer::sum);
+    }
+
+    private void acceptLock(long userId, int localDay, int minuteOfDay, Session session) {
+        if (userId != -1) locksByUser.merge(userId, 1, Integer::sum);
+        rangeIndex.addLock(localDay);
+        if (session == null) return;
+
+        long duration = session.duration();
+
+        openSessions.add(duration);
+        forEachDaySlice(session.openTime(), session.closeTime(), (day, slice) -> rangeIndex.addOpenTime(day.toEpochDay(), slice));
+
+        opensByHour[session.openMinute() / 60]++;
+        closesByHour[minuteOfDay / 60]++;
+        OperatingHours.forEachActiveHour(session.openMinute(), minuteOfDay, hour -> activeByHour[hour]++);
+        addHourlyOpenTime(session.openTime(), session.closeTime());
+        closeSecondsTotal += minuteOfDay * 60L;
+        closeTimeCount++;
+
+        durationByDay[TimeUtils.dayOfWeek(session.openDay())] += duration;
+
+        lastCloseTime = session.closeTime();
+    }
+
+    /**
+     * Splits a session across the local hours of the week it spans, the same way the hourly rollups do.
+     */
+    private void addHourlyOpenTime(long from, long to) {
+        ZonedDateTime cursor = Instant.ofEpochMilli(from).atZone(ZoneId.systemDefault());
+
+        while (cursor.toInstant().toEpochMilli() < to) {
+            long start = cursor.toInstant().toEpochMilli();
+            ZonedDateTime nextHour = cursor.truncatedTo(ChronoUnit.HOURS).plusHours(1);
+            openTimeByHourOfWeek[StatsRollups.hourOfWeek(cursor)] += Math.min(to, nextHour.toInstant().toEpochMilli()) - start;
+            cursor = nextHour;
+        }
+    }
+
+    /**
+     * Splits a span of time at local midnights, giving each day the part of the span that fell on it.
+     */
+    private void forEachDaySlice(long from, long to, ObjLongConsumer<LocalDate> consumer) {
+        ZoneId zone = ZoneId.systemDefault();
+        LocalDate day = Instant.ofEpochMilli(from).atZone(zone).toLocalDate();
+        long cursor = from;
+
+        while (cursor < to) {
+            long end = Math.min(to, day.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli());
+            consumer.accept(day, end - cursor);
+            cursor = end;
+            day = day.plusDays(1);
+        }
+    }
+
+    /**
+     * Summarises a range of local days, including the part of an in-progress session that falls inside it.
+     */
+    public synchronized WindowStats windowStats(LocalDate from, LocalDate to) {
+        WindowStats stats = rangeIndex.query(from, to);
+        Long openSince = sessions.getOpenSince();
+        if (openSince == null) return stats;
+
+        long[] openTime = {stats.openTime()};
+        long[] openTimeByDay = stats.openTimeByDay();
+
+        forEachDaySlice(openSince, System.currentTimeMillis(), (day, duration) -> {
+            if (day.isBefore(from) || day.isAfter(to)) return;
+            openTime[0] += duration;
+            openTimeByDay[day.getDayOfWeek().ordinal()] += duration;
+        });
+
+        return new WindowStats(from, to, openTime[0], stats.opens(), stats.locks(), stats.daysOpen(), stats.opensByDay(), openTimeByDay);
+    }
+
+    /**
+     * Builds an immutable view of the aggregates. An in-progress open session is counted up to now.
+     */
+    public synchronized StatsSnapshot snapshot() {
+        return new StatsSnapshot(
+                openSessionStats(),
+                closedSessionStats(),
+                timeOfDayStats(),
+                dayOfWeekStats(),
+                userStats(),
+                streakStats()
+        );
+    }
+
+    /**
+     * Open session statistics, counting an in-progress session up to now.
+     */
+    public synchronized SessionStats openSessionStats() {
+        Long openSince = sessions.getOpenSince();
+        return openSessions.toStats(openSince == null ? null : System.currentTimeMillis() - openSince);
+    }
+
+    public synchronized SessionStats closedSessionStats() {
+        return closedSessions.toStats(null);
+    }
+
+    public synchronized TimeOfDayStats timeOfDayStats() {
+        return new TimeOfDayStats(
+                averageTime(openSecondsTotal, openTimeCount),
+                averageTime(closeSecondsTotal, closeTimeCount),
+                opensByHour.clone(),
+                closesByHour.clone(),
+                activeByHour.clone()
+        );
+    }
+
+    /**
+     * @return how long the space has been open in each hour of the week, Monday 00:00 first, from closed sessions
+     */
+    public synchronized long[] openTimeByHourOfWeek() {
+        return openTimeByHourOfWeek.clone();
+    }
+
+    public synchronized DayOfWeekStats dayOfWeekStats() {
+        Map<DayOfWeek, Integer> opens = new EnumMap<>(DayOfWeek.class);
+        Map<DayOfWeek, Long> durations = new EnumMap<>(DayOfWeek.class);
+        DayOfWeek busiestDay = null;
+
+        for (DayOfWeek day : DayOfWeek.values()) {
+            opens.put(day, opensByDay[day.ordinal()]);
+            durations.put(day, durationByDay[day.ordinal()]);
+            if (busiestDay == null || durationByDay[day.ordinal()] > durationByDay[busiestDay.ordinal()]) busiestDay = day;
+        }
+
+        return new DayOfWeekStats(busiestDay, opens, durations);
+    }
+
+    public synchronized UserStats userStats() {
+        return new UserStats(new HashMap<>(opensByUser), new HashMap<>(locksByUser));
+    }
+
+    /**
+     * @return the open days from one date through another, inclusive, with bit 0 being the first date
+     */
+    public synchronized BitSet openDays(LocalDate from, LocalDate to) {
+        return openDays.range(from.toEpochDay(), to.toEpochDay());
+    }
+
+    public synchronized int countOpenDays(LocalDate from, LocalDate to) {
+        return openDays.count(from.toEpochDay(), to.toEpochDay());
+    }
+
+    public synchronized StreakStats streakStats() {
+        return new StreakStats(openDays.currentStreak(LocalDate.now().toEpochDay()), openDays.longestStreak(), openDays.totalDays());
+    }
+
+    private LocalTime averageTime(long totalSeconds, int count) {
+        if (count == 0) return null;
+        return LocalTime.ofSecondOfDay(totalSeconds / count);
+    }
+
+    /**
+     * Running duration statistics using Welford's algorithm for the variance and a quantile sketch for percentiles.
+     */
+    private static final class RunningStats {
+        private int count = 0;
+        private long total = 0;
+        private double mean = 0;
+        private double m2 = 0;
+        private long longest = 0;
+        private long shortest = Long.MAX_VALUE;
+        private final DurationSketch sketch = new DurationSketch();
+
+        void add(long duration) {
+            count++;
+            total += duration;
+            double delta = duration - mean;
+            mean += delta / count;
+            m2 += delta * (duration - mean);
+            longest = Math.max(longest, duration);
+            shortest = Math.min(shortest, duration);
+            sketch.add(duration);
+        }
+
+        /**
+         * @param inProgress the length of a session that hasn't ended yet, or null
+         */
+        SessionStats toStats(Long inProgress) {
+            int n = count;
+            long sum = total;
+            double m = m2;
+            long max = longest;
+            long min = shortest;
+            long extra = inProgress == null ? -1 : inProgress;
+
+            if (inProgress != null) {
+                n++;
+                sum += inProgress;
+                double delta = inProgress - mean;
+                m += delta * (inProgress - (mean + delta / n));
+                max = Math.max(max, inProgress);
+                min = Math.min(min, inProgress);
+            }
+
+            if (n == 0) return SessionStats.EMPTY;
+
+            int[] distribution = sketch.histogram(SessionStats.DISTRIBUTION_BOUNDS);
+            if (inProgress != null) distribution[SessionStats.distributionBin(inProgress)]++;
+
+            return new SessionStats(
+                    sum / n,
+                    sketch.quantile(0.5, extra),
+                    sketch.quantile(0.9, extra),
+                    sketch.quantile(0.99, extra),
+                    (float) Math.sqrt(m / n),
+                    max,
+                    min,
+                    n,
+                    sum,
+                    distribution
+            );
+        }
+    }
+}
@@ -1,57 +1,108 @@
 package edu.mines.mmsbot.data.util;
 
+import edu.mines.mmsbot.data.util.DataVersion.Source;
+import edu.mines.mmsbot.data.util.DataVersion.Stamp;
+import edu.mines.mmsbot.util.ChartUtils.ChartImage;
 import net.dv8tion.jda.api.EmbedBuilder;
 
 import java.time.Instant;
 import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.Map;
+import java.util.Set;
 
+/**
+ * Cached report embeds, memoised per section and each tagged with the data versions it was built from.
+ * Sections are added as they're first asked for, and only rebuilt once one of the sources they read from has changed.
+ */
 public class StatsReport {
 
-    private final Map<StatType, EmbedBuilder> embedCache;
-    private final Instant generatedAt;
-    private static final long CACHE_DURATION_MS = 15 * 60 * 1000;
+    private final Map<StatType, Section> sections;
 
-    public StatsReport(Map<StatType, EmbedBuilder> embedCache) {
-        this.embedCache = new EnumMap<>(embedCache);
-        this.generatedAt = Instant.now();
+    private record Section(SectionContent content, Stamp stamp, Instant generatedAt) {}
+
+    /**
+     * A section's embed, and the chart image it shows if it has one.
+     */
+    public record SectionContent(EmbedBuilder embed, ChartImage chart) {}
+
+    public StatsReport() {
+        this.sections = new EnumMap<>(StatType.class);
+    }
+
+    private StatsReport(Map<StatType, Section> previous, Map<StatType, SectionContent> contents, Stamp stamp) {
+        this.sections = new EnumMap<>(previous);
+        Instant now = Instant.now();
+        contents.forEach((statType, content) -> sections.put(statType, new Section(content, stamp, now)));
+    }
+
+    /**
+     * @return a copy of this report with some sections replaced
+     */
+    public StatsReport withSections(Map<StatType, SectionContent> contents, Stamp stamp) {
+        return new StatsReport(sections, contents, stamp);
     }
 
     public EmbedBuilder getEmbed(StatType statType) {
-        EmbedBuilder cached = embedCache.get(statType);
+        Section cached = sections.get(statType);
         if (cached == null) return null;
 
-        return new EmbedBuilder(cached);
+        return new EmbedBuilder(cached.content().embed());
+    }
+
+    /**
+     * @return the chart a section's embed shows, or null if it doesn't have one
+     */
+    public ChartImage getChart(StatType statType) {
+        Section cached = sections.get(statType);
+        return cached == null ? null : cached.content().chart();
+    }
+
+    public boolean hasSection(StatType statType) {
+        return sections.containsKey(statType);
     }
 
-    public boolean isExpired() {
-        return Instant.now().isAfter(generatedAt.plusMillis(CACHE_DURATION_MS));
+    public boolean isStale(StatType statType, Stamp current) {
+        Section cached = sections.get(statType);
+        return cached == null || cached.stamp().changed(current, statType.inputs);
     }
 
-    public long getAge() {
-        return Instant.now().toEpochMilli() - generatedAt.toEpochMilli();
+    /**
+     * @return every memoised section that was built from older versions of its inputs
+     */
+    public Set<StatType> getStaleSections(Stamp current) {
+        Set<StatType> stale = EnumSet.noneOf(StatType.class);
+        sections.forEach((statType, cached) -> {
+            if (cached.stamp().changed(current, statType.inputs)) stale.add(statType);
+        });
+        return stale;
     }
 
-    public Instant getGeneratedAt() {
-        return generatedAt;
+    public long getAge(StatType statType) {
+        Section cached = sections.get(statType);
+        return cached == null ? 0 : Instant.now().toEpochMilli() - cached.generatedAt().toEpochMilli();
     }
 
     public enum StatType {
-        SESSION_AVERAGES("Session Averages", "Average duration of open and closed periods"),
-        TIME_OF_DAY("Time of Day", "When the space typically opens and closes"),
-        DAY_OF_WEEK("Day of Week", "Which days of the week are most active"),
-        USER_LEADERBOARD("User Leaderboard", "Most active users for opening and locking"),
-        STREAK_STATS("Streak Statistics", "Current and longest consecutive day streaks"),
-        HOURLY_HEATMAP("Hourly Heatmap", "Visual representation of hourly activity"),
-        CATS("meow~ :3","Find out which messages and users have the most cat reactions."),
-        SUMMARY("Statistics Summary", "Overview of all key statistics");
+        SESSION_AVERAGES("Session Averages", "Average duration of open and closed periods", Source.EVENTS, Source.CLOCK),
+        TIME_OF_DAY("Time of Day", "When the space typically opens and closes", Source.EVENTS),
+        DAY_OF_WEEK("Day of Week", "Which days of the week are most active", Source.EVENTS),
+        USER_LEADERBOARD("User Leaderboard", "Most active users for opening and locking", Source.EVENTS, Source.CLAIMS),
+        STREAK_STATS("Streak Statistics", "Current and longest consecutive day streaks", Source.EVENTS, Source.CLOCK),
+        CONTRIBUTIONS("Year at a Glance", "Every day the space was open over the past year", Source.EVENTS, Source.CLOCK),
+        HOURLY_HEATMAP("Hourly Heatmap", "Visual representation of hourly activity", Source.EVENTS),
+        CATS("meow~ :3","Find out which messages and users have the most cat reactions.", Source.REACTIONS),
+        SUMMARY("Statistics Summary", "Overview of all key statistics", Source.EVENTS, Source.CLOCK);
 
         public final String title;
         public final String description;
+        /** The data this section is built from */
+        public final Set<Source> inputs;
 
-        StatType(String title, String description) {
+        StatType(String title, String description, Source first, Source... rest) {
             this.title = title;
             this.description = description;
+            this.inputs = EnumSet.of(first, rest);
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,243 @@
+package edu.mines.mmsbot.data.util;
+
+import edu.mines.mmsbot.MMSContext;
+import edu.mines.mmsbot.data.Database;
+import edu.mines.mmsbot.data.util.OpStatsUtils.EventType;
+import edu.mines.mmsbot.data.util.OpStatsUtils.Session;
+import edu.mines.mmsbot.util.TimeUtils;
+
+import java.sql.*;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Maintains the daily, hour-of-week and per-user rollup tables. Each logged event adds its share to the rollups,
+ * and {@link #rebuild()} recomputes them from the raw events for databases that predate the tables.
+ */
+public class StatsRollups implements MMSContext {
+
+    private static final String DAILY_UPSERT = """
+        INSERT INTO daily_rollups (day, open_ms, open_count, lock_count, first_open, last_lock, space_id) VALUES (?, ?, ?, ?, ?, ?, ?)
+        ON CONFLICT(space_id, day) DO UPDATE SET
+            open_ms = open_ms + excluded.open_ms,
+            open_count = open_count + excluded.open_count,
+            lock_count = lock_count + excluded.lock_count,
+            first_open = COALESCE(MIN(first_open, excluded.first_open), first_open, excluded.first_open),
+            last_lock = COALESCE(MAX(last_lock, excluded.last_lock), last_lock, excluded.last_lock)
+    """;
+    private static final String HOURLY_UPSERT = """
+        INSERT INTO hourly_rollups (hour_of_week, open_ms, open_count, lock_count, space_id) VALUES (?, ?, ?, ?, ?)
+        ON CONFLICT(space_id, hour_of_week) DO UPDATE SET
+            open_ms = open_ms + excluded.open_ms,
+            open_count = open_count + excluded.open_count,
+            lock_count = lock_count + excluded.lock_count
+    """;
+    private static final String USER_UPSERT = """
+        INSERT INTO user_daily_rollups (user_id, day, opens, locks, space_id) VALUES (?, ?, ?, ?, ?)
+        ON CONFLICT(space_id, user_id, day) DO UPDATE SET
+            opens = opens + excluded.opens,
+            locks = locks + excluded.locks
+    """;
+
+    private final Database db;
+    private final int spaceId;
+
+    public StatsRollups(Database db, int spaceId) {
+        this.db = db;
+        this.spaceId = spaceId;
+    }
+
+    public boolean isEmpty() throws SQLException {
+        return db.read(conn -> {
+            try (PreparedStatement stmt = conn.prepareStatement("SELECT EXISTS(SELECT 1 FROM daily_rollups WHERE space_id = ?)")) {
+                stmt.setInt(1, spaceId);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    return !rs.next() || rs.getInt(1) == 0;
+                }
+            }
+        });
+    }
+
+    /**
+     * Adds a freshly logged event to the rollups. Should run in the same transaction as the event insert.
+     * @param session the session this event closes, or null if it doesn't close one
+     */
+    void recordEvent(Connection conn, long timestamp, EventType eventType, long userId, TimeUtils.LocalBucket bucket, Session session) throws SQLException {
+        Delta delta = new Delta();
+        delta.add(timestamp, eventType, userId, bucket.epochDay(), bucket.minuteOfDay(), session);
+        delta.apply(conn);
+    }
+
+    /**
+     * Credits a claimed event to the member's tallies.
+     */
+    void recordClaim(Connection conn, long timestamp, EventType eventType, long userId) throws SQLException {
+        Delta delta = new Delta();
+        delta.addUser(TimeUtils.LocalBucket.of(timestamp).epochDay(), eventType, userId);
+        delta.apply(conn);
+    }
+
+    /**
+     * Recomputes every rollup from the event history in a single transaction.
+     */
+    public void rebuild() throws SQLException {
+        db.write(conn -> {
+            rebuild(conn);
+            return null;
+        });
+    }
+
+    /**
+     * Recomputes every rollup from the event history. Has to run inside a write, which the history is read in too,
+     * so an event logged while this runs is either in it or written after it, never wiped by it.
+     */
+    void rebuild(Connection conn) throws SQLException {
+        long start = System.currentTimeMillis();
+
+        Delta delta = new Delta();
+        SessionPairing pairing = new SessionPairing();
+        // Loaded from the table rather than the live store, which doesn't have writes queued ahead of this yet
+        EventStore history = new EventStore();
+        history.load(conn, spaceId);
+        history.forEach((id, timestamp, eventType, userId, localDay, minuteOfDay) -> {
+            Session session = pairing.accept(id, timestamp, eventType, userId, localDay, minuteOfDay);
+            delta.add(timestamp, eventType, userId, localDay, minuteOfDay, session);
+        });
+
+        for (String table : new String[]{"daily_rollups", "hourly_rollups", "user_daily_rollups"}) {
+            try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM " + table + " WHERE space_id = ?")) {
+                stmt.setInt(1, spaceId);
+                stmt.executeUpdate();
+            }
+        }
+        delta.apply(conn);
+
+        log().info("Rebuilt {} daily rollups in {}ms.", delta.days.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Hour of the week a local time falls in, with Monday 00:00 as bucket 0.
+     */
+    static int hourOfWeek(ZonedDateTime time) {
+        return time.getDayOfWeek().ordinal() * 24 + time.getHour();
+    }
+
+    static int hourOfWeek(long localDay, int minuteOfDay) {
+        return TimeUtils.dayOfWeek(localDay) * 24 + minuteOfDay / 60;
+    }
+
+    private static final class DayRollup {
+        long openMs;
+        int openCount;
+        int lockCount;
+        Long firstOpen;
+        Long lastLock;
+    }
+
+    private static final class HourRollup {
+        long openMs;
+        int openCount;
+        int lockCount;
+    }
+
+    /**
+     * Rollup changes gathered in memory so a batch of events can be written with one statement per table.
+     */
+    private final class Delta {
+        private final Map<Long, DayRollup> days = new HashMap<>();
+        private final Map<Integer, HourRollup> hours = new HashMap<>();
+        private final Map<Long, Map<Long, int[]>> users = new HashMap<>();
+
+        void add(long timestamp, EventType eventType, long userId, long day, int minuteOfDay, Session session) {
+            if (eventType != EventType.OPEN && eventType != EventType.LOCK) return;
+
+            DayRollup dayRollup = days.computeIfAbsent(day, d -> new DayRollup());
+            HourRollup hourRollup = hours.computeIfAbsent(hourOfWeek(day, minuteOfDay), h -> new HourRollup());
+
+            if (eventType == EventType.OPEN) {
+                dayRollup.openCount++;
+                hourRollup.openCount++;
+                if (dayRollup.firstOpen == null || timestamp < dayRollup.firstOpen) dayRollup.firstOpen = timestamp;
+            } else {
+                dayRollup.lockCount++;
+                hourRollup.lockCount++;
+                if (dayRollup.lastLock == null || timestamp > dayRollup.lastLock) dayRollup.lastLock = timestamp;
+                if (session != null) addOpenTime(session.openTime(), session.closeTime());
+            }
+
+            addUser(day, eventType, userId);
+        }
+
+        void addUser(long day, EventType eventType, long userId) {
+            if (userId == -1) return;
+            int[] tally = users.computeIfAbsent(userId, u -> new HashMap<>()).computeIfAbsent(day, d -> new int[2]);
+            if (eventType == EventType.OPEN) tally[0]++;
+            else if (eventType == EventType.LOCK) tally[1]++;
+        }
+
+        /**
+         * Splits a session across the local hours (and therefore days) it spans.
+         */
+        private void addOpenTime(long from, long to) {
+            ZonedDateTime cursor = Instant.ofEpochMilli(from).atZone(ZoneId.systemDefault());
+
+            while (cursor.toInstant().toEpochMilli() < to) {
+                long start = cursor.toInstant().toEpochMilli();
+                ZonedDateTime nextHour = cursor.truncatedTo(ChronoUnit.HOURS).plusHours(1);
+                long end = Math.min(to, nextHour.toInstant().toEpochMilli());
+
+                days.computeIfAbsent(cursor.toLocalDate().toEpochDay(), d -> new DayRollup()).openMs += end - start;
+                hours.computeIfAbsent(hourOfWeek(cursor), h -> new HourRollup()).openMs += end - start;
+
+                cursor = nextHour;
+            }
+        }
+
+        void apply(Connection conn) throws SQLException {
+            long start = System.nanoTime();
+            PreparedStatement dailyStmt = db.prepare(conn, DAILY_UPSERT);
+            for (Map.Entry<Long, DayRollup> entry : days.entrySet()) {
+                DayRollup rollup = entry.getValue();
+                dailyStmt.setLong(1, entry.getKey());
+                dailyStmt.setLong(2, rollup.openMs);
+                dailyStmt.setInt(3, rollup.openCount);
+                dailyStmt.setInt(4, rollup.lockCount);
+                dailyStmt.setObject(5, rollup.firstOpen);
+                dailyStmt.setObject(6, rollup.lastLock);
+                dailyStmt.setInt(7, spaceId);
+                dailyStmt.addBatch();
+            }
+            dailyStmt.executeBatch();
+
+            PreparedStatement hourlyStmt = db.prepare(conn, HOURLY_UPSERT);
+            for (Map.Entry<Integer, HourRollup> entry : hours.entrySet()) {
+                HourRollup rollup = entry.getValue();
+                hourlyStmt.setInt(1, entry.getKey());
+                hourlyStmt.setLong(2, rollup.openMs);
+                hourlyStmt.setInt(3, rollup.openCount);
+                hourlyStmt.setInt(4, rollup.lockCount);
+                hourlyStmt.setInt(5, spaceId);
+                hourlyStmt.addBatch();
+            }
+            hourlyStmt.executeBatch();
+
+            PreparedStatement userStmt = db.prepare(conn, USER_UPSERT);
+            for (Map.Entry<Long, Map<Long, int[]>> user : users.entrySet()) {
+                for (Map.Entry<Long, int[]> day : user.getValue().entrySet()) {
+                    userStmt.setLong(1, user.getKey());
+                    userStmt.setLong(2, day.getKey());
+                    userStmt.setInt(3, day.getValue()[0]);
+                    userStmt.setInt(4, day.getValue()[1]);
+                    userStmt.setInt(5, spaceId);
+                    userStmt.addBatch();
+                }
+            }
+            userStmt.executeBatch();
+            db.recordTiming("rollups.apply", start);
+        }
+    }
+}
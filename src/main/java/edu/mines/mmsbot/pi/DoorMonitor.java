@@ -5,21 +5,32 @@ import com.pi4j.context.Context;
 import com.pi4j.io.gpio.digital.DigitalInput;
 import com.pi4j.plugin.gpiod.provider.gpio.digital.GpioDDigitalInputProvider;
 import edu.mines.mmsbot.MMSContext;
+import edu.mines.mmsbot.bot.framework.SpaceStatus;
 
 import java.util.Properties;
-import java.util.Scanner;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Watches one space's door sensor on its own thread and reports changes to that space's {@link SpaceStatus}.
+ */
 public class DoorMonitor implements MMSContext {
 
+    // Every monitor reads from the same GPIO chip, so they share one context
+    private static Context pi4j;
+
     private boolean monitoring;
     private Thread monitorThread;
     private final AtomicBoolean lastStableState = new AtomicBoolean(false);
+    private final SpaceStatus spaceStatus;
     private final boolean virtualMode;
     private final AtomicBoolean virtualSensorState = new AtomicBoolean(false);
+    private final BlockingQueue<Boolean> virtualReadings = new LinkedBlockingQueue<>();
 
-    public DoorMonitor(boolean virtualMode) {
+    public DoorMonitor(SpaceStatus spaceStatus, boolean virtualMode) {
+        this.spaceStatus = spaceStatus;
         this.virtualMode = virtualMode;
     }
 
@@ -28,11 +39,21 @@ public class DoorMonitor implements MMSContext {
      */
     private void reportSensorState(boolean sensorShowsLocked) {
         // Only report if state actually changed, otherwise overrides don't work
-        if (lastStableState.get() != sensorShowsLocked || sensorShowsLocked != spaceStatus().isSpaceLocked()) {
+        if (lastStableState.get() != sensorShowsLocked || sensorShowsLocked != spaceStatus.isSpaceLocked()) {
             lastStableState.set(sensorShowsLocked);
-            log().info("Door sensor detected state change: {}", sensorShowsLocked ? "LOCKED" : "OPEN");
-            spaceStatus().handleSensorStateChange(sensorShowsLocked, System.currentTimeMillis(),-1);
+            log().info("{} door sensor detected state change: {}", spaceStatus.getSpace().name, sensorShowsLocked ? "LOCKED" : "OPEN");
+            spaceStatus.handleSensorStateChange(sensorShowsLocked, System.currentTimeMillis(),-1);
+        }
+    }
+
+    private static synchronized Context pi4j() {
+        if (pi4j == null) {
+            pi4j = Pi4J.newContextBuilder()
+                    .add(GpioDDigitalInputProvider.newInstance())
+                    .setGpioChipName("gpiochip0")
+                    .build();
         }
+        return pi4j;
     }
 
     public void setupMonitor() {
@@ -43,22 +64,18 @@ public class DoorMonitor implements MMSContext {
             return;
         }
 
-        Context pi4j = Pi4J.newContextBuilder()
-                .add(GpioDDigitalInputProvider.newInstance())
-                .setGpioChipName("gpiochip0")
-                .build();
-
+        int spaceId = spaceStatus.getSpace().id;
         Properties properties = new Properties();
-        properties.put("id", "door-sensor");
-        properties.put("address", 4);
+        properties.put("id", "door-sensor-" + spaceId);
+        properties.put("address", spaceStatus.getSpace().gpioPin);
         properties.put("pull", "UP");
-        properties.put("name", "DOOR-SENSOR");
+        properties.put("name", "DOOR-SENSOR-" + spaceId);
 
-        var config = DigitalInput.newConfigBuilder(pi4j)
+        var config = DigitalInput.newConfigBuilder(pi4j())
                 .load(properties)
                 .build();
 
-        var input = pi4j.din().create(config);
+        var input = pi4j().din().create(config);
 
         // Initialize with current sensor state
         lastStableState.set(input.state().isHigh());
@@ -68,7 +85,7 @@ public class DoorMonitor implements MMSContext {
 
         monitorThread = new Thread(() -> {
             try {
-                log().info("Door monitor thread started. Initial sensor state: {}",
+                log().info("Door monitor thread for {} started. Initial sensor state: {}", spaceStatus.getSpace().name,
                         lastStableState.get() ? "HIGH (OPEN)" : "LOW (LOCKED)");
 
                 while (monitoring) {
@@ -100,62 +117,48 @@ public class DoorMonitor implements MMSContext {
             }
         });
 
-        monitorThread.setName("DoorMonitor-Thread");
+        monitorThread.setName("DoorMonitor-Thread-" + spaceId);
         monitorThread.setDaemon(false);
     }
 
     private void setupVirtualMonitor() {
-        log().info("Starting in VIRTUAL SENSOR mode for testing");
-        log().info("Commands: 'lock' or 'open' to change sensor state, 'status' to check, 'quit' to exit");
+        log().info("Starting {} in VIRTUAL SENSOR mode for testing", spaceStatus.getSpace().name);
 
         lastStableState.set(false);
 
         monitorThread = new Thread(() -> {
-            Scanner scanner = new Scanner(System.in);
-
-            while (monitoring) {
-                try {
-                    if (scanner.hasNextLine()) {
-                        String command = scanner.nextLine().trim().toLowerCase();
-
-                        switch (command) {
-                            case "lock" -> {
-                                virtualSensorState.set(true);
-                                log().info("Virtual sensor set to: LOCKED");
-                            }
-                            case "open" -> {
-                                virtualSensorState.set(false);
-                                log().info("Virtual sensor set to: OPEN");
-                            }
-                            case "status" -> {
-                                log().info("Current sensor state: {}", virtualSensorState.get() ? "LOCKED" : "OPEN");
-                                log().info("Last stable state: {}", lastStableState.get() ? "LOCKED" : "OPEN");
-                                continue;
-                            }
-                            case "exit", "quit" -> {
-                                monitoring = false;
-                                log().info("Exiting virtual sensor mode");
-                                return;
-                            }
-                            default -> {
-                                log().warn("Unknown command: {}. Use 'lock', 'open', 'status', or 'quit'", command);
-                                continue;
-                            }
-                        }
-                    }
-
-                    reportSensorState(virtualSensorState.get());
-                } catch (Exception ex) {
-                    log().error("Error in virtual sensor mode!", ex);
+            try {
+                while (monitoring) {
+                    reportSensorState(virtualReadings.take());
                 }
+            } catch (InterruptedException ex) {
+                monitoring = false;
+                log().info("Exiting virtual sensor mode for {}", spaceStatus.getSpace().name);
+            } catch (Exception ex) {
+                log().error("Error in virtual sensor mode!", ex);
             }
-            scanner.close();
         });
 
-        monitorThread.setName("VirtualDoorMonitor-Thread");
+        monitorThread.setName("VirtualDoorMonitor-Thread-" + spaceStatus.getSpace().id);
         monitorThread.setDaemon(false);
     }
 
+    /**
+     * Sets what the virtual sensor reads. Only used in virtual mode.
+     */
+    public void setVirtualSensorState(boolean locked) {
+        virtualSensorState.set(locked);
+        virtualReadings.add(locked);
+    }
+
+    public boolean getVirtualSensorState() {
+        return virtualSensorState.get();
+    }
+
+    public SpaceStatus getSpaceStatus() {
+        return spaceStatus;
+    }
+
     public Thread getMonitorThread() {
         return monitorThread;
     }
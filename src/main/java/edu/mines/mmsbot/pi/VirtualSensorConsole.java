@@ -0,0 +1,64 @@
+package edu.mines.mmsbot.pi;
+
+import edu.mines.mmsbot.MMSContext;
+
+import java.util.Map;
+import java.util.Scanner;
+
+/**
+ * Reads virtual sensor commands from the console and passes them to the matching space's {@link DoorMonitor}.
+ */
+public class VirtualSensorConsole implements MMSContext {
+
+    private final Map<Integer, DoorMonitor> monitors;
+
+    public VirtualSensorConsole(Map<Integer, DoorMonitor> monitors) {
+        this.monitors = monitors;
+    }
+
+    public void start() {
+        log().info("Commands: 'lock' or 'open' to change sensor state, followed by a space ID if there's more than one, 'status' to check, 'quit' to exit");
+
+        Thread thread = new Thread(() -> {
+            Scanner scanner = new Scanner(System.in);
+
+            while (scanner.hasNextLine()) {
+                String[] command = scanner.nextLine().trim().toLowerCase().split("\\s+");
+
+                try {
+                    switch (command[0]) {
+                        case "lock", "open" -> {
+                            DoorMonitor monitor = command.length > 1
+                                    ? monitors.get(Integer.parseInt(command[1]))
+                                    : monitors.get(config().targetServer.primarySpace().id);
+                            if (monitor == null) {
+                                log().warn("No space with ID {}. Known spaces: {}", command[1], monitors.keySet());
+                                continue;
+                            }
+
+                            monitor.setVirtualSensorState(command[0].equals("lock"));
+                            log().info("Virtual sensor for {} set to: {}", monitor.getSpaceStatus().getSpace().name, command[0].equals("lock") ? "LOCKED" : "OPEN");
+                        }
+                        case "status" -> monitors.forEach((id, monitor) -> {
+                            log().info("{} ({}) sensor state: {}", monitor.getSpaceStatus().getSpace().name, id, monitor.getVirtualSensorState() ? "LOCKED" : "OPEN");
+                            log().info("{} ({}) last stable state: {}", monitor.getSpaceStatus().getSpace().name, id, monitor.getLastStableState() ? "LOCKED" : "OPEN");
+                        });
+                        case "exit", "quit" -> {
+                            log().info("Exiting virtual sensor mode");
+                            monitors.values().forEach(DoorMonitor::stopMonitoring);
+                            scanner.close();
+                            return;
+                        }
+                        default -> log().warn("Unknown command: {}. Use 'lock', 'open', 'status', or 'quit'", command[0]);
+                    }
+                } catch (NumberFormatException ex) {
+                    log().warn("Space IDs are numbers, got: {}", command[1]);
+                }
+            }
+        });
+
+        thread.setName("VirtualSensorConsole-Thread");
+        thread.setDaemon(true);
+        thread.start();
+    }
+}
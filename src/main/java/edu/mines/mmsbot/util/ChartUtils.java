@@ -0,0 +1,214 @@
+package edu.mines.mmsbot.util;
+
+import net.dv8tion.jda.api.utils.FileUpload;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.time.format.TextStyle;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Renders statistics charts to PNG with Java2D. Images are cached by a hash of what they show, so identical data
+ * always produces the same file name and bytes without being drawn again.
+ */
+public final class ChartUtils {
+
+    private static final int MAX_CACHED = 32;
+    private static final Map<String, ChartImage> cache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ChartImage> eldest) {
+            return size() > MAX_CACHED;
+        }
+    });
+
+    private static final Color BACKGROUND = new Color(0x2B2D31);
+    private static final Color EMPTY = new Color(0x383A40);
+    private static final Color ACCENT = new Color(0x96BEF0);
+    private static final Color TEXT = new Color(0xDBDEE1);
+    private static final Font LABEL_FONT = new Font(Font.SANS_SERIF, Font.BOLD, 12);
+    private static final String[] DAY_LABELS = {"Mon", "Tue", "Wed", "Thu", "Fri", "Sat", "Sun"};
+
+    public record ChartImage(String fileName, byte[] png) {
+        public FileUpload toUpload() {
+            return FileUpload.fromData(png, fileName);
+        }
+
+        /**
+         * URL an embed uses to show this image once it's attached to the same message.
+         */
+        public String attachmentUrl() {
+            return "attachment://" + fileName;
+        }
+    }
+
+    /**
+     * Draws a 7 by 24 grid, one row per day starting Monday, shaded by each hour of the week's value.
+     */
+    public static ChartImage heatmap(String name, long[] valuesByHourOfWeek) {
+        return cached(name, Arrays.toString(valuesByHourOfWeek), () -> {
+            final int cell = 24, left = 44, top = 26, gap = 2;
+            return draw(left + 24 * cell + 12, top + 7 * cell + 12, g -> {
+                long max = Math.max(1, Arrays.stream(valuesByHourOfWeek).max().orElse(1));
+                FontMetrics metrics = g.getFontMetrics();
+
+                for (int hour = 0; hour < 24; hour += 3) {
+                    g.setColor(TEXT);
+                    g.drawString("%02d".formatted(hour), left + hour * cell + (cell - metrics.stringWidth("00")) / 2, top - 8);
+                }
+
+                for (int day = 0; day < 7; day++) {
+                    int y = top + day * cell;
+                    g.setColor(TEXT);
+                    g.drawString(DAY_LABELS[day], 8, y + (cell + metrics.getAscent()) / 2 - 2);
+
+                    for (int hour = 0; hour < 24; hour++) {
+                        long value = valuesByHourOfWeek[day * 24 + hour];
+                        g.setColor(value == 0 ? EMPTY : blend(EMPTY, ACCENT, 0.15 + 0.85 * value / max));
+                        g.fillRoundRect(left + hour * cell, y, cell - gap, cell - gap, 6, 6);
+                    }
+                }
+            });
+        });
+    }
+
+    /**
+     * Draws a grid of days in the style of a contribution graph, one column per week and one row per weekday.
+     * @param firstMonday the date of bit 0, which must be a Monday
+     * @param openDays which days to fill in
+     * @param lastDay the final day drawn, later days in its week are left out
+     */
+    public static ChartImage contributionGraph(String name, LocalDate firstMonday, BitSet openDays, LocalDate lastDay) {
+        String content = firstMonday + lastDay.toString() + Arrays.toString(openDays.toLongArray());
+        return cached(name, content, () -> {
+            final int cell = 13, gap = 3, left = 40, top = 24;
+            int dayCount = (int) (lastDay.toEpochDay() - firstMonday.toEpochDay()) + 1;
+            int weeks = (dayCount + 6) / 7;
+
+            return draw(left + weeks * (cell + gap) + 10, top + 7 * (cell + gap) + 8, g -> {
+                FontMetrics metrics = g.getFontMetrics();
+
+                g.setColor(TEXT);
+                for (int day = 0; day < 7; day += 2) {
+                    g.drawString(DAY_LABELS[day], 6, top + day * (cell + gap) + (cell + metrics.getAscent()) / 2 - 1);
+                }
+
+                int lastMonthLabel = -3;
+                for (int week = 0; week < weeks; week++) {
+                    LocalDate weekStart = firstMonday.plusWeeks(week);
+                    // Label a month over the first week that starts in it, skipping it if it would overlap the last label
+                    if ((week == 0 || weekStart.getDayOfMonth() <= 7) && week - lastMonthLabel > 2) {
+                        g.setColor(TEXT);
+                        g.drawString(weekStart.getMonth().getDisplayName(TextStyle.SHORT, Locale.US), left + week * (cell + gap), top - 8);
+                        lastMonthLabel = week;
+                    }
+
+                    for (int day = 0; day < 7; day++) {
+                        int index = week * 7 + day;
+                        if (index >= dayCount) break;
+
+                        g.setColor(openDays.get(index) ? ACCENT : EMPTY);
+                        g.fillRoundRect(left + week * (cell + gap), top + day * (cell + gap), cell, cell, 4, 4);
+                    }
+                }
+            });
+        });
+    }
+
+    /**
+     * Draws a vertical bar chart with a label under each bar and its value above it.
+     */
+    public static ChartImage barChart(String name, String[] labels, long[] values, String[] valueLabels) {
+        String content = Arrays.toString(labels) + Arrays.toString(values) + Arrays.toString(valueLabels);
+        return cached(name, content, () -> {
+            final int barWidth = 56, spacing = 16, left = 16, top = 28, chartHeight = 180, bottom = 28;
+            return draw(left * 2 + labels.length * (barWidth + spacing) - spacing, top + chartHeight + bottom, g -> {
+                long max = Math.max(1, Arrays.stream(values).max().orElse(1));
+                FontMetrics metrics = g.getFontMetrics();
+                int baseline = top + chartHeight;
+
+                for (int i = 0; i < labels.length; i++) {
+                    int x = left + i * (barWidth + spacing);
+                    int height = (int) Math.round((double) values[i] / max * chartHeight);
+
+                    g.setColor(EMPTY);
+                    g.fillRoundRect(x, top, barWidth, chartHeight, 8, 8);
+                    if (height > 0) {
+                        g.setColor(ACCENT);
+                        g.fillRoundRect(x, baseline - height, barWidth, height, 8, 8);
+                    }
+
+                    g.setColor(TEXT);
+                    g.drawString(labels[i], x + (barWidth - metrics.stringWidth(labels[i])) / 2, baseline + 18);
+                    g.drawString(valueLabels[i], x + (barWidth - metrics.stringWidth(valueLabels[i])) / 2, top - 8);
+                }
+            });
+        });
+    }
+
+    private static ChartImage cached(String name, String content, Supplier<BufferedImage> renderer) {
+        String fileName = name + "-" + hash(name + content) + ".png";
+
+        ChartImage image = cache.get(fileName);
+        if (image != null) return image;
+
+        image = new ChartImage(fileName, toPng(renderer.get()));
+        cache.put(fileName, image);
+        return image;
+    }
+
+    /**
+     * Creates an image with the chart background and has a painter draw on it, disposing of the graphics after.
+     */
+    private static BufferedImage draw(int width, int height, Consumer<Graphics2D> painter) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            g.setColor(BACKGROUND);
+            g.fillRect(0, 0, width, height);
+            g.setFont(LABEL_FONT);
+            painter.accept(g);
+        } finally {
+            g.dispose();
+        }
+        return image;
+    }
+
+    private static Color blend(Color from, Color to, double ratio) {
+        double r = Math.max(0, Math.min(1, ratio));
+        return new Color(
+                (int) Math.round(from.getRed() + (to.getRed() - from.getRed()) * r),
+                (int) Math.round(from.getGreen() + (to.getGreen() - from.getGreen()) * r),
+                (int) Math.round(from.getBlue() + (to.getBlue() - from.getBlue()) * r)
+        );
+    }
+
+    private static byte[] toPng(BufferedImage image) {
+        try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            ImageIO.write(image, "png", out);
+            return out.toByteArray();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static String hash(String content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 8);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is always available.", ex);
+        }
+    }
+}
@@ -1,17 +1,51 @@
 package edu.mines.mmsbot.util;
 
 import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.LocalDate;
 import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.Date;
 
 public final class TimeUtils {
 
+    /**
+     * Where a timestamp falls on the local calendar, worked out once with the zone's rules (including DST) so
+     * analytics can group events by plain integers.
+     * @param epochDay local date as days since 1970-01-01
+     * @param dayOfWeek 0 for Monday through 6 for Sunday
+     * @param minuteOfDay minutes since local midnight
+     */
+    public record LocalBucket(int epochDay, int dayOfWeek, int minuteOfDay) {
+        public static LocalBucket of(long milliseconds) {
+            ZonedDateTime time = Instant.ofEpochMilli(milliseconds).atZone(ZoneId.systemDefault());
+            return new LocalBucket(
+                    (int) time.toLocalDate().toEpochDay(),
+                    time.getDayOfWeek().ordinal(),
+                    time.getHour() * 60 + time.getMinute()
+            );
+        }
+    }
+
+    /**
+     * Day of the week of an epoch day, 0 for Monday through 6 for Sunday. 1970-01-01 was a Thursday.
+     */
+    public static int dayOfWeek(long epochDay) {
+        return Math.floorMod(epochDay + 3, 7);
+    }
+
     public static String formatDate(long milliseconds) {
         Date date = new Date(milliseconds);
         SimpleDateFormat sdf = new SimpleDateFormat("EEEE, MMMM d, yyyy, HH:mm");
         return sdf.format(date);
     }
 
+    public static String formatDate(LocalDate date) {
+        return date.format(DateTimeFormatter.ofPattern("MMMM d, yyyy"));
+    }
+
     public static String formatDayTime(long milliseconds) {
         Date date = new Date(milliseconds);
         SimpleDateFormat sdf = new SimpleDateFormat("HH:mm");
@@ -0,0 +1,305 @@
+package edu.mines.mmsbot.web;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import edu.mines.mmsbot.MMSContext;
+import edu.mines.mmsbot.bot.framework.SpaceStatus;
+import edu.mines.mmsbot.data.util.DataVersion;
+import edu.mines.mmsbot.data.util.DataVersion.Source;
+import edu.mines.mmsbot.data.util.EventStore;
+import edu.mines.mmsbot.data.util.OpStatsUtils;
+import edu.mines.mmsbot.data.util.OpStatsUtils.SessionStats;
+import edu.mines.mmsbot.data.util.OpStatsUtils.StatsSnapshot;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalTime;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Read-only JSON API for door status and statistics, for the club website and hallway display.
+ * <p>
+ * Every response is built from the in-memory statistics and tagged with an ETag made from the data versions it
+ * depends on. A client sending that tag back in If-None-Match gets a 304 without anything being rebuilt, and
+ * unchanged bodies are served from a cache, so polling never touches the database. Displays that would rather not
+ * poll can hold /stream open instead, see {@link StatusStream}.
+ */
+public class StatusServer implements MMSContext {
+
+    private static final int DEFAULT_EVENT_LIMIT = 100;
+    private static final int MAX_EVENT_LIMIT = 1000;
+    private static final int MAX_CACHED_BODIES = 64;
+    private static final Set<Source> EVENT_SOURCES = EnumSet.of(Source.EVENTS, Source.CLAIMS);
+    private static final Set<Source> STATS_SOURCES = EnumSet.of(Source.EVENTS, Source.CLAIMS, Source.CLOCK);
+
+    private final Gson gson = new Gson();
+    private final HttpServer server;
+    private final StatusStream stream = new StatusStream();
+    // Last body served for each URL, reused while its ETag still matches. Event queries can ask for any timestamp,
+    // so only the most recently used are kept.
+    private final Map<String, CachedBody> bodies = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedBody> eldest) {
+            return size() > MAX_CACHED_BODIES;
+        }
+    });
+
+    private record CachedBody(String etag, byte[] body) {}
+
+    public StatusServer(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/status", this::handleStatus);
+        server.createContext("/events", this::handleEvents);
+        server.createContext("/stats", this::handleStats);
+        server.createContext("/stream", stream::handle);
+    }
+
+    public void start() {
+        stream.start();
+        server.start();
+        log().info("Status API listening on port {}.", server.getAddress().getPort());
+    }
+
+    public void stop() {
+        stream.stop();
+        server.stop(0);
+    }
+
+    private void handleStatus(HttpExchange exchange) throws IOException {
+        // Clearing an override changes the state without logging an event, so the states are part of the tag
+        StringBuilder etag = new StringBuilder("status-").append(dataVersion().stamp().tag(EnumSet.of(Source.EVENTS)));
+        for (SpaceStatus space : app().getSpaceStatuses()) etag.append('-').append(space.getState().ordinal());
+
+        respond(exchange, "status", etag.toString(), 5, () -> {
+            JsonArray spaces = new JsonArray();
+            for (SpaceStatus space : app().getSpaceStatuses()) {
+                JsonObject json = new JsonObject();
+                json.addProperty("id", space.getSpace().id);
+                json.addProperty("name", space.getSpace().name);
+                json.addProperty("state", space.getState().name());
+                json.addProperty("locked", space.getState().isLocked());
+                json.addProperty("overridden", space.getState().isOverridden());
+                json.addProperty("openSince", space.getOpStats().getOpenSince());
+
+                EventStore events = space.getOpStats().getEventStore();
+                OpStatsUtils.Event last = events.get(events.size() - 1);
+                json.addProperty("lastChange", last == null ? null : last.timestamp());
+                spaces.add(json);
+            }
+
+            JsonObject json = new JsonObject();
+            json.add("spaces", spaces);
+            return json;
+        });
+    }
+
+    private void handleEvents(HttpExchange exchange) throws IOException {
+        Map<String, String> query = query(exchange);
+        OpStatsUtils opStats = selectedSpace(query);
+        long since;
+        int limit;
+        try {
+            since = Long.parseLong(query.getOrDefault("since", "0"));
+            limit = Math.clamp(Integer.parseInt(query.getOrDefault("limit", String.valueOf(DEFAULT_EVENT_LIMIT))), 1, MAX_EVENT_LIMIT);
+        } catch (NumberFormatException ex) {
+            sendError(exchange, 400, "since and limit must be numbers");
+            return;
+        }
+        if (opStats == null) {
+            sendError(exchange, 404, "no such space");
+            return;
+        }
+
+        String cacheKey = "events-" + opStats.getSpaceId() + "-" + since + "-" + limit;
+        String etag = cacheKey + "-" + dataVersion().stamp(opStats.getSpaceId()).tag(EVENT_SOURCES);
+        respond(exchange, cacheKey, etag, 5, () -> {
+            JsonArray events = new JsonArray();
+            opStats.getEventStore().forEachSince(since, limit, (id, timestamp, eventType, userId, localDay, minuteOfDay) -> {
+                JsonObject json = new JsonObject();
+                json.addProperty("id", id);
+                json.addProperty("timestamp", timestamp);
+                json.addProperty("type", eventType.name());
+                // Discord IDs don't fit in a JavaScript number
+                json.addProperty("user", userId == -1 ? null : Long.toString(userId));
+                events.add(json);
+            });
+
+            JsonObject json = new JsonObject();
+            json.addProperty("space", opStats.getSpaceId());
+            json.add("events", events);
+            return json;
+        });
+    }
+
+    private void handleStats(HttpExchange exchange) throws IOException {
+        OpStatsUtils opStats = selectedSpace(query(exchange));
+        if (opStats == null) {
+            sendError(exchange, 404, "no such space");
+            return;
+        }
+
+        String etag = "stats-" + opStats.getSpaceId() + "-" + dataVersion().stamp(opStats.getSpaceId()).tag(STATS_SOURCES);
+        respond(exchange, "stats-" + opStats.getSpaceId(), etag, 60, () -> {
+            StatsSnapshot snapshot = opStats.getSnapshot();
+            SessionStats sessions = snapshot.openSessions();
+
+            JsonObject sessionJson = new JsonObject();
+            sessionJson.addProperty("count", sessions.totalSessions());
+            sessionJson.addProperty("totalMs", sessions.totalSessionTime());
+            sessionJson.addProperty("averageMs", sessions.averageDuration());
+            sessionJson.addProperty("medianMs", sessions.medianDuration());
+            sessionJson.addProperty("p90Ms", sessions.p90Duration());
+            sessionJson.addProperty("longestMs", sessions.longestSession());
+
+            JsonObject timeOfDay = new JsonObject();
+            timeOfDay.addProperty("averageOpen", formatTime(snapshot.timeOfDay().averageOpenTime()));
+            timeOfDay.addProperty("averageClose", formatTime(snapshot.timeOfDay().averageCloseTime()));
+            timeOfDay.add("opensByHour", gson.toJsonTree(snapshot.timeOfDay().opensByHour()));
+            timeOfDay.add("activeByHour", gson.toJsonTree(snapshot.timeOfDay().activeByHour()));
+
+            JsonObject streaks = new JsonObject();
+            streaks.addProperty("current", snapshot.streaks().currentStreak());
+            streaks.addProperty("longest", snapshot.streaks().longestStreak());
+            streaks.addProperty("totalDaysOpen", snapshot.streaks().totalDaysOpen());
+
+            JsonArray forecast = new JsonArray();
+            ZonedDateTime hour = ZonedDateTime.now().truncatedTo(ChronoUnit.HOURS);
+            for (int i = 0; i < 24; i++) {
+                JsonObject json = new JsonObject();
+                json.addProperty("hour", hour.toInstant().toEpochMilli());
+                double probability = opStats.getForecast().probability(hour);
+                json.addProperty("probability", probability < 0 ? null : probability);
+                forecast.add(json);
+                hour = hour.plusHours(1);
+            }
+
+            JsonObject json = new JsonObject();
+            json.addProperty("space", opStats.getSpaceId());
+            json.add("sessions", sessionJson);
+            json.add("timeOfDay", timeOfDay);
+            json.addProperty("busiestDay", snapshot.dayOfWeek().busiestDay() == null ? null : snapshot.dayOfWeek().busiestDay().name());
+            json.add("streaks", streaks);
+            json.add("forecast", forecast);
+            return json;
+        });
+    }
+
+    /**
+     * Answers a GET with a JSON body, or with a 304 if the client already has the version with this ETag.
+     * @param cacheKey key to keep the built body under, or null to not keep it
+     * @param maxAge how many seconds clients may reuse the response before checking back
+     */
+    private void respond(HttpExchange exchange, String cacheKey, String etag, int maxAge, Supplier<JsonElement> body)
+            throws IOException {
+        try (exchange) {
+            String method = exchange.getRequestMethod();
+            if (!method.equals("GET") && !method.equals("HEAD")) {
+                exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            String quoted = '"' + etag + '"';
+            exchange.getResponseHeaders().set("ETag", quoted);
+            exchange.getResponseHeaders().set("Cache-Control", "public, max-age=" + maxAge + ", must-revalidate");
+            exchange.getResponseHeaders().set("Access-Control-Allow-Origin", "*");
+            exchange.getResponseHeaders().set("Access-Control-Expose-Headers", "ETag");
+
+            if (matches(exchange.getRequestHeaders().getFirst("If-None-Match"), quoted)) {
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
+
+            CachedBody cached = cacheKey == null ? null : bodies.get(cacheKey);
+            if (cached == null || !cached.etag().equals(etag)) {
+                cached = new CachedBody(etag, gson.toJson(body.get()).getBytes(StandardCharsets.UTF_8));
+                if (cacheKey != null) bodies.put(cacheKey, cached);
+            }
+
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            if (method.equals("HEAD")) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+
+            exchange.sendResponseHeaders(200, cached.body().length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(cached.body());
+            }
+        } catch (RuntimeException ex) {
+            log().error("Error serving {}", exchange.getRequestURI(), ex);
+            throw ex;
+        }
+    }
+
+    /**
+     * @return true if an If-None-Match header lists the quoted ETag, or is *
+     */
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) return false;
+        for (String candidate : ifNoneMatch.split(",")) {
+            String trimmed = candidate.trim();
+            if (trimmed.equals("*") || trimmed.equals(etag)) return true;
+        }
+        return false;
+    }
+
+    private void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        try (exchange) {
+            byte[] body = gson.toJson(Map.of("error", message)).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.getResponseHeaders().set("Access-Control-Allow-Origin", "*");
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    /**
+     * The space picked with ?space=, or the primary space. Null if the ID isn't a configured space.
+     */
+    private OpStatsUtils selectedSpace(Map<String, String> query) {
+        String space = query.get("space");
+        if (space == null) return stats().getOpStats();
+        try {
+            return stats().getOpStats(Integer.parseInt(space));
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    private static Map<String, String> query(HttpExchange exchange) {
+        Map<String, String> params = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) return params;
+
+        for (String pair : query.split("&")) {
+            int split = pair.indexOf('=');
+            if (split <= 0) continue;
+            params.put(URLDecoder.decode(pair.substring(0, split), StandardCharsets.UTF_8),
+                    URLDecoder.decode(pair.substring(split + 1), StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    private static String formatTime(LocalTime time) {
+        return time == null ? null : time.toString();
+    }
+
+    private DataVersion dataVersion() {
+        return stats().getDataVersion();
+    }
+}
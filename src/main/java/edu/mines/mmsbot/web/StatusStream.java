@@ -0,0 +1,251 @@
+package edu.mines.mmsbot.web;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.sun.net.httpserver.HttpExchange;
+import edu.mines.mmsbot.MMSApp;
+import edu.mines.mmsbot.MMSContext;
+import edu.mines.mmsbot.bot.framework.SpaceStatus;
+import edu.mines.mmsbot.bot.framework.SpaceStatus.SpaceState;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Pushes state changes and claims to displays as Server-Sent Events, so they don't have to poll.
+ * <p>
+ * Changes are queued by whichever thread made them, so a sensor change never waits on the network. A broadcaster
+ * thread turns each one into a frame and offers it to every subscriber's own bounded queue, and each subscriber has
+ * a thread that writes its queue to the client. A client that stops reading only stalls its own writer. Once its
+ * queue fills, or one write has been stuck past a deadline, it is dropped. Dropping interrupts the writer, which
+ * closes the connection even mid-write. A comment is sent while things are quiet, so clients that have gone away are
+ * found even when nothing changes.
+ * <p>
+ * The writers are platform threads. The server's response stream blocks inside a monitor, which would pin a virtual
+ * thread to its carrier and hold up every other virtual thread with it.
+ */
+public class StatusStream implements MMSContext, SpaceStatus.StatusListener {
+
+    private static final int MAX_SUBSCRIBERS = 500;
+    // Frames a subscriber can be behind before it's dropped. Changes are rare, so a reading client is never near it.
+    private static final int MAX_QUEUED_FRAMES = 64;
+    private static final long HEARTBEAT_MS = 25_000;
+    private static final long WRITE_TIMEOUT_MS = 10_000;
+    // How often the broadcaster checks for writes past their deadline while nothing else wakes it
+    private static final long CHECK_MS = 1_000;
+    private static final byte[] HEARTBEAT = ": keepalive\n\n".getBytes(StandardCharsets.UTF_8);
+
+    private final Gson gson = new Gson();
+    private final Supplier<? extends Collection<SpaceStatus>> spaces;
+    // Work for the broadcaster, which is the only thread that touches the subscriber list
+    private final BlockingQueue<Runnable> pending = new LinkedBlockingQueue<>();
+    private final List<Subscriber> subscribers = new ArrayList<>();
+    private final Thread broadcaster = new Thread(this::broadcast, "Status Stream");
+    private volatile int subscriberCount = 0;
+    private long nextId = 1;
+    private long lastSent = System.currentTimeMillis();
+
+    /**
+     * One client's connection, with the frames waiting to be written to it and the thread writing them.
+     */
+    private static final class Subscriber {
+        final HttpExchange exchange;
+        final OutputStream out;
+        final BlockingQueue<byte[]> frames = new ArrayBlockingQueue<>(MAX_QUEUED_FRAMES);
+        final Thread writer = Thread.ofPlatform().daemon().name("Status Stream Subscriber").unstarted(this::write);
+        // When the write in progress started, or 0 while waiting for a frame
+        volatile long writeStarted = 0;
+
+        Subscriber(HttpExchange exchange) {
+            this.exchange = exchange;
+            this.out = exchange.getResponseBody();
+        }
+
+        private void write() {
+            try {
+                while (true) {
+                    byte[] frame = frames.take();
+                    writeStarted = System.currentTimeMillis();
+                    out.write(frame);
+                    out.flush();
+                    writeStarted = 0;
+                }
+            } catch (InterruptedException ex) {
+                // Keep the interrupt so closing can't block on a client that stopped reading, it closes the socket instead
+                Thread.currentThread().interrupt();
+            } catch (IOException ex) {
+                // The client has gone away, or the write was interrupted and the socket closed with it
+            } finally {
+                exchange.close();
+            }
+        }
+
+        boolean isGone() {
+            return !writer.isAlive();
+        }
+
+        boolean isStuck(long now) {
+            long started = writeStarted;
+            return started != 0 && now - started > WRITE_TIMEOUT_MS;
+        }
+
+        void drop() {
+            writer.interrupt();
+        }
+    }
+
+    public StatusStream() {
+        this(() -> MMSApp.getApp().getSpaceStatuses());
+    }
+
+    /**
+     * @param spaces the spaces whose current state a new subscriber is sent
+     */
+    StatusStream(Supplier<? extends Collection<SpaceStatus>> spaces) {
+        this.spaces = spaces;
+        broadcaster.setDaemon(true);
+    }
+
+    public void start() {
+        for (SpaceStatus space : spaces.get()) space.addListener(this);
+        broadcaster.start();
+    }
+
+    public void stop() {
+        broadcaster.interrupt();
+    }
+
+    /**
+     * Opens a stream for a client and queues up the current state of every space as its first events.
+     */
+    public void handle(HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestMethod().equals("GET")) {
+            exchange.getResponseHeaders().set("Allow", "GET");
+            exchange.sendResponseHeaders(405, -1);
+            exchange.close();
+            return;
+        }
+
+        if (subscriberCount >= MAX_SUBSCRIBERS) {
+            exchange.getResponseHeaders().set("Retry-After", "60");
+            exchange.sendResponseHeaders(503, -1);
+            exchange.close();
+            return;
+        }
+
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream; charset=utf-8");
+        exchange.getResponseHeaders().set("Cache-Control", "no-store");
+        exchange.getResponseHeaders().set("Access-Control-Allow-Origin", "*");
+        exchange.getResponseHeaders().set("X-Accel-Buffering", "no");
+        exchange.sendResponseHeaders(200, 0);
+
+        Subscriber subscriber = new Subscriber(exchange);
+        // The handler returns with the exchange left open, the subscriber's writer owns it from here
+        pending.add(() -> {
+            StringBuilder frames = new StringBuilder("retry: 5000\n\n");
+            for (SpaceStatus space : spaces.get()) {
+                frames.append(frame("state", stateJson(space.getSpace().id, space.getState(), -1, -1)));
+            }
+
+            subscriber.frames.add(frames.toString().getBytes(StandardCharsets.UTF_8));
+            subscriber.writer.start();
+            subscribers.add(subscriber);
+            subscriberCount = subscribers.size();
+        });
+    }
+
+    @Override
+    public void stateChanged(SpaceStatus space, SpaceState state, long timestamp, long userID) {
+        send("state", stateJson(space.getSpace().id, state, timestamp, userID));
+    }
+
+    @Override
+    public void eventClaimed(SpaceStatus space, long eventID, long userID) {
+        JsonObject json = new JsonObject();
+        json.addProperty("space", space.getSpace().id);
+        json.addProperty("event", eventID);
+        json.addProperty("user", Long.toString(userID));
+        send("claim", json);
+    }
+
+    /**
+     * Queues an event for every subscriber.
+     */
+    void send(String event, JsonObject data) {
+        if (subscriberCount == 0) return;
+        pending.add(() -> offer(frame(event, data).getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Queues a frame for every subscriber, dropping any that are too far behind to take it.
+     */
+    private void offer(byte[] frame) {
+        subscribers.removeIf(subscriber -> {
+            if (subscriber.frames.offer(frame)) return false;
+
+            log().info("Dropping a status stream subscriber that fell {} frames behind.", MAX_QUEUED_FRAMES);
+            subscriber.drop();
+            return true;
+        });
+        subscriberCount = subscribers.size();
+        lastSent = System.currentTimeMillis();
+    }
+
+    private void broadcast() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                Runnable task = pending.poll(CHECK_MS, TimeUnit.MILLISECONDS);
+                if (task != null) task.run();
+
+                long now = System.currentTimeMillis();
+                subscribers.removeIf(subscriber -> {
+                    if (subscriber.isGone()) return true;
+                    if (!subscriber.isStuck(now)) return false;
+
+                    log().info("Dropping a status stream subscriber stuck on one write for over {}ms.", WRITE_TIMEOUT_MS);
+                    subscriber.drop();
+                    return true;
+                });
+                subscriberCount = subscribers.size();
+
+                if (now - lastSent >= HEARTBEAT_MS) offer(HEARTBEAT);
+            } catch (InterruptedException ex) {
+                break;
+            } catch (RuntimeException ex) {
+                log().error("Error pushing status update: {}", ex.getMessage(), ex);
+            }
+        }
+
+        subscribers.forEach(Subscriber::drop);
+        subscribers.clear();
+        subscriberCount = 0;
+    }
+
+    int subscriberCount() {
+        return subscriberCount;
+    }
+
+    private String frame(String event, JsonObject data) {
+        return "id: " + nextId++ + "\nevent: " + event + "\ndata: " + gson.toJson(data) + "\n\n";
+    }
+
+    private static JsonObject stateJson(int spaceId, SpaceState state, long timestamp, long userID) {
+        JsonObject json = new JsonObject();
+        json.addProperty("space", spaceId);
+        json.addProperty("state", state.name());
+        json.addProperty("locked", state.isLocked());
+        json.addProperty("overridden", state.isOverridden());
+        if (timestamp != -1) json.addProperty("timestamp", timestamp);
+        json.addProperty("user", userID == -1 ? null : Long.toString(userID));
+        return json;
+    }
+}
@@ -0,0 +1,175 @@
+package edu.mines.mmsbot.data;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DatabaseTest {
+
+    @TempDir
+    Path dir;
+
+    private Database db;
+    private final List<String> order = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeEach
+    void open() throws SQLException {
+        db = new Database("jdbc:sqlite:" + dir.resolve("test.db"), 2);
+        db.write(conn -> {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("CREATE TABLE items (name TEXT NOT NULL)");
+            }
+            return null;
+        });
+    }
+
+    @AfterEach
+    void close() throws SQLException {
+        db.close();
+    }
+
+    private CompletableFuture<Void> insert(String name) {
+        return db.submit(conn -> {
+            try (PreparedStatement stmt = conn.prepareStatement("INSERT INTO items (name) VALUES (?)")) {
+                stmt.setString(1, name);
+                stmt.executeUpdate();
+            }
+            order.add(name);
+            db.afterCommit(() -> order.add(name + " committed"));
+            return null;
+        });
+    }
+
+    private List<String> items() throws SQLException {
+        return db.read(conn -> {
+            List<String> names = new ArrayList<>();
+            try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery("SELECT name FROM items ORDER BY rowid")) {
+                while (rs.next()) names.add(rs.getString(1));
+            }
+            return names;
+        });
+    }
+
+    /**
+     * Holds the writer until the returned latch is released, so everything queued meanwhile runs as one group.
+     */
+    private CountDownLatch blockWriter() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        db.submit(conn -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        });
+        started.await();
+        return release;
+    }
+
+    @Test
+    void queuedWritesCommitTogetherBeforeTheirActionsRun() throws Exception {
+        CountDownLatch release = blockWriter();
+        CompletableFuture<Void> first = insert("a");
+        CompletableFuture<Void> second = insert("b");
+        release.countDown();
+        CompletableFuture.allOf(first, second).join();
+
+        assertEquals(List.of("a", "b", "a committed", "b committed"), order);
+        assertEquals(List.of("a", "b"), items());
+    }
+
+    @Test
+    void failedWriteOnlyRollsBackItself() throws Exception {
+        CountDownLatch release = blockWriter();
+        CompletableFuture<Void> before = insert("a");
+        CompletableFuture<Void> failed = db.submit(conn -> {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("INSERT INTO items (name) VALUES ('lost')");
+            }
+            db.afterCommit(() -> order.add("lost committed"));
+            throw new SQLException("Failed on purpose");
+        });
+        CompletableFuture<Void> after = insert("c");
+        release.countDown();
+
+        CompletionException ex = assertThrows(CompletionException.class, failed::join);
+        assertInstanceOf(SQLException.class, ex.getCause());
+        CompletableFuture.allOf(before, after).join();
+
+        assertEquals(List.of("a", "c"), items());
+        assertFalse(order.contains("lost committed"));
+    }
+
+    @Test
+    void rollbackActionsRunNewestFirstOnlyWhenTheWriteFails() throws Exception {
+        db.write(conn -> {
+            db.onRollback(() -> order.add("kept undone"));
+            return null;
+        });
+
+        assertThrows(SQLException.class, () -> db.write(conn -> {
+            db.onRollback(() -> order.add("first undone"));
+            db.onRollback(() -> order.add("second undone"));
+            db.afterCommit(() -> order.add("committed"));
+            throw new SQLException("Failed on purpose");
+        }));
+
+        assertEquals(List.of("second undone", "first undone"), order);
+    }
+
+    @Test
+    void writeFromInsideWorkJoinsTheCurrentTransaction() throws Exception {
+        int count = db.write(conn -> {
+            db.write(inner -> {
+                try (Statement stmt = inner.createStatement()) {
+                    stmt.executeUpdate("INSERT INTO items (name) VALUES ('inner')");
+                }
+                return null;
+            });
+            try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM items")) {
+                return rs.getInt(1);
+            }
+        });
+
+        assertEquals(1, count);
+        assertEquals(List.of("inner"), items());
+    }
+
+    @Test
+    void writeRethrowsTheWorksException() {
+        SQLException ex = assertThrows(SQLException.class, () -> db.write(conn -> {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("INSERT INTO missing (name) VALUES ('x')");
+            }
+            return null;
+        }));
+        assertTrue(ex.getMessage().contains("missing"));
+    }
+
+    @Test
+    void readConnectionsCannotWrite() {
+        assertThrows(SQLException.class, () -> db.read(conn -> {
+            try (Statement stmt = conn.createStatement()) {
+                return stmt.executeUpdate("INSERT INTO items (name) VALUES ('x')");
+            }
+        }));
+    }
+}
@@ -0,0 +1,186 @@
+package edu.mines.mmsbot.data;
+
+import edu.mines.mmsbot.data.util.DataVersion;
+import edu.mines.mmsbot.data.util.DataVersion.Source;
+import edu.mines.mmsbot.data.util.DataVersion.Stamp;
+import edu.mines.mmsbot.data.util.OpStatsUtils;
+import edu.mines.mmsbot.data.util.OpStatsUtils.Event;
+import edu.mines.mmsbot.data.util.OpStatsUtils.EventType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OperationStatisticsTest {
+
+    private static final long HOUR = 3_600_000L;
+    private static final int LAB = 0;
+    private static final int SHOP = 3;
+
+    @TempDir
+    Path dir;
+
+    private OperationStatistics statistics;
+
+    private void start() throws Exception {
+        statistics = new OperationStatistics();
+        statistics.startDatabase(dir.resolve("statistics.db").toString(), List.of(LAB, SHOP));
+    }
+
+    @AfterEach
+    void close() {
+        if (statistics != null) statistics.closeDatabase();
+    }
+
+    @Test
+    void eventsOnlyCountInTheirSpace() throws Exception {
+        start();
+        long start = System.currentTimeMillis() - 10 * HOUR;
+        OpStatsUtils lab = statistics.getOpStats(LAB);
+        OpStatsUtils shop = statistics.getOpStats(SHOP);
+
+        lab.logEvent(new Event(start, EventType.OPEN, -1));
+        shop.logEvent(new Event(start + HOUR, EventType.OPEN, -1));
+        lab.logEvent(new Event(start + 3 * HOUR, EventType.LOCK, -1));
+
+        assertEquals(2, lab.getEventStore().size());
+        assertEquals(1, shop.getEventStore().size());
+        assertEquals(3 * HOUR, lab.getSnapshot().openSessions().totalSessionTime());
+        assertNull(lab.getOpenSince());
+        assertEquals(start + HOUR, (long) shop.getOpenSince());
+    }
+
+    @Test
+    void eventsOnlyChangeTheirSpacesVersion() throws Exception {
+        start();
+        DataVersion version = statistics.getDataVersion();
+        Set<Source> sources = EnumSet.of(Source.EVENTS, Source.CLAIMS);
+        Stamp lab = version.stamp(LAB);
+        Stamp shop = version.stamp(SHOP);
+        Stamp overall = version.stamp();
+
+        long open = statistics.getOpStats(SHOP).logEvent(new Event(System.currentTimeMillis() - HOUR, EventType.OPEN, -1));
+        statistics.getOpStats(SHOP).claimEvent(open, 5);
+
+        assertFalse(lab.changed(version.stamp(LAB), sources));
+        assertTrue(shop.changed(version.stamp(SHOP), EnumSet.of(Source.EVENTS)));
+        assertTrue(shop.changed(version.stamp(SHOP), EnumSet.of(Source.CLAIMS)));
+        assertTrue(overall.changed(version.stamp(), sources));
+    }
+
+    @Test
+    void claimsAreRoutedToTheEventsSpace() throws Exception {
+        start();
+        long now = System.currentTimeMillis();
+        long labOpen = statistics.getOpStats(LAB).logEvent(new Event(now - 2 * HOUR, EventType.OPEN, -1));
+        long shopOpen = statistics.getOpStats(SHOP).logEvent(new Event(now - HOUR, EventType.OPEN, -1));
+
+        assertSame(statistics.getOpStats(LAB), statistics.getOpStatsForEvent(labOpen));
+        assertSame(statistics.getOpStats(SHOP), statistics.getOpStatsForEvent(shopOpen));
+        assertNull(statistics.getOpStatsForEvent(shopOpen + 1));
+
+        // The other space can't claim it
+        assertFalse(statistics.getOpStats(LAB).claimEvent(shopOpen, 5));
+        assertTrue(statistics.getOpStats(SHOP).claimEvent(shopOpen, 5));
+        assertEquals(1, statistics.getOpStats(SHOP).getMemberStatistics(5).opens());
+        assertEquals(0, statistics.getOpStats(LAB).getMemberStatistics(5).opens());
+    }
+
+    @Test
+    void eachSpaceReloadsItsOwnHistory() throws Exception {
+        start();
+        long start = System.currentTimeMillis() - 10 * HOUR;
+        statistics.getOpStats(SHOP).logEvent(new Event(start, EventType.OPEN, -1));
+        statistics.getOpStats(SHOP).logEvent(new Event(start + 2 * HOUR, EventType.LOCK, -1));
+        statistics.closeDatabase();
+
+        start();
+        assertEquals(0, statistics.getOpStats(LAB).getEventStore().size());
+        assertEquals(2, statistics.getOpStats(SHOP).getEventStore().size());
+        assertEquals(2 * HOUR, statistics.getOpStats(SHOP).getSnapshot().openSessions().totalSessionTime());
+    }
+
+    @Test
+    void typeNamesLoadAndAreReplacedByCodesInTheBackground() throws Exception {
+        long start = System.currentTimeMillis() - 10 * HOUR;
+        // Left as a database from before types were codes would be after migrating, with an event logged since
+        Database old = new Database("jdbc:sqlite:" + dir.resolve("statistics.db"), 1);
+        new SchemaMigrations().migrate(old);
+        old.write(conn -> {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("INSERT INTO events (timestamp, event_type, user_id) VALUES (" + start + ", 'OPEN', -1)");
+                stmt.execute("INSERT INTO events (timestamp, event_type, user_id) VALUES (" + (start + 2 * HOUR) + ", 'LOCK', -1)");
+                stmt.execute("INSERT INTO events (timestamp, event_type, user_id) VALUES (" + (start + 3 * HOUR) + ", " + EventType.OPEN.code() + ", -1)");
+            }
+            return null;
+        });
+        old.close();
+
+        start();
+        List<EventType> loaded = new ArrayList<>();
+        statistics.getOpStats(LAB).getEventStore().forEach((id, timestamp, eventType, userId, localDay, minuteOfDay) -> loaded.add(eventType));
+        assertEquals(List.of(EventType.OPEN, EventType.LOCK, EventType.OPEN), loaded);
+        assertEquals(start + 3 * HOUR, (long) statistics.getOpStats(LAB).getOpenSince());
+
+        long deadline = System.currentTimeMillis() + 5000;
+        List<String> codes = List.of(String.valueOf(EventType.OPEN.code()), String.valueOf(EventType.LOCK.code()), String.valueOf(EventType.OPEN.code()));
+        while (!typeCodes().equals(codes)) {
+            assertTrue(System.currentTimeMillis() < deadline, "Type names were never replaced: " + typeCodes());
+            Thread.sleep(20);
+        }
+    }
+
+    @Test
+    void emptyDerivedTablesAreRebuiltInTheBackground() throws Exception {
+        start();
+        long start = System.currentTimeMillis() - 10 * HOUR;
+        statistics.getOpStats(SHOP).logEvent(new Event(start, EventType.OPEN, -1));
+        statistics.getOpStats(SHOP).logEvent(new Event(start + 2 * HOUR, EventType.LOCK, -1));
+        statistics.getDatabase().write(conn -> {
+            try (Statement stmt = conn.createStatement()) {
+                for (String table : List.of("daily_rollups", "hourly_rollups", "user_daily_rollups", "sessions")) {
+                    stmt.execute("DELETE FROM " + table);
+                }
+            }
+            return null;
+        });
+        statistics.closeDatabase();
+
+        start();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (count("sessions") != 1 || count("daily_rollups") == 0) {
+            assertTrue(System.currentTimeMillis() < deadline, "Tables were never rebuilt");
+            Thread.sleep(20);
+        }
+        assertEquals(2 * HOUR, statistics.getOpStats(SHOP).getSessionSummary(LocalDate.now().minusDays(2), LocalDate.now().plusDays(2)).totalDuration());
+    }
+
+    private int count(String table) throws SQLException {
+        return statistics.getDatabase().read(conn -> {
+            try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM " + table)) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        });
+    }
+
+    private List<String> typeCodes() throws SQLException {
+        return statistics.getDatabase().read(conn -> {
+            List<String> codes = new ArrayList<>();
+            try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery("SELECT event_type FROM events ORDER BY id")) {
+                while (rs.next()) codes.add(rs.getString(1));
+            }
+            return codes;
+        });
+    }
+}
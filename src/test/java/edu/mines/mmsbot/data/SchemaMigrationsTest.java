@@ -0,0 +1,151 @@
+package edu.mines.mmsbot.data;
+
+import edu.mines.mmsbot.data.util.OpStatsUtils.EventType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SchemaMigrationsTest {
+
+    @TempDir
+    Path dir;
+
+    private Database db;
+
+    @BeforeEach
+    void open() throws SQLException {
+        db = new Database("jdbc:sqlite:" + dir.resolve("stats.db"), 1);
+    }
+
+    @AfterEach
+    void close() throws SQLException {
+        db.close();
+    }
+
+    /**
+     * Runs statements on the writable connection, for setting up a database as an older version left it.
+     */
+    private void execute(String... sql) throws SQLException {
+        db.write(conn -> {
+            try (Statement stmt = conn.createStatement()) {
+                for (String statement : sql) stmt.execute(statement);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * @return each row of a query as its columns joined with |
+     */
+    private List<String> rows(String sql) throws SQLException {
+        return db.read(conn -> {
+            List<String> rows = new ArrayList<>();
+            try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+                int columns = rs.getMetaData().getColumnCount();
+                while (rs.next()) {
+                    StringJoiner row = new StringJoiner("|");
+                    for (int i = 1; i <= columns; i++) row.add(rs.getString(i));
+                    rows.add(row.toString());
+                }
+            }
+            return rows;
+        });
+    }
+
+    private List<String> tables() throws SQLException {
+        return rows("SELECT name FROM sqlite_master WHERE type = 'table' AND name NOT LIKE 'sqlite_%' ORDER BY name");
+    }
+
+    @Test
+    void freshDatabaseReachesTheLatestVersion() throws SQLException {
+        new SchemaMigrations().migrate(db);
+
+        assertEquals(List.of("5"), rows("PRAGMA user_version"));
+        assertEquals(List.of(
+                "backfills", "daily_rollups", "event_types", "events", "hourly_rollups", "lock_messages",
+                "message_reactions", "sessions", "user_daily_rollups"
+        ), tables());
+    }
+
+    @Test
+    void migratingAgainChangesNothing() throws SQLException {
+        new SchemaMigrations().migrate(db);
+        execute("INSERT INTO events (timestamp, event_type, user_id) VALUES (1000, 0, 5)");
+        List<String> tables = tables();
+
+        new SchemaMigrations().migrate(db);
+
+        assertEquals(List.of("5"), rows("PRAGMA user_version"));
+        assertEquals(tables, tables());
+        assertEquals(List.of("1|1000|0|5"), rows("SELECT id, timestamp, event_type, user_id FROM events"));
+    }
+
+    /**
+     * The tables as they were before migrations existed.
+     */
+    private void createVersionZero() throws SQLException {
+        execute(
+                "CREATE TABLE events (id INTEGER PRIMARY KEY AUTOINCREMENT, timestamp INTEGER NOT NULL, event_type TEXT NOT NULL, user_id INTEGER NOT NULL)",
+                "CREATE TABLE message_reacts (message_id INTEGER PRIMARY KEY, reacted_users TEXT NOT NULL)"
+        );
+    }
+
+    @Test
+    void olderDatabaseKeepsItsEvents() throws SQLException {
+        createVersionZero();
+        execute("INSERT INTO events (id, timestamp, event_type, user_id) VALUES (10, 1000, 'OPEN', -1)");
+
+        new SchemaMigrations().migrate(db);
+
+        assertEquals(List.of("5"), rows("PRAGMA user_version"));
+        // Its events belong to the original space and wait for the backfills to fill in their local buckets and type codes
+        assertEquals(List.of("10|1000|OPEN|-1|0|null"), rows("SELECT id, timestamp, event_type, user_id, space_id, local_day FROM events"));
+    }
+
+    @Test
+    void catReactionsMoveToOneRowEach() throws SQLException {
+        createVersionZero();
+        execute(
+                "INSERT INTO message_reacts VALUES (100, '1,2,3')",
+                "INSERT INTO message_reacts VALUES (200, 'NO_USERS')",
+                "INSERT INTO message_reacts VALUES (300, '4')"
+        );
+
+        new SchemaMigrations().migrate(db);
+
+        assertEquals(List.of("100|1", "100|2", "100|3", "300|4"),
+                rows("SELECT message_id, user_id FROM message_reactions WHERE emoji = '🐈' ORDER BY message_id, user_id"));
+        // Messages nobody reacted to are still watched
+        assertEquals(List.of("100", "200", "300"), rows("SELECT message_id FROM lock_messages ORDER BY message_id"));
+        assertFalse(tables().contains("message_reacts"));
+    }
+
+    @Test
+    void eventTypesGetANameTableWithoutRewritingEvents() throws SQLException {
+        createVersionZero();
+        execute(
+                "INSERT INTO events (id, timestamp, event_type, user_id) VALUES (10, 1000, 'OPEN', -1)",
+                "INSERT INTO events (id, timestamp, event_type, user_id) VALUES (11, 2000, 'LOCK', 5)"
+        );
+
+        new SchemaMigrations().migrate(db);
+
+        // Converting the names is left to the type code backfill
+        assertEquals(List.of("10|1000|OPEN|-1", "11|2000|LOCK|5"), rows("SELECT id, timestamp, event_type, user_id FROM events ORDER BY id"));
+
+        List<String> types = new ArrayList<>();
+        for (EventType type : EventType.values()) types.add(type.code() + "|" + type.name());
+        assertEquals(types, rows("SELECT code, name FROM event_types ORDER BY code"));
+    }
+}
@@ -0,0 +1,54 @@
+package edu.mines.mmsbot.data.util;
+
+import edu.mines.mmsbot.data.Database;
+import edu.mines.mmsbot.data.SchemaMigrations;
+import edu.mines.mmsbot.data.util.CatStatsUtils.MessageCatStat;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CatStatsUtilsTest {
+
+    @TempDir
+    Path dir;
+
+    private Database db;
+    private CatStatsUtils catStats;
+
+    @BeforeEach
+    void open() throws SQLException {
+        db = new Database("jdbc:sqlite:" + dir.resolve("stats.db"), 1);
+        new SchemaMigrations().migrate(db);
+        catStats = new CatStatsUtils(db, new DataVersion());
+    }
+
+    @AfterEach
+    void close() throws SQLException {
+        db.close();
+    }
+
+    @Test
+    void oneFailedFetchDoesNotLoseTheRest() {
+        catStats.updateReactions(200, List.of(9L));
+
+        catStats.storeReactors(Map.of(
+                100L, CompletableFuture.completedFuture(List.of(1L, 2L)),
+                200L, CompletableFuture.failedFuture(new IllegalStateException("Unknown message")),
+                300L, CompletableFuture.completedFuture(List.of(3L))
+        )).join();
+
+        // The message that failed keeps what was stored before
+        assertEquals(List.of(new MessageCatStat(100, 2), new MessageCatStat(200, 1), new MessageCatStat(300, 1)),
+                catStats.getTopMessages(10).stream().sorted(Comparator.comparingLong(MessageCatStat::messageId)).toList());
+    }
+}
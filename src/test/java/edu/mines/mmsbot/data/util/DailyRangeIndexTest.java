@@ -0,0 +1,84 @@
+package edu.mines.mmsbot.data.util;
+
+import edu.mines.mmsbot.data.util.OpStatsUtils.WindowStats;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static edu.mines.mmsbot.data.util.Fixtures.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class DailyRangeIndexTest {
+
+    private final DailyRangeIndex index = new DailyRangeIndex();
+
+    private void session(LocalDate day, long duration) {
+        index.addOpen(day.toEpochDay());
+        index.addLock(day.toEpochDay());
+        index.addOpenTime(day.toEpochDay(), duration);
+    }
+
+    @Test
+    void emptyIndexReportsNothing() {
+        WindowStats stats = index.query(MONDAY, MONDAY.plusDays(6));
+        assertEquals(0, stats.opens());
+        assertEquals(0L, stats.openTime());
+    }
+
+    @Test
+    void windowsOnlyCountTheirDays() {
+        session(MONDAY, HOUR);
+        session(MONDAY, 2 * HOUR);
+        session(MONDAY.plusDays(3), 3 * HOUR);
+        session(MONDAY.plusDays(10), 4 * HOUR);
+
+        WindowStats week = index.query(MONDAY, MONDAY.plusDays(6));
+        assertEquals(3, week.opens());
+        assertEquals(3, week.locks());
+        assertEquals(2, week.daysOpen());
+        assertEquals(6 * HOUR, week.openTime());
+
+        WindowStats middle = index.query(MONDAY.plusDays(1), MONDAY.plusDays(10));
+        assertEquals(2, middle.opens());
+        assertEquals(7 * HOUR, middle.openTime());
+
+        assertEquals(0, index.query(MONDAY.plusDays(6), MONDAY.plusDays(5)).opens());
+    }
+
+    @Test
+    void weekdayTalliesFollowTheWindowEdges() {
+        // Thursdays two weeks apart and the Monday in between
+        session(MONDAY.plusDays(3), HOUR);
+        session(MONDAY.plusDays(7), 2 * HOUR);
+        session(MONDAY.plusDays(17), 4 * HOUR);
+
+        WindowStats all = index.query(MONDAY, MONDAY.plusDays(20));
+        assertEquals(2, all.opensByDay()[3]);
+        assertEquals(1, all.opensByDay()[0]);
+        assertEquals(5 * HOUR, all.openTimeByDay()[3]);
+        assertEquals(2 * HOUR, all.openTimeByDay()[0]);
+
+        // Starts on a Friday, so the first Thursday is outside
+        WindowStats fromFriday = index.query(MONDAY.plusDays(4), MONDAY.plusDays(20));
+        assertEquals(1, fromFriday.opensByDay()[3]);
+        assertEquals(4 * HOUR, fromFriday.openTimeByDay()[3]);
+        assertEquals(1, fromFriday.opensByDay()[0]);
+    }
+
+    @Test
+    void earlierDaysShiftTheIndex() {
+        session(MONDAY.plusDays(2), HOUR);
+        session(MONDAY.minusDays(12), 2 * HOUR);
+
+        WindowStats all = index.query(MONDAY.minusDays(30), MONDAY.plusDays(30));
+        assertEquals(2, all.opens());
+        assertEquals(3 * HOUR, all.openTime());
+        // Both are Wednesdays
+        assertEquals(2, all.opensByDay()[2]);
+        assertEquals(3 * HOUR, all.openTimeByDay()[2]);
+
+        WindowStats later = index.query(MONDAY, MONDAY.plusDays(6));
+        assertEquals(1, later.opens());
+        assertEquals(HOUR, later.openTime());
+    }
+}
@@ -0,0 +1,66 @@
+package edu.mines.mmsbot.data.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DurationSketchTest {
+
+    private static final long MINUTE = 60_000L;
+
+    @Test
+    void emptySketchReportsZero() {
+        assertEquals(0, new DurationSketch().quantile(0.5));
+    }
+
+    @Test
+    void quantilesAreWithinOnePercent() {
+        DurationSketch sketch = new DurationSketch();
+        for (int i = 1; i <= 1000; i++) sketch.add(i * MINUTE);
+
+        assertEquals(1000, sketch.getCount());
+        assertEquals(500 * MINUTE, sketch.quantile(0.5), 500 * MINUTE * 0.01);
+        assertEquals(900 * MINUTE, sketch.quantile(0.9), 900 * MINUTE * 0.01);
+        assertEquals(990 * MINUTE, sketch.quantile(0.99), 990 * MINUTE * 0.01);
+        assertEquals(MINUTE, sketch.quantile(0), MINUTE * 0.01);
+    }
+
+    @Test
+    void extraDurationIsCountedWithoutBeingAdded() {
+        DurationSketch sketch = new DurationSketch();
+        sketch.add(10 * MINUTE);
+        sketch.add(20 * MINUTE);
+
+        assertEquals(20 * MINUTE, sketch.quantile(1, 20 * MINUTE), 20 * MINUTE * 0.01);
+        assertEquals(500 * MINUTE, sketch.quantile(1, 500 * MINUTE), 500 * MINUTE * 0.01);
+        assertEquals(2, sketch.getCount());
+        assertEquals(20 * MINUTE, sketch.quantile(1), 20 * MINUTE * 0.01);
+    }
+
+    @Test
+    void mergeMatchesAddingEverythingToOneSketch() {
+        DurationSketch first = new DurationSketch();
+        DurationSketch second = new DurationSketch();
+        DurationSketch combined = new DurationSketch();
+        for (int i = 1; i <= 100; i++) {
+            (i % 2 == 0 ? first : second).add(i * MINUTE);
+            combined.add(i * MINUTE);
+        }
+
+        first.merge(second);
+        assertEquals(combined.getCount(), first.getCount());
+        for (double q : new double[]{0, 0.25, 0.5, 0.9, 1}) assertEquals(combined.quantile(q), first.quantile(q));
+    }
+
+    @Test
+    void histogramPutsDurationsInTheirBins() {
+        DurationSketch sketch = new DurationSketch();
+        sketch.add(5 * MINUTE);
+        sketch.add(45 * MINUTE);
+        sketch.add(50 * MINUTE);
+        sketch.add(300 * MINUTE);
+
+        int[] bins = sketch.histogram(new long[]{30 * MINUTE, 60 * MINUTE});
+        assertArrayEquals(new int[]{1, 2, 1}, bins);
+    }
+}
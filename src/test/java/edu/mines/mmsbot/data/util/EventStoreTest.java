@@ -0,0 +1,49 @@
+package edu.mines.mmsbot.data.util;
+
+import edu.mines.mmsbot.data.util.OpStatsUtils.EventType;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventStoreTest {
+
+    private final EventStore store = new EventStore();
+
+    /**
+     * Fills the store with events 1 to count, each at ten times its ID, across several chunks.
+     */
+    private void fill(int count) {
+        for (int id = 1; id <= count; id++) store.append(id, id * 10L, id % 2 == 1 ? EventType.OPEN : EventType.LOCK, -1, 0, 0);
+    }
+
+    private List<Long> idsSince(long since, int limit) {
+        List<Long> ids = new ArrayList<>();
+        store.forEachSince(since, limit, (id, timestamp, eventType, userId, localDay, minuteOfDay) -> ids.add(id));
+        return ids;
+    }
+
+    @Test
+    void onlyEventsAfterTheTimestampAreVisited() {
+        fill(10);
+        assertEquals(List.of(9L, 10L), idsSince(80, 100));
+        // Strictly after, so polling with the last timestamp seen doesn't repeat it
+        assertEquals(List.of(10L), idsSince(90, 100));
+        assertEquals(List.of(), idsSince(100, 100));
+    }
+
+    @Test
+    void theNewestEventsAreKeptPastTheLimit() {
+        fill(10_000);
+        assertEquals(List.of(9_998L, 9_999L, 10_000L), idsSince(0, 3));
+        assertEquals(List.of(4_097L, 4_098L), idsSince(40_960, 9_999).subList(0, 2));
+        assertEquals(9_999, idsSince(0, 9_999).size());
+    }
+
+    @Test
+    void emptyStoreVisitsNothing() {
+        assertEquals(List.of(), idsSince(0, 10));
+    }
+}
@@ -0,0 +1,61 @@
+package edu.mines.mmsbot.data.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FenwickTreeTest {
+
+    @Test
+    void rangeSumsMatchAPlainArray() {
+        Random random = new Random(42);
+        FenwickTree tree = new FenwickTree(4);
+        long[] values = new long[200];
+
+        // Starts small so the updates grow the tree several times
+        for (int i = 0; i < 1000; i++) {
+            int index = random.nextInt(values.length);
+            long delta = random.nextInt(1000) - 500;
+            values[index] += delta;
+            tree.add(index, delta);
+        }
+
+        for (int i = 0; i < 500; i++) {
+            int from = random.nextInt(values.length);
+            int to = from + random.nextInt(values.length - from);
+            long expected = 0;
+            for (int j = from; j <= to; j++) expected += values[j];
+            assertEquals(expected, tree.rangeSum(from, to));
+        }
+        for (int i = 0; i < values.length; i++) assertEquals(values[i], tree.get(i));
+    }
+
+    @Test
+    void emptyAndOutOfRangeWindowsSumToZero() {
+        FenwickTree tree = new FenwickTree(8);
+        tree.add(3, 5);
+
+        assertEquals(0L, tree.rangeSum(5, 4));
+        assertEquals(0L, tree.rangeSum(-3, -1));
+        assertEquals(5L, tree.rangeSum(-3, 100));
+        assertEquals(0L, tree.get(50));
+    }
+
+    @Test
+    void shiftRightMovesEveryValue() {
+        FenwickTree tree = new FenwickTree(4);
+        tree.add(0, 1);
+        tree.add(2, 3);
+        tree.shiftRight(5);
+
+        assertEquals(0L, tree.rangeSum(0, 4));
+        assertEquals(1L, tree.get(5));
+        assertEquals(3L, tree.get(7));
+        assertEquals(4L, tree.prefixSum(7));
+
+        tree.add(0, 10);
+        assertEquals(14L, tree.prefixSum(100));
+    }
+}
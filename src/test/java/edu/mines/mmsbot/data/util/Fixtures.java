@@ -0,0 +1,33 @@
+package edu.mines.mmsbot.data.util;
+
+import edu.mines.mmsbot.data.util.OpStatsUtils.Session;
+import edu.mines.mmsbot.util.TimeUtils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Times and sessions shared by the statistics tests. Everything is in the system zone, the same as the bot.
+ */
+final class Fixtures {
+
+    static final long HOUR = 3_600_000L;
+    // A Monday well away from any daylight saving change
+    static final LocalDate MONDAY = LocalDate.of(2024, 9, 16);
+
+    private Fixtures() {}
+
+    static long millis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    /**
+     * @return a completed session nobody has claimed, with its local buckets filled in
+     */
+    static Session session(LocalDateTime open, long duration) {
+        long openTime = millis(open);
+        TimeUtils.LocalBucket bucket = TimeUtils.LocalBucket.of(openTime);
+        return new Session(1, 2, openTime, openTime + duration, -1, -1, bucket.epochDay(), bucket.minuteOfDay());
+    }
+}
@@ -0,0 +1,126 @@
+package edu.mines.mmsbot.data.util;
+
+import edu.mines.mmsbot.data.util.OpStatsUtils.EventType;
+import edu.mines.mmsbot.data.util.OpStatsUtils.MemberStats;
+import edu.mines.mmsbot.data.util.OpStatsUtils.Session;
+import edu.mines.mmsbot.util.TimeUtils;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.HashMap;
+import java.util.Map;
+
+import static edu.mines.mmsbot.data.util.Fixtures.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class MemberIndexTest {
+
+    private static final long ALICE = 5;
+    private static final long BOB = 7;
+
+    private final SessionPairing pairing = new SessionPairing();
+    private final MemberIndex index = new MemberIndex(pairing);
+    // Stands in for the sessions table: completed sessions by the open that started them
+    private final Map<Long, Session> startedBy = new HashMap<>();
+    private final Map<Long, Long> eventAt = new HashMap<>();
+    private long nextId = 1;
+
+    private void feed(long timestamp, EventType type, long userId) {
+        long eventId = nextId++;
+        eventAt.put(timestamp, eventId);
+        TimeUtils.LocalBucket bucket = TimeUtils.LocalBucket.of(timestamp);
+        Session session = pairing.accept(eventId, timestamp, type, userId, bucket.epochDay(), bucket.minuteOfDay());
+        if (session != null) startedBy.put(session.openEventId(), session);
+        index.accept(timestamp, type, userId, bucket.epochDay(), bucket.minuteOfDay(), session);
+    }
+
+    private void feed(LocalDateTime time, EventType type, long userId) {
+        feed(millis(time), type, userId);
+    }
+
+    /**
+     * Claims the event at a time the way the bot does once the database has accepted the claim.
+     */
+    private void claim(long timestamp, EventType type, long userId) {
+        long eventId = eventAt.get(timestamp);
+        TimeUtils.LocalBucket bucket = TimeUtils.LocalBucket.of(timestamp);
+        pairing.claim(eventId, userId);
+        index.claim(timestamp, type, userId, bucket.epochDay(), bucket.minuteOfDay(), type == EventType.OPEN ? startedBy.get(eventId) : null);
+    }
+
+    private void claim(LocalDateTime time, EventType type, long userId) {
+        claim(millis(time), type, userId);
+    }
+
+    @Test
+    void unknownMemberHasEmptyStats() {
+        MemberStats stats = index.stats(ALICE);
+        assertEquals(0, stats.opens());
+        assertNull(stats.lastOpen());
+    }
+
+    @Test
+    void memberIsCreditedWithTheSessionsTheyOpened() {
+        feed(MONDAY.atTime(9, 0), EventType.OPEN, ALICE);
+        feed(MONDAY.atTime(11, 0), EventType.LOCK, BOB);
+        feed(MONDAY.plusDays(1).atTime(10, 0), EventType.OPEN, ALICE);
+        feed(MONDAY.plusDays(1).atTime(11, 0), EventType.LOCK, ALICE);
+
+        MemberStats alice = index.stats(ALICE);
+        assertEquals(2, alice.opens());
+        assertEquals(1, alice.locks());
+        assertEquals(0, alice.claimedEvents());
+        assertEquals(3 * HOUR, alice.openTime());
+        assertEquals(LocalTime.of(9, 30), alice.averageOpenTime());
+        assertEquals(1, alice.opensByHour()[9]);
+        assertEquals(2, alice.longestStreak());
+        assertEquals(2, alice.daysOpened());
+        assertEquals(millis(MONDAY.plusDays(1).atTime(10, 0)), (long) alice.lastOpen());
+
+        MemberStats bob = index.stats(BOB);
+        assertEquals(0, bob.opens());
+        assertEquals(1, bob.locks());
+        assertEquals(0L, bob.openTime());
+    }
+
+    @Test
+    void claimingAClosedSessionsOpenCreditsItsLengthOnce() {
+        feed(MONDAY.atTime(9, 0), EventType.OPEN, -1);
+        feed(MONDAY.atTime(11, 0), EventType.LOCK, -1);
+        feed(MONDAY.atTime(13, 0), EventType.OPEN, -1);
+        feed(MONDAY.atTime(14, 0), EventType.LOCK, -1);
+
+        claim(MONDAY.atTime(9, 0), EventType.OPEN, ALICE);
+        assertEquals(2 * HOUR, index.stats(ALICE).openTime());
+
+        MemberStats alice = index.stats(ALICE);
+        assertEquals(1, alice.opens());
+        assertEquals(1, alice.claimedEvents());
+    }
+
+    @Test
+    void claimingALockCountsTheLock() {
+        feed(MONDAY.atTime(9, 0), EventType.OPEN, -1);
+        feed(MONDAY.atTime(11, 0), EventType.LOCK, -1);
+        claim(MONDAY.atTime(11, 0), EventType.LOCK, ALICE);
+
+        MemberStats alice = index.stats(ALICE);
+        assertEquals(1, alice.locks());
+        assertEquals(1, alice.claimedEvents());
+        assertEquals(0L, alice.openTime());
+    }
+
+    @Test
+    void claimingTheInProgressOpenCreditsTheSessionSoFar() {
+        long open = System.currentTimeMillis() - HOUR;
+        feed(open, EventType.OPEN, -1);
+        claim(open, EventType.OPEN, ALICE);
+
+        assertTrue(index.stats(ALICE).openTime() >= HOUR);
+
+        // And the whole session once it locks
+        feed(open + 2 * HOUR, EventType.LOCK, -1);
+        assertEquals(2 * HOUR, index.stats(ALICE).openTime());
+    }
+}
@@ -0,0 +1,101 @@
+package edu.mines.mmsbot.data.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZonedDateTime;
+
+import static edu.mines.mmsbot.data.util.Fixtures.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class OccupancyForecastTest {
+
+    private final OccupancyForecast forecast = new OccupancyForecast();
+
+    private void session(OccupancyForecast forecast, LocalDate day, LocalTime open, LocalTime lock) {
+        forecast.accept(Fixtures.session(day.atTime(open), millis(day.atTime(lock)) - millis(day.atTime(open))));
+    }
+
+    private void session(LocalDate day, LocalTime open, LocalTime lock) {
+        session(forecast, day, open, lock);
+    }
+
+    @Test
+    void unobservedHoursHaveNoEstimate() {
+        assertEquals(-1, forecast.probability(9), 0);
+
+        session(MONDAY, LocalTime.of(9, 0), LocalTime.of(10, 0));
+        assertEquals(-1, forecast.probability(9 + 24, millis(MONDAY.atTime(10, 0))), 0);
+    }
+
+    @Test
+    void weeklySessionsAreCertainInTheirHour() {
+        for (int week = 0; week < 4; week++) session(MONDAY.plusWeeks(week), LocalTime.of(9, 0), LocalTime.of(10, 0));
+        long now = millis(MONDAY.plusWeeks(3).atTime(10, 0));
+
+        assertEquals(1, forecast.probability(9, now), 1e-9);
+        // Observed between sessions, always closed
+        assertEquals(0, forecast.probability(12, now), 1e-9);
+        assertEquals(0, forecast.probability(9 + 24, now), 1e-9);
+    }
+
+    @Test
+    void partialHoursCountTheirShare() {
+        for (int week = 0; week < 2; week++) session(MONDAY.plusWeeks(week), LocalTime.of(9, 0), LocalTime.of(9, 30));
+
+        // The rest of the last 9 o'clock hour has passed closed. Only a tiny difference in decay between its halves.
+        assertEquals(0.5, forecast.probability(9, millis(MONDAY.plusWeeks(1).atTime(10, 0))), 1e-3);
+    }
+
+    @Test
+    void timeClosedSinceTheLastSessionCounts() {
+        session(MONDAY, LocalTime.of(9, 0), LocalTime.of(10, 0));
+        assertEquals(1, forecast.probability(9, millis(MONDAY.atTime(10, 0))), 1e-9);
+
+        // A week later the space stayed closed through the same hour, which counts for slightly more for being newer
+        double probability = forecast.probability(9, millis(MONDAY.plusWeeks(1).atTime(10, 0)));
+        assertTrue(probability < 0.5 && probability > 0.45, "Got " + probability);
+    }
+
+    @Test
+    void lookingUpOftenGivesTheSameAnswerAsOnce() {
+        OccupancyForecast once = new OccupancyForecast();
+        for (int week = 0; week < 3; week++) {
+            session(MONDAY.plusWeeks(week), LocalTime.of(9, 0), LocalTime.of(17, 0));
+            session(once, MONDAY.plusWeeks(week), LocalTime.of(9, 0), LocalTime.of(17, 0));
+        }
+        long open = millis(MONDAY.plusWeeks(3).atTime(9, 0));
+        long now = millis(MONDAY.plusWeeks(3).atTime(12, 30));
+
+        // Looked up through the closed days before the open, then through the session in progress
+        for (long time = millis(MONDAY.plusWeeks(2).plusDays(3).atTime(0, 0)); time < now; time += HOUR / 4) {
+            if (time >= open && time - HOUR / 4 < open) forecast.open(open);
+            for (int hour = 0; hour < 24; hour++) forecast.probability(hour, time);
+        }
+        once.open(open);
+
+        for (int hour = 0; hour < OccupancyForecast.HOURS_PER_WEEK; hour++) {
+            assertEquals(once.probability(hour, now), forecast.probability(hour, now), 1e-9);
+        }
+    }
+
+    @Test
+    void inProgressSessionCountsAsOpen() {
+        forecast.open(System.currentTimeMillis() - 3 * HOUR);
+
+        // Two hours ago is inside the open span, however the hour boundaries fall
+        ZonedDateTime earlier = ZonedDateTime.now().minusHours(2);
+        assertEquals(1, forecast.probability(earlier), 1e-9);
+    }
+
+    @Test
+    void lockEndsTheInProgressSession() {
+        forecast.open(millis(MONDAY.atTime(9, 0)));
+        forecast.accept(Fixtures.session(MONDAY.atTime(9, 0), HOUR));
+
+        long now = millis(MONDAY.atTime(10, 0));
+        assertEquals(1, forecast.probability(9, now), 1e-9);
+        assertEquals(-1, forecast.probability(10, now), 0);
+    }
+}
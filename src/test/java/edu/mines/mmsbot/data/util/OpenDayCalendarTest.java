@@ -0,0 +1,76 @@
+package edu.mines.mmsbot.data.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+
+import static edu.mines.mmsbot.data.util.Fixtures.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class OpenDayCalendarTest {
+
+    private static final long DAY = MONDAY.toEpochDay();
+
+    private final OpenDayCalendar calendar = new OpenDayCalendar();
+
+    @Test
+    void emptyCalendarHasNoStreaks() {
+        assertEquals(0, calendar.longestStreak());
+        assertEquals(0, calendar.currentStreak(DAY));
+        assertEquals(0, calendar.totalDays());
+    }
+
+    @Test
+    void streaksCountConsecutiveDays() {
+        for (long day = DAY; day < DAY + 3; day++) calendar.add(day);
+        calendar.add(DAY + 5);
+        calendar.add(DAY + 6);
+
+        assertEquals(3, calendar.longestStreak());
+        assertEquals(2, calendar.currentStreak(DAY + 6));
+        assertEquals(0, calendar.currentStreak(DAY + 7));
+        assertEquals(5, calendar.totalDays());
+    }
+
+    @Test
+    void dayBetweenTwoRunsJoinsThem() {
+        calendar.add(DAY);
+        calendar.add(DAY + 1);
+        calendar.add(DAY + 3);
+        calendar.add(DAY + 4);
+        assertEquals(2, calendar.longestStreak());
+
+        calendar.add(DAY + 2);
+        assertEquals(5, calendar.longestStreak());
+        assertEquals(5, calendar.currentStreak(DAY + 4));
+    }
+
+    @Test
+    void daysMayArriveOutOfOrderAndRepeat() {
+        calendar.add(DAY + 2);
+        calendar.add(DAY);
+        calendar.add(DAY + 1);
+        calendar.add(DAY + 1);
+
+        assertEquals(3, calendar.longestStreak());
+        assertEquals(3, calendar.totalDays());
+        assertTrue(calendar.contains(DAY + 1));
+        assertFalse(calendar.contains(DAY + 3));
+    }
+
+    @Test
+    void countAndRangeAreInclusive() {
+        calendar.add(DAY);
+        calendar.add(DAY + 2);
+        calendar.add(DAY + 9);
+
+        assertEquals(2, calendar.count(DAY, DAY + 2));
+        assertEquals(1, calendar.count(DAY + 1, DAY + 8));
+        assertEquals(0, calendar.count(DAY + 2, DAY + 1));
+
+        BitSet range = calendar.range(DAY + 1, DAY + 9);
+        assertEquals(2, range.cardinality());
+        assertTrue(range.get(1));
+        assertTrue(range.get(8));
+    }
+}
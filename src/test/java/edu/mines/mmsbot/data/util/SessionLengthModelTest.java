@@ -0,0 +1,51 @@
+package edu.mines.mmsbot.data.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static edu.mines.mmsbot.data.util.Fixtures.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionLengthModelTest {
+
+    private final SessionLengthModel model = new SessionLengthModel();
+
+    private void session(LocalDateTime open, long duration) {
+        model.accept(Fixtures.session(open, duration));
+    }
+
+    @Test
+    void tooFewSessionsUseTheDefault() {
+        for (int week = 0; week < 4; week++) session(MONDAY.plusWeeks(week).atTime(9, 0), HOUR);
+        assertEquals(12 * HOUR, model.upperBound(millis(MONDAY.plusWeeks(5).atTime(9, 0))));
+    }
+
+    @Test
+    void boundIsThreeDeviationsPastTheMean() {
+        for (int week = 0; week < 5; week++) session(MONDAY.plusWeeks(week).atTime(9, 0), (week + 1) * HOUR);
+
+        // Mean of 3 hours and a deviation of root 2 hours
+        long expected = Math.round(3 * HOUR + 3 * Math.sqrt(2) * HOUR);
+        assertEquals(expected, model.upperBound(millis(MONDAY.plusWeeks(6).atTime(9, 20))), 2.0);
+    }
+
+    @Test
+    void shortSessionsStillGetTheMinimumBound() {
+        for (int week = 0; week < 5; week++) session(MONDAY.plusWeeks(week).atTime(9, 0), HOUR / 2);
+        assertEquals(2 * HOUR, model.upperBound(millis(MONDAY.atTime(9, 0))));
+    }
+
+    @Test
+    void quietHoursFallBackToEverySession() {
+        for (int week = 0; week < 5; week++) {
+            session(MONDAY.plusWeeks(week).atTime(9, 0), 4 * HOUR);
+            session(MONDAY.plusWeeks(week).plusDays(1).atTime(9, 0), 8 * HOUR);
+        }
+
+        assertEquals(4 * HOUR, model.upperBound(millis(MONDAY.atTime(9, 0))));
+        assertEquals(8 * HOUR, model.upperBound(millis(MONDAY.plusDays(1).atTime(9, 0))));
+        // Every session has a mean of 6 hours and a deviation of 2
+        assertEquals(12 * HOUR, model.upperBound(millis(MONDAY.plusDays(2).atTime(9, 0))));
+    }
+}
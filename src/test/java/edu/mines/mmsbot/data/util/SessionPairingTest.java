@@ -0,0 +1,86 @@
+package edu.mines.mmsbot.data.util;
+
+import edu.mines.mmsbot.data.util.OpStatsUtils.EventType;
+import edu.mines.mmsbot.data.util.OpStatsUtils.Session;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionPairingTest {
+
+    private final SessionPairing pairing = new SessionPairing();
+
+    private Session accept(long eventId, long timestamp, EventType type, long userId) {
+        return pairing.accept(eventId, timestamp, type, userId, 0, 0);
+    }
+
+    @Test
+    void lockClosesTheOpenSession() {
+        assertNull(accept(1, 100, EventType.OPEN, 5));
+        assertEquals(100L, (long) pairing.getOpenSince());
+        assertEquals(5L, pairing.getOpener());
+
+        Session session = accept(2, 250, EventType.LOCK, 7);
+        assertNotNull(session);
+        assertEquals(1L, session.openEventId());
+        assertEquals(2L, session.lockEventId());
+        assertEquals(150L, session.duration());
+        assertEquals(5L, session.opener());
+        assertEquals(7L, session.locker());
+        assertNull(pairing.getOpenSince());
+        assertEquals(-1L, pairing.getOpener());
+    }
+
+    @Test
+    void repeatedOpenRestartsTheSession() {
+        accept(1, 100, EventType.OPEN, -1);
+        accept(2, 200, EventType.OPEN, -1);
+
+        Session session = accept(3, 300, EventType.LOCK, -1);
+        assertEquals(2L, session.openEventId());
+        assertEquals(200L, session.openTime());
+    }
+
+    @Test
+    void lockWithNothingOpenClosesNothing() {
+        assertNull(accept(1, 100, EventType.LOCK, -1));
+        accept(2, 200, EventType.OPEN, -1);
+        accept(3, 300, EventType.LOCK, -1);
+        assertNull(accept(4, 400, EventType.LOCK, -1));
+    }
+
+    @Test
+    void closedByDoesNotFeedTheEvent() {
+        accept(1, 100, EventType.OPEN, -1);
+
+        assertEquals(1L, pairing.closedBy(2, 200, EventType.LOCK, -1).openEventId());
+        assertNull(pairing.closedBy(2, 200, EventType.OPEN, -1));
+        assertEquals(100L, (long) pairing.getOpenSince());
+    }
+
+    @Test
+    void claimOnlyCreditsTheOpenThatStartedTheSession() {
+        accept(1, 100, EventType.OPEN, -1);
+        pairing.claim(9, 5);
+        assertEquals(-1L, pairing.getOpener());
+
+        pairing.claim(1, 5);
+        assertEquals(5L, accept(2, 200, EventType.LOCK, -1).opener());
+    }
+
+    @Test
+    void copyAndResetAreIndependent() {
+        accept(1, 100, EventType.OPEN, 5);
+        SessionPairing copy = pairing.copy();
+
+        accept(2, 200, EventType.LOCK, -1);
+        assertNull(pairing.getOpenSince());
+        assertEquals(100L, (long) copy.getOpenSince());
+
+        pairing.reset(copy);
+        copy.accept(3, 300, EventType.LOCK, -1, 0, 0);
+        assertEquals(100L, (long) pairing.getOpenSince());
+        assertEquals(5L, pairing.getOpener());
+        assertNull(copy.getOpenSince());
+    }
+}
@@ -0,0 +1,163 @@
+package edu.mines.mmsbot.data.util;
+
+import edu.mines.mmsbot.data.util.OpStatsUtils.EventType;
+import edu.mines.mmsbot.data.util.OpStatsUtils.Session;
+import edu.mines.mmsbot.data.util.OpStatsUtils.SessionStats;
+import edu.mines.mmsbot.data.util.OpStatsUtils.StatsSnapshot;
+import edu.mines.mmsbot.data.util.OpStatsUtils.WindowStats;
+import edu.mines.mmsbot.util.TimeUtils;
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.Map;
+
+import static edu.mines.mmsbot.data.util.Fixtures.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatsAccumulatorTest {
+
+    private final SessionPairing pairing = new SessionPairing();
+    private final StatsAccumulator stats = new StatsAccumulator(pairing);
+    private long nextId = 1;
+
+    private void feed(LocalDateTime time, EventType type, long userId) {
+        long timestamp = millis(time);
+        TimeUtils.LocalBucket bucket = TimeUtils.LocalBucket.of(timestamp);
+        Session session = pairing.accept(nextId++, timestamp, type, userId, bucket.epochDay(), bucket.minuteOfDay());
+        stats.accept(timestamp, type, userId, bucket.epochDay(), bucket.minuteOfDay(), session);
+    }
+
+    private void session(LocalDate day, int openHour, int lockHour) {
+        feed(day.atTime(openHour, 0), EventType.OPEN, -1);
+        feed(day.atTime(lockHour, 0), EventType.LOCK, -1);
+    }
+
+    @Test
+    void sessionStatsMatchTheSessions() {
+        session(MONDAY, 9, 10);
+        session(MONDAY, 11, 13);
+        session(MONDAY, 14, 17);
+
+        SessionStats open = stats.snapshot().openSessions();
+        assertEquals(3, open.totalSessions());
+        assertEquals(6 * HOUR, open.totalSessionTime());
+        assertEquals(2 * HOUR, open.averageDuration());
+        // The median comes from the sketch, so it is only within its accuracy
+        assertEquals(2 * HOUR, open.medianDuration(), 2 * HOUR * 0.01);
+        assertEquals(3 * HOUR, open.longestSession());
+        assertEquals(HOUR, open.shortestSession());
+        assertEquals(Math.sqrt(2.0 / 3) * HOUR, open.standardDeviation(), 1);
+
+        // The gaps between sessions
+        SessionStats closed = stats.snapshot().closedSessions();
+        assertEquals(2, closed.totalSessions());
+        assertEquals(HOUR, closed.averageDuration());
+    }
+
+    @Test
+    void closedGapIsCountedWhenTheSpaceOpens() {
+        session(MONDAY, 9, 10);
+        assertEquals(0, stats.snapshot().closedSessions().totalSessions());
+
+        // Counted as soon as the space opens again, without waiting for the lock
+        feed(MONDAY.atTime(13, 0), EventType.OPEN, -1);
+        SessionStats closed = stats.snapshot().closedSessions();
+        assertEquals(1, closed.totalSessions());
+        assertEquals(3 * HOUR, closed.totalSessionTime());
+
+        // A repeated open measures from the same close again
+        feed(MONDAY.atTime(14, 0), EventType.OPEN, -1);
+        closed = stats.snapshot().closedSessions();
+        assertEquals(2, closed.totalSessions());
+        assertEquals(7 * HOUR, closed.totalSessionTime());
+    }
+
+    @Test
+    void repeatedOpenRestartsTheSession() {
+        feed(MONDAY.atTime(9, 0), EventType.OPEN, -1);
+        feed(MONDAY.atTime(10, 0), EventType.OPEN, -1);
+        feed(MONDAY.atTime(11, 0), EventType.LOCK, -1);
+
+        SessionStats open = stats.snapshot().openSessions();
+        assertEquals(1, open.totalSessions());
+        assertEquals(HOUR, open.totalSessionTime());
+    }
+
+    @Test
+    void lockWithNothingOpenEndsNoSession() {
+        feed(MONDAY.atTime(9, 0), EventType.LOCK, 7);
+
+        StatsSnapshot snapshot = stats.snapshot();
+        assertEquals(0, snapshot.openSessions().totalSessions());
+        assertEquals(Map.of(7L, 1), snapshot.users().locksByUser());
+    }
+
+    @Test
+    void claimsCreditMembers() {
+        feed(MONDAY.atTime(9, 0), EventType.OPEN, -1);
+        feed(MONDAY.atTime(10, 0), EventType.LOCK, 7);
+        stats.claim(EventType.OPEN, 5);
+
+        assertEquals(Map.of(5L, 1), stats.snapshot().users().opensByUser());
+        assertEquals(Map.of(7L, 1), stats.snapshot().users().locksByUser());
+    }
+
+    @Test
+    void timeOfDayAndDayOfWeekFollowTheSessions() {
+        session(MONDAY, 9, 11);
+        session(MONDAY.plusDays(2), 11, 17);
+
+        StatsSnapshot snapshot = stats.snapshot();
+        assertEquals(LocalTime.of(10, 0), snapshot.timeOfDay().averageOpenTime());
+        assertEquals(LocalTime.of(14, 0), snapshot.timeOfDay().averageCloseTime());
+        assertEquals(DayOfWeek.WEDNESDAY, snapshot.dayOfWeek().busiestDay());
+        assertEquals(1, snapshot.dayOfWeek().opensByDay().get(DayOfWeek.MONDAY));
+        assertEquals(2 * HOUR, snapshot.dayOfWeek().durationByDay().get(DayOfWeek.MONDAY));
+    }
+
+    @Test
+    void streaksCountConsecutiveOpenDays() {
+        session(MONDAY, 9, 10);
+        session(MONDAY.plusDays(1), 9, 10);
+        session(MONDAY.plusDays(2), 9, 10);
+        session(MONDAY.plusDays(5), 9, 10);
+
+        assertEquals(3, stats.snapshot().streaks().longestStreak());
+        assertEquals(4, stats.snapshot().streaks().totalDaysOpen());
+    }
+
+    @Test
+    void openTimeIsSplitAcrossHoursOfTheWeek() {
+        feed(MONDAY.atTime(9, 30), EventType.OPEN, -1);
+        feed(MONDAY.atTime(11, 15), EventType.LOCK, -1);
+
+        long[] byHour = stats.openTimeByHourOfWeek();
+        assertEquals(HOUR / 2, byHour[9]);
+        assertEquals(HOUR, byHour[10]);
+        assertEquals(HOUR / 4, byHour[11]);
+        assertEquals(HOUR * 7 / 4, Arrays.stream(byHour).sum());
+    }
+
+    @Test
+    void windowStatsOnlyCountDaysInTheWindow() {
+        session(MONDAY, 9, 10);
+        session(MONDAY.plusDays(2), 9, 12);
+        session(MONDAY.plusDays(8), 9, 11);
+
+        WindowStats monday = stats.windowStats(MONDAY, MONDAY);
+        assertEquals(1, monday.opens());
+        assertEquals(HOUR, monday.openTime());
+
+        WindowStats week = stats.windowStats(MONDAY, MONDAY.plusDays(6));
+        assertEquals(2, week.opens());
+        assertEquals(2, week.locks());
+        assertEquals(2, week.daysOpen());
+        assertEquals(4 * HOUR, week.openTime());
+        assertEquals(1, week.opensByDay()[0]);
+        assertEquals(3 * HOUR, week.openTimeByDay()[2]);
+    }
+}
@@ -0,0 +1,111 @@
+package edu.mines.mmsbot.data.util;
+
+import edu.mines.mmsbot.data.util.DataVersion.Source;
+import edu.mines.mmsbot.data.util.DataVersion.Stamp;
+import edu.mines.mmsbot.data.util.StatsReport.SectionContent;
+import edu.mines.mmsbot.data.util.StatsReport.StatType;
+import net.dv8tion.jda.api.EmbedBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatsReportTest {
+
+    private static final int LAB = 0;
+    private static final int SHOP = 3;
+
+    private final DataVersion version = new DataVersion();
+
+    private static Map<StatType, SectionContent> embeds(Set<StatType> statTypes) {
+        Map<StatType, SectionContent> embeds = new EnumMap<>(StatType.class);
+        for (StatType statType : statTypes) embeds.put(statType, new SectionContent(new EmbedBuilder().setTitle(statType.title), null));
+        return embeds;
+    }
+
+    private StatsReport report(Set<StatType> statTypes) {
+        return new StatsReport().withSections(embeds(statTypes), version.stamp(LAB));
+    }
+
+    /**
+     * Stale sections, leaving out the ones that read the clock, since those can tick over mid test.
+     */
+    private static Set<StatType> staleIgnoringClock(StatsReport report, Stamp current) {
+        Set<StatType> stale = report.getStaleSections(current);
+        stale.removeIf(statType -> statType.inputs.contains(Source.CLOCK));
+        return stale;
+    }
+
+    @Test
+    void unchangedDataLeavesSectionsCurrent() {
+        StatsReport report = report(EnumSet.allOf(StatType.class));
+        assertEquals(Set.of(), staleIgnoringClock(report, version.stamp(LAB)));
+    }
+
+    @Test
+    void sectionsNeverAskedForAreNotRefreshed() {
+        StatsReport report = report(EnumSet.of(StatType.CATS));
+        version.bump(Source.EVENTS, LAB);
+
+        // Only memoised sections are refreshed in the background, the rest are built when asked for
+        assertFalse(report.getStaleSections(version.stamp(LAB)).contains(StatType.TIME_OF_DAY));
+        assertFalse(report.hasSection(StatType.TIME_OF_DAY));
+        assertTrue(report.isStale(StatType.TIME_OF_DAY, version.stamp(LAB)));
+        assertNull(report.getEmbed(StatType.TIME_OF_DAY));
+    }
+
+    @Test
+    void bumpOnlyInvalidatesSectionsReadingThatSource() {
+        StatsReport report = report(EnumSet.allOf(StatType.class));
+
+        version.bump(Source.REACTIONS);
+        assertEquals(Set.of(StatType.CATS), staleIgnoringClock(report, version.stamp(LAB)));
+
+        report = report(EnumSet.allOf(StatType.class));
+        version.bump(Source.CLAIMS, LAB);
+        assertEquals(Set.of(StatType.USER_LEADERBOARD), staleIgnoringClock(report, version.stamp(LAB)));
+
+        report = report(EnumSet.allOf(StatType.class));
+        version.bump(Source.EVENTS, LAB);
+        Set<StatType> stale = report.getStaleSections(version.stamp(LAB));
+        assertFalse(stale.contains(StatType.CATS));
+        assertTrue(stale.containsAll(EnumSet.of(StatType.TIME_OF_DAY, StatType.SESSION_AVERAGES, StatType.SUMMARY)));
+    }
+
+    @Test
+    void rebuiltSectionsTakeTheNewStamp() {
+        StatsReport report = report(EnumSet.allOf(StatType.class));
+        version.bump(Source.CLAIMS, LAB);
+        version.bump(Source.REACTIONS);
+
+        Stamp current = version.stamp(LAB);
+        StatsReport updated = report.withSections(embeds(EnumSet.of(StatType.CATS)), current);
+
+        assertEquals(Set.of(StatType.USER_LEADERBOARD), staleIgnoringClock(updated, current));
+        // The original is left as it was
+        assertEquals(Set.of(StatType.CATS, StatType.USER_LEADERBOARD), staleIgnoringClock(report, current));
+        assertEquals(StatType.CATS.title, updated.getEmbed(StatType.CATS).build().getTitle());
+    }
+
+    @Test
+    void changesInAnotherSpaceLeaveTheReportCurrent() {
+        StatsReport report = report(EnumSet.allOf(StatType.class));
+        version.bump(Source.EVENTS, SHOP);
+        version.bump(Source.CLAIMS, SHOP);
+
+        assertEquals(Set.of(), staleIgnoringClock(report, version.stamp(LAB)));
+        // Shared sources still reach every space
+        version.bump(Source.REACTIONS);
+        assertEquals(Set.of(StatType.CATS), staleIgnoringClock(report, version.stamp(LAB)));
+    }
+
+    @Test
+    void perSpaceSourcesNeedASpace() {
+        assertThrows(IllegalArgumentException.class, () -> version.bump(Source.EVENTS));
+        assertThrows(IllegalArgumentException.class, () -> version.bump(Source.REACTIONS, LAB));
+    }
+}
@@ -0,0 +1,52 @@
+package edu.mines.mmsbot.web;
+
+import edu.mines.mmsbot.data.util.DataVersion;
+import edu.mines.mmsbot.data.util.DataVersion.Source;
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatusServerTest {
+
+    private static final Set<Source> EVENT_SOURCES = EnumSet.of(Source.EVENTS, Source.CLAIMS);
+
+    @Test
+    void ifNoneMatchFindsTheTagInAList() {
+        assertTrue(StatusServer.matches("\"a.b\"", "\"a.b\""));
+        assertTrue(StatusServer.matches("\"x\", \"a.b\"", "\"a.b\""));
+        assertTrue(StatusServer.matches("*", "\"a.b\""));
+
+        assertFalse(StatusServer.matches(null, "\"a.b\""));
+        assertFalse(StatusServer.matches("\"a.c\"", "\"a.b\""));
+        // Only quoted tags are sent, so an unquoted one is a different tag
+        assertFalse(StatusServer.matches("a.b", "\"a.b\""));
+    }
+
+    @Test
+    void tagOnlyChangesWithItsSources() {
+        DataVersion version = new DataVersion();
+        String tag = version.stamp().tag(EVENT_SOURCES);
+
+        version.bump(Source.REACTIONS);
+        assertEquals(tag, version.stamp().tag(EVENT_SOURCES));
+
+        version.bump(Source.CLAIMS, 0);
+        String claimed = version.stamp().tag(EVENT_SOURCES);
+        assertNotEquals(tag, claimed);
+        assertTrue(StatusServer.matches('"' + tag + "\", \"" + claimed + '"', '"' + claimed + '"'));
+    }
+
+    @Test
+    void stampsNoticeChangedSources() {
+        DataVersion version = new DataVersion();
+        DataVersion.Stamp before = version.stamp();
+        version.bump(Source.EVENTS, 0);
+        DataVersion.Stamp after = version.stamp();
+
+        assertTrue(before.changed(after, EVENT_SOURCES));
+        assertFalse(before.changed(after, EnumSet.of(Source.REACTIONS)));
+    }
+}
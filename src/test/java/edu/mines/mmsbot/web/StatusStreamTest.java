@@ -0,0 +1,142 @@
+package edu.mines.mmsbot.web;
+
+import com.google.gson.JsonObject;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatusStreamTest {
+
+    private final StatusStream stream = new StatusStream(List::of);
+    private HttpServer server;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/stream", stream::handle);
+        stream.start();
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        stream.stop();
+        server.stop(0);
+    }
+
+    private BufferedReader connect() throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/stream").toURL().openConnection();
+        connection.setReadTimeout(5000);
+        assertEquals(200, connection.getResponseCode());
+        assertTrue(connection.getContentType().startsWith("text/event-stream"));
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8));
+        assertEquals("retry: 5000", reader.readLine());
+        assertEquals("", reader.readLine());
+        return reader;
+    }
+
+    private void awaitSubscribers(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (stream.subscriberCount() != count) {
+            assertTrue(System.currentTimeMillis() < deadline, "Timed out waiting for subscribers");
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void everySubscriberGetsEachEventInOrder() throws Exception {
+        BufferedReader first = connect();
+        BufferedReader second = connect();
+        awaitSubscribers(2);
+
+        for (int event = 1; event <= 2; event++) {
+            JsonObject data = new JsonObject();
+            data.addProperty("event", event);
+            stream.send("claim", data);
+        }
+
+        for (BufferedReader reader : List.of(first, second)) {
+            for (int event = 1; event <= 2; event++) {
+                assertTrue(reader.readLine().startsWith("id: "));
+                assertEquals("event: claim", reader.readLine());
+                assertEquals("data: {\"event\":" + event + "}", reader.readLine());
+                assertEquals("", reader.readLine());
+            }
+        }
+    }
+
+    @Test
+    void closedClientsAreDropped() throws Exception {
+        BufferedReader gone = connect();
+        BufferedReader staying = connect();
+        awaitSubscribers(2);
+        gone.close();
+
+        // Writes can succeed into the socket buffer for a little while after the other end closes
+        long deadline = System.currentTimeMillis() + 5000;
+        while (stream.subscriberCount() != 1) {
+            assertTrue(System.currentTimeMillis() < deadline, "Closed client was never dropped");
+            stream.send("claim", new JsonObject());
+            Thread.sleep(20);
+        }
+
+        assertTrue(staying.readLine().startsWith("id: "));
+    }
+
+    @Test
+    void clientThatStopsReadingIsDroppedWithoutHoldingUpTheRest() throws Exception {
+        // Asks for the stream like a browser would, then never reads a byte of it
+        Socket stalled = new Socket();
+        stalled.setReceiveBufferSize(4096);
+        stalled.connect(server.getAddress());
+        stalled.getOutputStream().write("GET /stream HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+        stalled.getOutputStream().flush();
+
+        BufferedReader reading = connect();
+        awaitSubscribers(2);
+
+        // Far more than fits in the socket buffers, so writes to the stalled client block and its queue fills,
+        // while the reading client keeps up with every frame
+        JsonObject data = new JsonObject();
+        data.addProperty("padding", "x".repeat(64 * 1024));
+        for (int i = 0; i < 300; i++) {
+            stream.send("claim", data);
+            assertTrue(reading.readLine().startsWith("id: "));
+            assertEquals("event: claim", reading.readLine());
+            assertTrue(reading.readLine().startsWith("data: "));
+            assertEquals("", reading.readLine());
+        }
+        awaitSubscribers(1);
+
+        // Its connection was closed, so once it reads what was buffered it reaches the end
+        stalled.setSoTimeout(5000);
+        try (InputStream in = stalled.getInputStream()) {
+            byte[] buffer = new byte[64 * 1024];
+            while (true) {
+                int read;
+                try {
+                    read = in.read(buffer);
+                } catch (SocketException ex) {
+                    break;
+                }
+                if (read == -1) break;
+            }
+        }
+    }
+}